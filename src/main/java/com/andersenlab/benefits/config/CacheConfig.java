@@ -0,0 +1,43 @@
+package com.andersenlab.benefits.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Caches of lookups of companies, locations, categories and roles.
+ * Caches are bounded by size and time of write, entries are evicted by the services which change them
+ * after commit of the change, so a lookup during the change does not cache the old entity again.
+ * Missing entities are not cached, cached entities are copied, see {@link EntityCopyingCache}. Pages of discounts are held as ids and are checked
+ * by the version of discounts when read, see {@link com.andersenlab.benefits.service.impl.DiscountPageCache}.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+    public static final String COMPANIES = "companies";
+    public static final String LOCATIONS = "locations";
+    public static final String LOCATIONS_BY_CITY = "locationsByCity";
+    public static final String CATEGORIES = "categories";
+    public static final String ROLES = "roles";
+    public static final String ROLES_BY_CODE = "rolesByCode";
+    public static final String DISCOUNT_PAGES = "discountPages";
+
+    @Bean
+    public CacheManager cacheManager(@Value("${benefits.cache.spec:maximumSize=1000,expireAfterWrite=10m,recordStats}") final String spec) {
+        final CaffeineCacheManager cacheManager = new CaffeineCacheManager(
+                COMPANIES, LOCATIONS, LOCATIONS_BY_CITY, CATEGORIES, ROLES, ROLES_BY_CODE, DISCOUNT_PAGES) {
+            @Override
+            protected Cache adaptCaffeineCache(final String name, final com.github.benmanes.caffeine.cache.Cache<Object, Object> cache) {
+                return new EntityCopyingCache(name, cache, isAllowNullValues());
+            }
+        };
+        cacheManager.setCacheSpecification(spec);
+        cacheManager.setAllowNullValues(false);
+        return new TransactionAwareCacheManagerProxy(cacheManager);
+    }
+}
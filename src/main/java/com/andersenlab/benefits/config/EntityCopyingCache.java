@@ -0,0 +1,49 @@
+package com.andersenlab.benefits.config;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.cache.caffeine.CaffeineCache;
+
+import javax.persistence.Entity;
+import java.beans.PropertyDescriptor;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Objects;
+
+/**
+ * Caffeine cache which keeps its own copies of entities and gives out copies of them,
+ * so a caller may change the entity it got, or have it attached to its persistence context,
+ * without changing the cached one. Collections of entities are lazy associations
+ * and are not copied. Other values are kept as they are.
+ *
+ * @version 1.0
+ */
+class EntityCopyingCache extends CaffeineCache {
+
+    EntityCopyingCache(final String name, final com.github.benmanes.caffeine.cache.Cache<Object, Object> cache,
+                       final boolean allowNullValues) {
+        super(name, cache, allowNullValues);
+    }
+
+    @Override
+    protected Object toStoreValue(final Object userValue) {
+        return super.toStoreValue(copy(userValue));
+    }
+
+    @Override
+    protected Object fromStoreValue(final Object storeValue) {
+        return copy(super.fromStoreValue(storeValue));
+    }
+
+    private static Object copy(final Object value) {
+        if (Objects.isNull(value) || !value.getClass().isAnnotationPresent(Entity.class)) {
+            return value;
+        }
+        final String[] collections = Arrays.stream(BeanUtils.getPropertyDescriptors(value.getClass()))
+                .filter(property -> Collection.class.isAssignableFrom(property.getPropertyType()))
+                .map(PropertyDescriptor::getName)
+                .toArray(String[]::new);
+        final Object copy = BeanUtils.instantiateClass(value.getClass());
+        BeanUtils.copyProperties(value, copy, collections);
+        return copy;
+    }
+}
@@ -0,0 +1,39 @@
+package com.andersenlab.benefits.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Executors of imports of discounts.
+ * Import executor runs whole imports in background, when all its threads are busy and
+ * the queue is full new imports are rejected.
+ * Worker executor parses and validates chunks of rows for all running imports.
+ */
+@Configuration
+public class ImportExecutorConfig {
+
+    @Bean(name = "importExecutor")
+    public ThreadPoolTaskExecutor importExecutor(@Value("${benefits.import.executor.pool-size:2}") final int poolSize,
+                                                 @Value("${benefits.import.executor.queue-capacity:10}") final int queueCapacity) {
+        final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("import-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        return executor;
+    }
+
+    @Bean(name = "importWorkerExecutor")
+    public ThreadPoolTaskExecutor importWorkerExecutor(@Value("${benefits.import.workers:0}") final int workers) {
+        final int poolSize = workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+        final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setThreadNamePrefix("import-worker-");
+        return executor;
+    }
+}
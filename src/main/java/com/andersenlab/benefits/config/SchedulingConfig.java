@@ -0,0 +1,12 @@
+package com.andersenlab.benefits.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Scheduled maintenance of discounts, like the sweep of finished discounts.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
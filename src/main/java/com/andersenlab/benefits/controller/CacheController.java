@@ -0,0 +1,91 @@
+package com.andersenlab.benefits.controller;
+
+import com.andersenlab.benefits.domain.CacheRegionStatistics;
+import com.andersenlab.benefits.domain.CacheStatistics;
+import com.andersenlab.benefits.service.CacheService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * A controller for reading statistics of caches and for clearing regions of the second-level cache.
+ *
+ * @version 1.0
+ */
+@ApiResponses(value = {
+        @ApiResponse(responseCode = "401",
+                description = "Unauthorized",
+                content = @Content),
+        @ApiResponse(responseCode = "403",
+                description = "Forbidden",
+                content = @Content),
+        @ApiResponse(responseCode = "500",
+                description = "Internal Server Error",
+                content = @Content)
+})
+@Tag(name = "Cache controller", description = "Controller for reading statistics of caches.")
+@RestController
+@SecurityRequirement(name = "benefits")
+public class CacheController {
+    private final CacheService cacheService;
+
+    @Autowired
+    public CacheController(final CacheService cacheService) {
+        this.cacheService = cacheService;
+    }
+
+    /**
+     * @return hits, misses and sizes of caches of lookups of companies, locations, categories and roles
+     */
+    @Operation(summary = "This is to get hits and misses of caches")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200",
+                    description = "Statistics of caches",
+                    content = @Content)
+    })
+    @GetMapping("/caches")
+    public List<CacheStatistics> getCacheStatistics() {
+        return this.cacheService.getStatistics();
+    }
+
+    /**
+     * @return hits, misses and puts of regions of the second-level cache of entities, collections and queries
+     */
+    @Operation(summary = "This is to get hit ratios of regions of the second-level cache")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200",
+                    description = "Statistics of regions",
+                    content = @Content)
+    })
+    @GetMapping("/caches/regions")
+    public List<CacheRegionStatistics> getCacheRegionStatistics() {
+        return this.cacheService.getRegionStatistics();
+    }
+
+    /**
+     * Clears the region of the second-level cache, so its effect on latency can be measured
+     *
+     * @param region name of the region, as in /caches/regions
+     * @throws IllegalStateException if the region is not found
+     */
+    @Operation(summary = "This is to clear a region of the second-level cache")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200",
+                    description = "Region has been cleared",
+                    content = @Content)
+    })
+    @DeleteMapping("/caches/regions/{region}")
+    public void evictCacheRegion(@PathVariable final String region) {
+        this.cacheService.evictRegion(region);
+    }
+}
@@ -0,0 +1,109 @@
+package com.andersenlab.benefits.controller;
+
+import com.andersenlab.benefits.domain.CatalogChangedEvent;
+import com.andersenlab.benefits.service.impl.CatalogVersions;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Conditional GET of the listings of discounts, categories and locations.
+ * The strong ETag of a listing is the hash of its body, so all nodes give the same listing the same ETag.
+ * Serialized bodies of listings are kept by their URL with their ETag and the version of the table
+ * they were read at, and are written again for the same URL until the version changes.
+ * A request with the ETag of the kept body in If-None-Match is answered 304 Not Modified
+ * without calling the controller. When no body is kept at the current version, as on another node
+ * or after a change, the listing is read and answered 304 if the hash of its body matches.
+ *
+ * @version 1.0
+ * @see CatalogVersions
+ */
+@Component
+public class CatalogResponseCacheFilter extends OncePerRequestFilter {
+    private static final Map<String, CatalogChangedEvent.Table> TABLES = Map.of(
+            "/discounts", CatalogChangedEvent.Table.DISCOUNTS,
+            "/categories", CatalogChangedEvent.Table.CATEGORIES,
+            "/locations", CatalogChangedEvent.Table.LOCATIONS);
+
+    private final CatalogVersions catalogVersions;
+    private final Map<String, CachedBody> bodies;
+
+    private record CachedBody(long version, String eTag, String contentType, byte[] content) {
+    }
+
+    @Autowired
+    public CatalogResponseCacheFilter(final CatalogVersions catalogVersions,
+                                      @Value("${benefits.response-cache.max-entries:1000}") final int maxEntries) {
+        this.catalogVersions = catalogVersions;
+        // the least recently written bodies are dropped first
+        this.bodies = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, CachedBody> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    @Override
+    protected boolean shouldNotFilter(final HttpServletRequest request) {
+        return !HttpMethod.GET.matches(request.getMethod()) || !TABLES.containsKey(getPath(request));
+    }
+
+    @Override
+    protected void doFilterInternal(final HttpServletRequest request,
+                                    final HttpServletResponse response,
+                                    final FilterChain filterChain) throws ServletException, IOException {
+        final CatalogChangedEvent.Table table = TABLES.get(getPath(request));
+        final long version = this.catalogVersions.get(table);
+        final String key = Objects.isNull(request.getQueryString()) ? table.name() : table.name() + "?" + request.getQueryString();
+        final CachedBody cached = this.bodies.get(key);
+        if (!Objects.isNull(cached) && cached.version() == version) {
+            if (new ServletWebRequest(request, response).checkNotModified(cached.eTag())) {
+                return;
+            }
+            response.setContentType(cached.contentType());
+            response.setContentLength(cached.content().length);
+            response.getOutputStream().write(cached.content());
+            return;
+        }
+        final ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        filterChain.doFilter(request, wrapper);
+        if (wrapper.getStatus() != HttpServletResponse.SC_OK) {
+            wrapper.copyBodyToResponse();
+            return;
+        }
+        final byte[] content = wrapper.getContentAsByteArray();
+        final String eTag = toETag(content);
+        // a body read while the table was changed may be newer than its version
+        if (this.catalogVersions.get(table) == version) {
+            this.bodies.put(key, new CachedBody(version, eTag, wrapper.getContentType(), content));
+        }
+        if (new ServletWebRequest(request, wrapper).checkNotModified(eTag)) {
+            return;
+        }
+        wrapper.copyBodyToResponse();
+    }
+
+    private static String getPath(final HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    private static String toETag(final byte[] content) {
+        return "\"" + DigestUtils.md5DigestAsHex(content) + "\"";
+    }
+}
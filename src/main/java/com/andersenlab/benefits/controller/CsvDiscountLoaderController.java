@@ -1,6 +1,9 @@
 package com.andersenlab.benefits.controller;
 
+import com.andersenlab.benefits.domain.ImportJob;
 import com.andersenlab.benefits.service.CsvDiscountLoaderService;
+import com.andersenlab.benefits.service.CsvImportJobService;
+import com.andersenlab.benefits.service.impl.CsvFiles;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -8,13 +11,24 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Objects;
+import java.util.UUID;
 
 /**
  * A controller for uploading entries from csv-file to the database.
@@ -47,16 +61,20 @@ import java.util.Objects;
 public class CsvDiscountLoaderController {
 
     private final CsvDiscountLoaderService csvDiscountLoaderService;
+    private final CsvImportJobService csvImportJobService;
 
     @Autowired
-    public CsvDiscountLoaderController(final CsvDiscountLoaderService csvDiscountLoaderService) {
+    public CsvDiscountLoaderController(final CsvDiscountLoaderService csvDiscountLoaderService,
+                                       final CsvImportJobService csvImportJobService) {
         this.csvDiscountLoaderService = csvDiscountLoaderService;
+        this.csvImportJobService = csvImportJobService;
     }
 
     /**
      * Upload information in the database.
-     * @param file the csv file to upload
+     * @param file the csv file to upload, plain or compressed to .csv.gz or .zip, or .xlsx workbook
      * @param delimiter string delimiter of columns
+     * @param charset charset of file, UTF-8 or windows-1251 is detected if not given
      * @throws IllegalStateException if:
      * <ul>
      * <li>a CSV file hasn't got
@@ -65,12 +83,77 @@ public class CsvDiscountLoaderController {
     @Operation(summary = "This is to upload entries")
     @PostMapping(value = "/upload-csv-file", consumes = {"multipart/form-data"})
     public List<String> uploadCsvFile(@RequestParam(name = "file") final MultipartFile file,
-                                      @RequestParam(name = "delimiter", defaultValue = ";") final String delimiter) {
-        if (file.isEmpty() || !Objects.requireNonNull(file.getOriginalFilename()).endsWith(".csv")) {
+                                      @RequestParam(name = "delimiter", defaultValue = ";") final String delimiter,
+                                      @RequestParam(name = "charset", required = false) final String charset) {
+        checkCsvFile(file);
+        return this.csvDiscountLoaderService.loadDiscountsFromCsv(file, delimiter, charset);
+    }
+
+    /**
+     * Queue upload of information in the database and return at once.
+     * @param file the csv file to upload, plain or compressed to .csv.gz or .zip, or .xlsx workbook
+     * @param delimiter string delimiter of columns
+     * @param charset charset of file, UTF-8 or windows-1251 is detected if not given
+     * @param mode BATCH by default, COPY for large files in UTF-8 with known columns only
+     * @param source source of file, if given rows unchanged since the last import of the source are skipped
+     *               and changed rows update their discounts
+     * @param expireMissing whether discounts of rows missing in file are expired, requires source
+     * @return queued {@link ImportJob}, its progress is available by {@link #getImportJob(UUID)}
+     * @throws IllegalStateException if:
+     * <ul>
+     * <li>a CSV file hasn't got
+     * <li>too many imports are in progress
+     * </ul>
+     */
+    @Operation(summary = "This is to upload entries in background")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202",
+                    description = "Import has been queued",
+                    content = @Content(mediaType = "application/json"))
+    })
+    @PostMapping(value = "/upload-csv-file", consumes = {"multipart/form-data"}, params = "async=true")
+    public ResponseEntity<ImportJob> uploadCsvFileAsync(@RequestParam(name = "file") final MultipartFile file,
+                                                        @RequestParam(name = "delimiter", defaultValue = ";") final String delimiter,
+                                                        @RequestParam(name = "charset", required = false) final String charset,
+                                                        @RequestParam(name = "mode", defaultValue = "BATCH") final ImportJob.Mode mode,
+                                                        @RequestParam(name = "source", required = false) final String source,
+                                                        @RequestParam(name = "expireMissing", defaultValue = "false") final boolean expireMissing) {
+        checkCsvFile(file);
+        return new ResponseEntity<>(this.csvImportJobService.submit(file, delimiter, mode, source, expireMissing, charset),
+                HttpStatus.ACCEPTED);
+    }
+
+    /**
+     * Gets progress of {@link ImportJob}.
+     * @param id the id of {@link ImportJob}
+     * @throws IllegalStateException if the given id was not found
+     */
+    @Operation(summary = "This is to get progress of the import")
+    @GetMapping(value = "/imports/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ImportJob getImportJob(@PathVariable final UUID id) {
+        return this.csvImportJobService.findById(id);
+    }
+
+    /**
+     * Gets line-by-line result of {@link ImportJob} as CSV file with columns "number" and "result".
+     * @param id the id of {@link ImportJob}
+     * @throws IllegalStateException if the given id was not found
+     */
+    @Operation(summary = "This is to download result of the import")
+    @GetMapping(value = "/imports/{id}/report", produces = "text/csv")
+    public ResponseEntity<StreamingResponseBody> getImportReport(@PathVariable final UUID id) {
+        final ImportJob job = this.csvImportJobService.findById(id);
+        final StreamingResponseBody body = outputStream -> CsvFiles.writeReport(job.getReport(),
+                new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8)));
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"import-" + id + ".csv\"")
+                .contentType(MediaType.parseMediaType("text/csv"))
+                .body(body);
+    }
+
+    private void checkCsvFile(final MultipartFile file) {
+        if (file.isEmpty() || !CsvFiles.isSupported(Objects.requireNonNull(file.getOriginalFilename()))) {
             throw new IllegalStateException("Please select a CSV file to upload");
-        } else {
-            return this.csvDiscountLoaderService.loadDiscountsFromCsv(file, "\\" + delimiter);
         }
     }
-    
 }
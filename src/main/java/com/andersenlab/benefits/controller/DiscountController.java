@@ -1,6 +1,10 @@
 package com.andersenlab.benefits.controller;
 
 import com.andersenlab.benefits.domain.DiscountEntity;
+import com.andersenlab.benefits.domain.DiscountEntity_;
+import com.andersenlab.benefits.domain.DiscountFacets;
+import com.andersenlab.benefits.domain.DiscountFilter;
+import com.andersenlab.benefits.domain.DiscountSlice;
 import com.andersenlab.benefits.repository.DiscountSpec;
 import com.andersenlab.benefits.service.impl.DiscountServiceImpl;
 import io.swagger.v3.oas.annotations.Operation;
@@ -14,6 +18,7 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -27,9 +32,9 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.time.LocalDate;
 import java.util.List;
-
-import static com.andersenlab.benefits.repository.DiscountSpec.getLastAdded;
+import java.util.Set;
 
 /**
  * The controller for handling requests for {@link DiscountEntity}.
@@ -56,6 +61,10 @@ import static com.andersenlab.benefits.repository.DiscountSpec.getLastAdded;
 @SecurityRequirement(name = "benefits")
 @RequestMapping(produces = MediaType.APPLICATION_JSON_VALUE)
 public class DiscountController {
+    /**
+     * Fields which discounts may be sorted by, each has an index together with id
+     */
+    private static final Set<String> SORT_FIELDS = Set.of(DiscountEntity_.DATE_BEGIN, DiscountEntity_.SIZE_MAX);
 
     private final DiscountServiceImpl discountService;
 
@@ -108,10 +117,12 @@ public class DiscountController {
     /**
      * Gets all {@link DiscountEntity} from the database
      *
+     * @param activeOn is date in ISO format on which discounts must be active. Default - any
      * @param page is number of page to start returned result from
      * @param size is number of elements per page that needs to return
-     * @param sort is the field by which to sort elements in returned list
+     * @param sort is the field by which to sort elements in returned list, dateBegin or sizeMax
      * @return a list of {@link DiscountEntity} from database.
+     * @throws IllegalStateException if the discounts can not be sorted by the field
      */
     @Operation(summary = "This is to get all discounts from database")
     @ApiResponses(value = {
@@ -120,10 +131,79 @@ public class DiscountController {
                     content = @Content(mediaType = "application/json"))
     })
     @GetMapping("/discounts")
-    public Page<DiscountEntity> getDiscounts(@RequestParam(required = false, defaultValue = "0") final int page,
+    public Page<DiscountEntity> getDiscounts(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) final LocalDate activeOn,
+                                             @RequestParam(required = false, defaultValue = "0") final int page,
                                              @RequestParam(required = false, defaultValue = "6") final int size,
                                              @RequestParam(required = false, defaultValue = "dateBegin") final String sort) {
-        return this.discountService.findAll(PageRequest.of(page, size, Sort.by(sort)));
+        return this.discountService.getDiscountsByFilter(new DiscountFilter(null, null, null, null, activeOn),
+                PageRequest.of(page, size, getSort(Sort.Direction.ASC, sort)));
+    }
+
+    /**
+     * Gets {@link DiscountEntity} part by part for infinite scroll, ordered by {@link DiscountEntity#dateBegin} and id.
+     * Filters are optional and are the same as of find-by-* methods. The next part is read from the cursor
+     * of the previous one, so deep parts are as fast as the first, and the discounts are not counted.
+     *
+     * @param city         is partial mask of city name which must be contained in {@link DiscountEntity#area} city
+     * @param category     is name of category which must be equal to one of the {@link DiscountEntity#categories} title
+     * @param type         is partial mask of {@link DiscountEntity#type} or company title, as in find-by-type
+     * @param sizeDiscount which must be in {@link DiscountEntity#sizeMin} and {@link DiscountEntity#sizeMax}
+     * @param activeOn     is date in ISO format on which discounts must be active. Default - any
+     * @param cursor       is nextCursor of the previous part, empty for the first part
+     * @param size         is number of elements in the part
+     * @param direction    is direction of the order of the first part, the next parts keep it
+     * @return part of found {@link DiscountEntity} and cursor of the next part, null if the part is the last
+     * @throws IllegalStateException if the cursor is not valid or the size is out of range
+     */
+    @Operation(summary = "This is method to get discounts part by part by cursor ordered by beginDate")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200",
+                    description = "Discounts have been received",
+                    content = @Content)
+    })
+    @GetMapping("/discounts/scroll")
+    public DiscountSlice scrollDiscounts(@RequestParam(required = false) final String city,
+                                         @RequestParam(required = false) final String category,
+                                         @RequestParam(required = false) final String type,
+                                         @RequestParam(required = false) final Integer sizeDiscount,
+                                         @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) final LocalDate activeOn,
+                                         @RequestParam(required = false) final String cursor,
+                                         @RequestParam(required = false, defaultValue = "6") final int size,
+                                         @RequestParam(required = false, defaultValue = "DESC") final Sort.Direction direction) {
+        final Specification<DiscountEntity> spec = DiscountSpec.getByFilter(new DiscountFilter(category, city, type, sizeDiscount, activeOn));
+        return this.discountService.getDiscountsByCursor(spec, cursor, direction, size);
+    }
+
+    /**
+     * Finds {@link DiscountEntity} by combined filters with numbers of found discounts by category, city
+     * and range of {@link DiscountEntity#sizeMax}, ordered by {@link DiscountEntity#dateBegin} descending.
+     * Counts are taken from all found discounts, not only from the page. Filters are optional.
+     *
+     * @param category     is name of category which must be equal to one of the {@link DiscountEntity#categories} title
+     * @param city         is partial mask of city name which must be contained in {@link DiscountEntity#area} city
+     * @param type         is partial mask of {@link DiscountEntity#type} or company title, as in find-by-type
+     * @param sizeDiscount which must be in {@link DiscountEntity#sizeMin} and {@link DiscountEntity#sizeMax}
+     * @param activeOn     is date in ISO format on which discounts must be active
+     * @param page         is number of page to start returned result from
+     * @param size         is number of elements per page that needs to return
+     * @return page of found {@link DiscountEntity}, their number and counts
+     */
+    @Operation(summary = "This is method to get discounts by filters with counts by category, city and size")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200",
+                    description = "Discounts have been received",
+                    content = @Content)
+    })
+    @GetMapping("/discounts/facets")
+    public DiscountFacets getDiscountFacets(@RequestParam(required = false) final String category,
+                                            @RequestParam(required = false) final String city,
+                                            @RequestParam(required = false) final String type,
+                                            @RequestParam(required = false) final Integer sizeDiscount,
+                                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) final LocalDate activeOn,
+                                            @RequestParam(required = false, defaultValue = "0") final int page,
+                                            @RequestParam(required = false, defaultValue = "6") final int size) {
+        return this.discountService.getFacets(new DiscountFilter(category, city, type, sizeDiscount, activeOn),
+                PageRequest.of(page, size));
     }
 
     /**
@@ -132,10 +212,12 @@ public class DiscountController {
      *
      * @param city is partial mask of city name which mast be contained in
      *             {@link DiscountEntity#area} city. Default - all
+     * @param activeOn is date in ISO format on which discounts must be active. Default - any
      * @param page is number of page to start returned result from
      * @param size is number of elements per page that needs to return
-     * @param sort is the field by which to sort elements in returned list
+     * @param sort is the field by which to sort elements in returned list, dateBegin or sizeMax
      * @return a list of found {@link DiscountEntity}
+     * @throws IllegalStateException if the discounts can not be sorted by the field
      */
     @Operation(summary = "This is method to get discounts by %city% mask ordered by descending beginDate")
     @ApiResponses(value = {
@@ -146,11 +228,12 @@ public class DiscountController {
 
     @GetMapping("/discounts/find-by-city")
     public Page<DiscountEntity> findDiscountByCity(@RequestParam(required = false) final String city,
+                                                   @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) final LocalDate activeOn,
                                                    @RequestParam(required = false, defaultValue = "0") final int page,
                                                    @RequestParam(required = false, defaultValue = "6") final int size,
                                                    @RequestParam(required = false, defaultValue = "dateBegin") final String sort) {
-        final Specification<DiscountEntity> spec = Specification.where(DiscountSpec.getByLocation(city).and(getLastAdded()));
-        return this.discountService.getDiscountsByCriteria(spec, PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, sort)));
+        return this.discountService.getDiscountsByFilter(new DiscountFilter(null, city, null, null, activeOn),
+                PageRequest.of(page, size, getSort(Sort.Direction.DESC, sort)));
     }
 
     /**
@@ -159,9 +242,11 @@ public class DiscountController {
      *
      * @param category is name of category which mast be equal to one of the
      *                 {@link DiscountEntity#categories} title. Default - all
+     * @param activeOn is date in ISO format on which discounts must be active. Default - any
      * @param page     is number of page to start returned result from
      * @param size     is number of elements per page that needs to return
-     * @param sort     is the field by which to sort elements in returned list
+     * @param sort     is the field by which to sort elements in returned list, dateBegin or sizeMax
+     * @throws IllegalStateException if the discounts can not be sorted by the field
      */
     @Operation(summary = "This is method to get discounts within certain category and ordered by descending beginDate")
     @ApiResponses(value = {
@@ -171,22 +256,24 @@ public class DiscountController {
     })
     @GetMapping("/discounts/find-by-category")
     public Page<DiscountEntity> findDiscountByCategory(@RequestParam(required = false) final String category,
+                                                       @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) final LocalDate activeOn,
                                                        @RequestParam(required = false, defaultValue = "0") final int page,
                                                        @RequestParam(required = false, defaultValue = "6") final int size,
                                                        @RequestParam(required = false, defaultValue = "dateBegin") final String sort) {
-        final Specification<DiscountEntity> spec = Specification.where(DiscountSpec.getByCategory(category).and(getLastAdded()));
-        return this.discountService.getDiscountsByCriteria(spec, PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, sort)));
+        return this.discountService.getDiscountsByFilter(new DiscountFilter(category, null, null, null, activeOn),
+                PageRequest.of(page, size, getSort(Sort.Direction.DESC, sort)));
     }
 
     /**
-     * Find {@link DiscountEntity} with {@link DiscountEntity#type} like "%type%"
-     * in descending order by {@link DiscountEntity#dateBegin}
+     * Find {@link DiscountEntity} with {@link DiscountEntity#type} or title of company like "%type%" in any case,
+     * in descending order by {@link DiscountEntity#dateBegin}. Search by words is /discounts/search
      *
-     * @param type is partial mask of "Type of company or service" which mast be contained in
-     *             {@link DiscountEntity#type}. Default - all
+     * @param type is partial mask of "Type of company or service" or title of company. Default - all
+     * @param activeOn is date in ISO format on which discounts must be active. Default - any
      * @param page is number of page to start returned result from
      * @param size is number of elements per page that needs to return
-     * @param sort is the field by which to sort elements in returned list
+     * @param sort is the field by which to sort elements in returned list, dateBegin or sizeMax
+     * @throws IllegalStateException if the discounts can not be sorted by the field
      */
     @Operation(summary = "This is method to find discounts by %type% mask ordered by descending beginDate")
     @ApiResponses(value = {
@@ -196,14 +283,37 @@ public class DiscountController {
     })
     @GetMapping("/discounts/find-by-type")
     public Page<DiscountEntity> findDiscountByType(@RequestParam(required = false) final String type,
+                                                   @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) final LocalDate activeOn,
                                                    @RequestParam(required = false, defaultValue = "0") final int page,
                                                    @RequestParam(required = false, defaultValue = "6") final int size,
                                                    @RequestParam(required = false, defaultValue = "dateBegin") final String sort) {
-        final Specification<DiscountEntity> spec = Specification
-                .where(DiscountSpec.getByType(type)
-                        .or(DiscountSpec.getByCompanyTitle(type))
-                        .and(getLastAdded()));
-        return this.discountService.getDiscountsByCriteria(spec, PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, sort)));
+        return this.discountService.getDiscountsByFilter(new DiscountFilter(null, null, type, null, activeOn),
+                PageRequest.of(page, size, getSort(Sort.Direction.DESC, sort)));
+    }
+
+    /**
+     * Search {@link DiscountEntity} by words of type, company title, description and condition
+     * in Russian or English, the most relevant first
+     *
+     * @param q    is words to search, the last one may be a beginning of word
+     * @param activeOn is date in ISO format on which discounts must be active. Default - any
+     * @param page is number of page to start returned result from
+     * @param size is number of elements per page that needs to return
+     * @return a list of found {@link DiscountEntity}
+     * @throws IllegalStateException if the search has no words
+     */
+    @Operation(summary = "This is method to search discounts by words ordered by relevance")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200",
+                    description = "Discounts have been received",
+                    content = @Content)
+    })
+    @GetMapping("/discounts/search")
+    public Page<DiscountEntity> searchDiscounts(@RequestParam final String q,
+                                                @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) final LocalDate activeOn,
+                                                @RequestParam(required = false, defaultValue = "0") final int page,
+                                                @RequestParam(required = false, defaultValue = "6") final int size) {
+        return this.discountService.search(q, activeOn, PageRequest.of(page, size));
     }
 
     /**
@@ -211,9 +321,11 @@ public class DiscountController {
      * in descending order by {@link DiscountEntity#dateBegin}
      *
      * @param sizeDiscount which must be in {@link DiscountEntity#sizeMin} and {@link DiscountEntity#sizeMax}
+     * @param activeOn is date in ISO format on which discounts must be active. Default - any
      * @param page is number of page to start returned result from
      * @param size is number of elements per page that needs to return
-     * @param sort is the field by which to sort elements in returned list
+     * @param sort is the field by which to sort elements in returned list, dateBegin or sizeMax
+     * @throws IllegalStateException if the discounts can not be sorted by the field
      */
     @Operation(summary = "This is method to find discounts by %sizeDiscount% mask ordered by descending beginDate")
     @ApiResponses(value = {
@@ -223,12 +335,13 @@ public class DiscountController {
     })
     @GetMapping("/discounts/find-by-size")
     public Page<DiscountEntity> findDiscountBySize(@RequestParam(required = false) final int sizeDiscount,
+                                                   @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) final LocalDate activeOn,
                                                    @RequestParam(required = false, defaultValue = "0") final int page,
                                                    @RequestParam(required = false, defaultValue = "6") final int size,
                                                    @RequestParam(required = false, defaultValue = "sizeMax") final String sort,
                                                    @RequestParam(required = false, defaultValue = "DESC") final Sort.Direction direction) {
-        final Specification<DiscountEntity> spec = Specification.where(DiscountSpec.getBySize(sizeDiscount).and(getLastAdded()));
-        return this.discountService.getDiscountsByCriteria(spec, PageRequest.of(page, size, Sort.by(direction, sort)));
+        return this.discountService.getDiscountsByFilter(new DiscountFilter(null, null, null, sizeDiscount, activeOn),
+                PageRequest.of(page, size, getSort(direction, sort)));
     }
 
     /**
@@ -238,8 +351,10 @@ public class DiscountController {
      *                {@link DiscountEntity#categories} title.
      * @param sizeDiscount which must be in {@link DiscountEntity#sizeMin} and {@link DiscountEntity#sizeMax}
      * @param city is name of City where to search (optional) if certain location needed
-     * @param limit is number of {@link DiscountEntity} to return
-     * @return List of {@link DiscountEntity} suitable to search conditions
+     * @param activeOn is date in ISO format on which discounts must be active. Default - any
+     * @param limit is number of {@link DiscountEntity} to return, from 1 to 100
+     * @return List of {@link DiscountEntity} suitable to search conditions, the most similar first
+     * @throws IllegalStateException if the limit is out of range
      */
     @Operation(summary = "This is method to find discounts in the same Category with size in min/max discount range")
     @ApiResponses(value = {
@@ -251,8 +366,9 @@ public class DiscountController {
     public List<DiscountEntity> findSimilar(@RequestParam final String category,
                                             @RequestParam final int sizeDiscount,
                                             @RequestParam(required = false) final String city,
+                                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) final LocalDate activeOn,
                                             @RequestParam(required = false, defaultValue = "3") final Integer limit) {
-        return this.discountService.getSimilarDiscounts(category, sizeDiscount, city, limit);
+        return this.discountService.getSimilarDiscounts(category, sizeDiscount, city, activeOn, limit);
     }
 
     /**
@@ -291,4 +407,15 @@ public class DiscountController {
     public void deleteDiscount(@PathVariable final Long id) {
         this.discountService.delete(id);
     }
+
+    /**
+     * @return order by the field and id, so the order of pages is stable and is served by the index
+     * @throws IllegalStateException if the field is not one of {@link #SORT_FIELDS}
+     */
+    private static Sort getSort(final Sort.Direction direction, final String sort) {
+        if (!SORT_FIELDS.contains(sort)) {
+            throw new IllegalStateException("Discounts can not be sorted by " + sort);
+        }
+        return Sort.by(direction, sort, DiscountEntity_.ID);
+    }
 }
@@ -0,0 +1,18 @@
+package com.andersenlab.benefits.domain;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * Statistics of a region of the second-level cache of Hibernate since start of the application
+ * or since statistics were cleared.
+ *
+ * @param region   name of the region, name of the entity or of the collection role for domain data
+ * @param hits     number of reads answered by the region
+ * @param misses   number of reads not found in the region
+ * @param puts     number of entries put into the region
+ * @param hitRatio share of hits in all reads, 1 if there were no reads
+ * @version 1.0
+ */
+@Schema(name = "CacheRegionStatistics", description = "Hits and misses of a region of the second-level cache")
+public record CacheRegionStatistics(String region, long hits, long misses, long puts, double hitRatio) {
+}
@@ -0,0 +1,18 @@
+package com.andersenlab.benefits.domain;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * Statistics of a cache since start of the application.
+ *
+ * @param name      name of the cache
+ * @param size      approximate number of entries
+ * @param hits      number of lookups answered by the cache
+ * @param misses    number of lookups read from the database
+ * @param hitRate   share of hits in all lookups, 1 if there were no lookups
+ * @param evictions number of entries dropped by size or time
+ * @version 1.0
+ */
+@Schema(name = "CacheStatistics", description = "Hits and misses of a cache")
+public record CacheStatistics(String name, long size, long hits, long misses, double hitRate, long evictions) {
+}
@@ -0,0 +1,21 @@
+package com.andersenlab.benefits.domain;
+
+/**
+ * Published after categories or locations are created or deleted.
+ * Listeners of the event are called after commit of the transaction of the change.
+ *
+ * @param table changed table
+ * @version 1.0
+ * @see DiscountsChangedEvent
+ */
+public record CatalogChangedEvent(Table table) {
+
+    /**
+     * Tables whose listings are versioned
+     */
+    public enum Table {
+        DISCOUNTS,
+        CATEGORIES,
+        LOCATIONS
+    }
+}
@@ -3,6 +3,8 @@ package com.andersenlab.benefits.domain;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.*;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotBlank;
@@ -12,11 +14,14 @@ import java.util.List;
 @Schema(name = "Company", description = "Company entity")
 @Entity
 @Table(name = "company")
+@BatchSize(size = DiscountEntity.FETCH_BATCH_SIZE)
 @Getter
 @Setter
 @EqualsAndHashCode
 @NoArgsConstructor
 @AllArgsConstructor
+@Cacheable
+@org.hibernate.annotations.Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class CompanyEntity {
 
     @Schema(description = "Identifier", type = "int64", minimum = "1")
@@ -32,6 +37,14 @@ public class CompanyEntity {
     @Column(name = "title")
     private String title;
 
+    /**
+     * Lower-case title generated by the database for case-insensitive search
+     */
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    @Column(name = "title_lower", insertable = false, updatable = false)
+    private String titleLower;
+
     @Schema(description = "Description of company", type = "string", minLength = 1, maxLength = 1000)
     @Size(min = 1, max = 1000, message = "Description of company must be between 3 and 20 characters")
     @NotBlank
@@ -0,0 +1,51 @@
+package com.andersenlab.benefits.domain;
+
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Objects;
+
+/**
+ * Position in the list of discounts ordered by {@link DiscountEntity#getDateBegin()} and id:
+ * the last discount returned and the direction of the order. Clients get it as an opaque string.
+ *
+ * @param direction direction of the order
+ * @param dateBegin date of beginning of the last discount returned
+ * @param id        id of the last discount returned
+ * @version 1.0
+ */
+public record DiscountCursor(Sort.Direction direction, LocalDate dateBegin, Long id) {
+
+    /**
+     * @return cursor after the given discount
+     */
+    public static DiscountCursor after(final DiscountEntity discount, final Sort.Direction direction) {
+        return new DiscountCursor(direction, new java.sql.Date(discount.getDateBegin().getTime()).toLocalDate(),
+                discount.getId());
+    }
+
+    /**
+     * @param cursor string made by {@link #encode()}
+     * @throws IllegalStateException if the string is not a cursor
+     */
+    public static DiscountCursor decode(final String cursor) {
+        try {
+            final String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":");
+            if (parts.length != 3) {
+                throw new IllegalArgumentException(cursor);
+            }
+            return new DiscountCursor(Sort.Direction.fromString(parts[0]), LocalDate.parse(parts[1]),
+                    Long.valueOf(parts[2]));
+        } catch (final IllegalArgumentException | DateTimeParseException ex) {
+            throw new IllegalStateException("Cursor " + cursor + " is not valid");
+        }
+    }
+
+    public String encode() {
+        final String value = this.direction.name() + ":" + this.dateBegin + ":" + Objects.requireNonNull(this.id);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
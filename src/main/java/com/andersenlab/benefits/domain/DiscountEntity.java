@@ -1,28 +1,37 @@
 package com.andersenlab.benefits.domain;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.ToString;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.NoArgsConstructor;
 import lombok.EqualsAndHashCode;
-import lombok.AllArgsConstructor;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.springframework.util.DigestUtils;
 
 import javax.persistence.*;
 import javax.validation.constraints.*;
+import java.nio.charset.StandardCharsets;
 import java.util.Date;
+import java.util.Objects;
 import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Schema(name = "Discount", description = "Discount entity")
 @Entity
 @Table(name = "discounts")
 @NoArgsConstructor
-@AllArgsConstructor
 @EqualsAndHashCode
 @ToString
 @Getter
 @Setter
+@Cacheable
+@org.hibernate.annotations.Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class DiscountEntity {
+    public static final int FETCH_BATCH_SIZE = 100;
 
     @Schema(description = "Identifier", type = "int64", minimum = "1")
     @Id
@@ -38,6 +47,15 @@ public class DiscountEntity {
     @Column(name = "type")
     private String type;
 
+    /**
+     * Lower-case type generated by the database for case-insensitive search
+     */
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    @Column(name = "type_lower", insertable = false, updatable = false)
+    private String typeLower;
+
     @Schema(description = "Discount description", type = "string", minLength = 1, maxLength = 2000)
     @Size(min = 1, max = 2000, message = "Discount description must be between 1 and 2000 characters")
     @NotBlank
@@ -80,15 +98,30 @@ public class DiscountEntity {
     @Temporal(TemporalType.DATE)
     private Date dateFinish;
 
+    /**
+     * Set by the database when the discount is written finished and by the daily expiry sweep,
+     * discounts which are not expired are indexed apart
+     */
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    @Column(name = "expired", insertable = false, updatable = false)
+    private boolean expired;
+
     @Schema(description = "Image of discount", type = "picture, png", maxLength = 300)
     @NotBlank
     @Column(name = "image")
     private String imageDiscount;
 
+    /**
+     * Locations and categories of a page of discounts are loaded by one query per collection, not per discount
+     */
     @Schema(description = "Location of discount", type = "collection of entities")
     @EqualsAndHashCode.Exclude
     @NotEmpty
     @ManyToMany(fetch = FetchType.EAGER)
+    @BatchSize(size = DiscountEntity.FETCH_BATCH_SIZE)
+    @org.hibernate.annotations.Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     @JoinTable(name = "location_discount",
             joinColumns = @JoinColumn(name = "discount_id"),
             inverseJoinColumns = @JoinColumn(name = "location_id"))
@@ -98,6 +131,8 @@ public class DiscountEntity {
     @EqualsAndHashCode.Exclude
     @NotEmpty
     @ManyToMany(fetch = FetchType.EAGER)
+    @BatchSize(size = DiscountEntity.FETCH_BATCH_SIZE)
+    @org.hibernate.annotations.Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     @JoinTable(name = "category_discount",
             joinColumns = @JoinColumn(name = "discount_id"),
             inverseJoinColumns = @JoinColumn(name = "category_id"))
@@ -109,4 +144,53 @@ public class DiscountEntity {
     @ManyToOne
     @JoinColumn(name = "company_id")
     private CompanyEntity company;
+
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    @Column(name = "content_hash")
+    private String contentHash;
+
+    public DiscountEntity(final Long id, final String type, final String description, final String discount_condition,
+                          final Integer sizeMin, final Integer sizeMax, final DiscountType discount_type,
+                          final Date dateBegin, final Date dateFinish, final String imageDiscount,
+                          final Set<LocationEntity> area, final Set<CategoryEntity> categories,
+                          final CompanyEntity company) {
+        this.id = id;
+        this.type = type;
+        this.description = description;
+        this.discount_condition = discount_condition;
+        this.sizeMin = sizeMin;
+        this.sizeMax = sizeMax;
+        this.discount_type = discount_type;
+        this.dateBegin = dateBegin;
+        this.dateFinish = dateFinish;
+        this.imageDiscount = imageDiscount;
+        this.area = area;
+        this.categories = categories;
+        this.company = company;
+    }
+
+    @PrePersist
+    @PreUpdate
+    public void updateContentHash() {
+        this.contentHash = contentHash(this.type, this.description, this.discount_condition,
+                this.sizeMin, this.sizeMax, this.imageDiscount,
+                Objects.isNull(this.company) ? null : this.company.getId());
+    }
+
+    /**
+     * Fingerprint of discount content used to find duplicates of discounts of the same company.
+     * Must be the same as md5(concat_ws(chr(31), coalesce(field::text, chr(30)), ...)) calculated by the database,
+     * a null field is written as chr(30), so every field keeps its position.
+     *
+     * @return md5 hex of given fields
+     */
+    public static String contentHash(final String type, final String description, final String condition,
+                                     final Integer sizeMin, final Integer sizeMax, final String image,
+                                     final Long companyId) {
+        final String content = Stream.of(type, description, condition, sizeMin, sizeMax, image, companyId)
+                .map(value -> Objects.isNull(value) ? "\u001e" : String.valueOf(value))
+                .collect(Collectors.joining("\u001f"));
+        return DigestUtils.md5DigestAsHex(content.getBytes(StandardCharsets.UTF_8));
+    }
 }
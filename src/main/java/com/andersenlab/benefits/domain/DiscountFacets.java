@@ -0,0 +1,25 @@
+package com.andersenlab.benefits.domain;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Page of found discounts with numbers of found discounts by category, city and size.
+ * Counts are ordered from the largest.
+ *
+ * @param items      discounts of the page
+ * @param total      number of found discounts
+ * @param categories numbers of found discounts by title of category
+ * @param cities     numbers of found discounts by city
+ * @param sizes      numbers of found discounts by range of maximum size, like "10-19"
+ * @version 1.0
+ */
+@Schema(name = "DiscountFacets", description = "Discounts with counts by category, city and size")
+public record DiscountFacets(List<DiscountEntity> items,
+                             long total,
+                             Map<String, Long> categories,
+                             Map<String, Long> cities,
+                             Map<String, Long> sizes) {
+}
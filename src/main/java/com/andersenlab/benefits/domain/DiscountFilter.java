@@ -0,0 +1,16 @@
+package com.andersenlab.benefits.domain;
+
+import java.time.LocalDate;
+
+/**
+ * Combined filters of discount search, null filters are not applied.
+ *
+ * @param category     title of category of discount
+ * @param city         part of name of city of discount, in any case
+ * @param type         part of type or title of company, in any case
+ * @param sizeDiscount size between {@link DiscountEntity#getSizeMin()} and {@link DiscountEntity#getSizeMax()}
+ * @param activeOn     date between {@link DiscountEntity#getDateBegin()} and {@link DiscountEntity#getDateFinish()}
+ * @version 1.0
+ */
+public record DiscountFilter(String category, String city, String type, Integer sizeDiscount, LocalDate activeOn) {
+}
@@ -0,0 +1,16 @@
+package com.andersenlab.benefits.domain;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+/**
+ * Part of the list of discounts read by cursor, without the total number of discounts.
+ *
+ * @param items      discounts of the part
+ * @param nextCursor cursor of the next part, null if this part is the last
+ * @version 1.0
+ */
+@Schema(name = "DiscountSlice", description = "Discounts read by cursor")
+public record DiscountSlice(List<DiscountEntity> items, String nextCursor) {
+}
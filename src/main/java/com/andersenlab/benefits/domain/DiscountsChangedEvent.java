@@ -0,0 +1,25 @@
+package com.andersenlab.benefits.domain;
+
+import java.util.Collection;
+import java.util.Objects;
+
+/**
+ * Published after discounts, or entities shown within discounts, are changed.
+ * Listeners of the event are called after commit of the transaction of the change.
+ *
+ * @param ids ids of created, updated or deleted discounts, null if any discount may have changed
+ * @version 1.0
+ */
+public record DiscountsChangedEvent(Collection<Long> ids) {
+
+    /**
+     * @return event of changes which are not tracked by discount, like an import or a renamed company
+     */
+    public static DiscountsChangedEvent all() {
+        return new DiscountsChangedEvent(null);
+    }
+
+    public boolean isAll() {
+        return Objects.isNull(this.ids);
+    }
+}
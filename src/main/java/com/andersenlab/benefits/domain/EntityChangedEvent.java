@@ -0,0 +1,44 @@
+package com.andersenlab.benefits.domain;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Published within the transaction of a change of entities, so the change is written to the outbox
+ * of cache invalidations with it and caches of other nodes are cleared after its commit.
+ * Caches of this node are cleared by the service which changes the entities.
+ *
+ * @param type type of changed entities
+ * @param ids ids of created, updated or deleted entities, null if any entity of the type may have changed
+ * @version 1.0
+ * @see DiscountsChangedEvent
+ */
+public record EntityChangedEvent(Type type, Collection<Long> ids) {
+
+    /**
+     * Types of entities held in caches
+     */
+    public enum Type {
+        DISCOUNT,
+        COMPANY,
+        CATEGORY,
+        LOCATION,
+        ROLE
+    }
+
+    public static EntityChangedEvent of(final Type type, final Long id) {
+        return new EntityChangedEvent(type, List.of(id));
+    }
+
+    /**
+     * @return event of changes which are not tracked by entity, like an import
+     */
+    public static EntityChangedEvent all(final Type type) {
+        return new EntityChangedEvent(type, null);
+    }
+
+    public boolean isAll() {
+        return Objects.isNull(this.ids);
+    }
+}
@@ -0,0 +1,179 @@
+package com.andersenlab.benefits.domain;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * State and line-by-line report of one import of discounts.
+ * Is not stored in the database, lives in memory while the application runs.
+ */
+@Schema(name = "ImportJob", description = "Import of discounts from file")
+@Getter
+public class ImportJob {
+
+    public enum Status {
+        QUEUED, RUNNING, DONE, FAILED
+    }
+
+    /**
+     * BATCH - rows are parsed and validated in the application and written with JDBC batches,
+     * COPY - file is streamed to the staging table and merged by SQL
+     */
+    public enum Mode {
+        BATCH, COPY
+    }
+
+    @Schema(description = "Identifier", type = "uuid")
+    private final UUID id = UUID.randomUUID();
+
+    @Schema(description = "Name of uploaded file", type = "string")
+    private final String fileName;
+
+    @Schema(description = "Mode of import", type = "enum")
+    private final Mode mode;
+
+    @Schema(description = "Source of file for incremental import, rows are told apart by number within source", type = "string")
+    private final String source;
+
+    @Schema(description = "Whether discounts of rows missing in file are expired, for incremental import only", type = "boolean")
+    private final boolean expireMissing;
+
+    @Schema(description = "Charset of file, detected if not given", type = "string")
+    private volatile String charset;
+
+    @Schema(description = "Status of import", type = "enum")
+    private volatile Status status = Status.QUEUED;
+
+    @Schema(description = "Error which stopped the import", type = "string")
+    private volatile String message;
+
+    @Schema(description = "Time of start", type = "date-time")
+    private volatile Instant startedAt;
+
+    @Schema(description = "Time of finish", type = "date-time")
+    private volatile Instant finishedAt;
+
+    @Getter(AccessLevel.NONE)
+    private final AtomicLong processed = new AtomicLong();
+
+    @Getter(AccessLevel.NONE)
+    private final AtomicLong failed = new AtomicLong();
+
+    @Getter(AccessLevel.NONE)
+    private final AtomicLong expired = new AtomicLong();
+
+    @Getter(AccessLevel.NONE)
+    private final List<String> report = Collections.synchronizedList(new ArrayList<>());
+
+    public ImportJob(final String fileName) {
+        this(fileName, Mode.BATCH);
+    }
+
+    public ImportJob(final String fileName, final Mode mode) {
+        this(fileName, mode, null, false, null);
+    }
+
+    public ImportJob(final String fileName, final Mode mode, final String source, final boolean expireMissing,
+                     final String charset) {
+        this.fileName = fileName;
+        this.mode = mode;
+        this.source = source;
+        this.expireMissing = expireMissing;
+        this.charset = charset;
+    }
+
+    /**
+     * @param charset charset the file is read in, replaces the requested one once detected
+     */
+    public void setCharset(final String charset) {
+        this.charset = charset;
+    }
+
+    /**
+     * @return true if rows are compared with the ledger of previous imports of the same source
+     */
+    @JsonIgnore
+    public boolean isIncremental() {
+        return !Objects.isNull(this.source);
+    }
+
+    public void start() {
+        this.startedAt = Instant.now();
+        this.status = Status.RUNNING;
+    }
+
+    public void finish() {
+        this.finishedAt = Instant.now();
+        this.status = Status.DONE;
+    }
+
+    public void fail(final String message) {
+        this.finishedAt = Instant.now();
+        this.message = message;
+        this.status = Status.FAILED;
+    }
+
+    /**
+     * Appends results of processed rows to the report, in the order of rows in file
+     */
+    public void addRows(final List<String> rows) {
+        this.report.addAll(rows);
+        this.processed.addAndGet(rows.size());
+        this.failed.addAndGet(rows.stream().filter(row -> !isSucceeded(row)).count());
+    }
+
+    @Schema(description = "Number of processed rows", type = "int64")
+    public long getRowsProcessed() {
+        return this.processed.get();
+    }
+
+    @Schema(description = "Number of rows which were not imported because of errors", type = "int64")
+    public long getRowsFailed() {
+        return this.failed.get();
+    }
+
+    @Schema(description = "Number of discounts expired because their rows are missing in file", type = "int64")
+    public long getRowsExpired() {
+        return this.expired.get();
+    }
+
+    public void addExpired(final long count) {
+        this.expired.addAndGet(count);
+    }
+
+    @Schema(description = "Number of processed rows per second", type = "double")
+    public double getRowsPerSecond() {
+        if (Objects.isNull(this.startedAt)) {
+            return 0;
+        }
+        final Instant end = Objects.isNull(this.finishedAt) ? Instant.now() : this.finishedAt;
+        final long millis = Math.max(Duration.between(this.startedAt, end).toMillis(), 1L);
+        return this.processed.get() * 1000.0 / millis;
+    }
+
+    /**
+     * @return copy of the report made so far
+     */
+    @JsonIgnore
+    public List<String> getReport() {
+        synchronized (this.report) {
+            return new ArrayList<>(this.report);
+        }
+    }
+
+    private static boolean isSucceeded(final String row) {
+        return row.endsWith(": OK") || row.endsWith(": UPDATED")
+                || row.endsWith(": SKIP already exists") || row.endsWith(": SKIP unchanged");
+    }
+}
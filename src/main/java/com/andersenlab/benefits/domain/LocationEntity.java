@@ -18,6 +18,7 @@ import java.util.Set;
 @EqualsAndHashCode
 @NoArgsConstructor
 @AllArgsConstructor()
+@Cacheable
 @org.hibernate.annotations.Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class LocationEntity {
     @Schema(description = "Identifier", type = "int64", minimum = "1")
@@ -39,6 +40,14 @@ public class LocationEntity {
     @Column
     private String city;
 
+    /**
+     * Lower-case city generated by the database for case-insensitive search
+     */
+    @EqualsAndHashCode.Exclude
+    @JsonIgnore
+    @Column(name = "city_lower", insertable = false, updatable = false)
+    private String cityLower;
+
     @EqualsAndHashCode.Exclude
     @JsonIgnore
     @ManyToMany(mappedBy = "area", fetch = FetchType.LAZY)
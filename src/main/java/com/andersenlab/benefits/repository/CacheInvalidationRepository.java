@@ -0,0 +1,87 @@
+package com.andersenlab.benefits.repository;
+
+import com.andersenlab.benefits.domain.EntityChangedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Array;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Outbox of changes of cached entities. A row is inserted in the transaction of the change,
+ * the trigger of the table notifies the channel {@value #CHANNEL} of its id when the transaction is committed.
+ *
+ * @version 1.0
+ */
+@Repository
+public class CacheInvalidationRepository {
+    public static final String CHANNEL = "cache_invalidation";
+
+    private static final String COLUMNS = "SELECT id, node, entity_type, entity_ids FROM cache_invalidations";
+
+    private static final RowMapper<Invalidation> ROW_MAPPER = (rs, rowNum) -> {
+        final Array ids = rs.getArray("entity_ids");
+        return new Invalidation(rs.getLong("id"), rs.getString("node"),
+                EntityChangedEvent.Type.valueOf(rs.getString("entity_type")),
+                Objects.isNull(ids) ? null : Arrays.asList((Long[]) ids.getArray()));
+    };
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    /**
+     * @param id id of row
+     * @param node node which changed the entities
+     * @param type type of changed entities
+     * @param ids ids of changed entities, null if any entity of the type may have changed
+     */
+    public record Invalidation(long id, String node, EntityChangedEvent.Type type, List<Long> ids) {
+
+        public EntityChangedEvent toEvent() {
+            return new EntityChangedEvent(this.type, this.ids);
+        }
+    }
+
+    @Autowired
+    public CacheInvalidationRepository(final NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Joins the current transaction, so the row is committed or rolled back with the change
+     */
+    public void insert(final String node, final EntityChangedEvent event) {
+        this.jdbcTemplate.update("""
+                        INSERT INTO cache_invalidations (node, entity_type, entity_ids)
+                        VALUES (:node, :type, :ids)""",
+                new MapSqlParameterSource()
+                        .addValue("node", node)
+                        .addValue("type", event.type().name())
+                        .addValue("ids", event.isAll() ? null : event.ids().toArray(Long[]::new)));
+    }
+
+    public List<Invalidation> findByIds(final Collection<Long> ids) {
+        return this.jdbcTemplate.query(COLUMNS + " WHERE id IN (:ids) ORDER BY id",
+                new MapSqlParameterSource("ids", ids), ROW_MAPPER);
+    }
+
+    public List<Invalidation> findCreatedSince(final Instant since) {
+        return this.jdbcTemplate.query(COLUMNS + " WHERE created_at >= :since ORDER BY id",
+                new MapSqlParameterSource("since", Timestamp.from(since)), ROW_MAPPER);
+    }
+
+    /**
+     * @return number of deleted rows
+     */
+    public int deleteCreatedBefore(final Instant before) {
+        return this.jdbcTemplate.update("DELETE FROM cache_invalidations WHERE created_at < :before",
+                new MapSqlParameterSource("before", Timestamp.from(before)));
+    }
+}
@@ -0,0 +1,132 @@
+package com.andersenlab.benefits.repository;
+
+import com.andersenlab.benefits.domain.DiscountFilter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Counts of discounts found by the filter, grouped by category, city and bucket of size, with ids of the requested page.
+ * Discounts are filtered once and all groups and the page are taken from the same result in one query,
+ * the same way as {@link DiscountSpec#getByFilter(DiscountFilter)} filters them.
+ *
+ * @version 1.0
+ */
+@Repository
+public class DiscountFacetRepository {
+    private static final String FACET_QUERY = """
+            WITH matched AS MATERIALIZED (
+                SELECT d.id, d.size_max, d.start_date FROM discounts d WHERE %s)
+            SELECT 'total' AS facet, NULL AS value, count(*) AS number FROM matched
+            UNION ALL
+            SELECT 'category', c.title, count(*) FROM matched m
+                JOIN category_discount cd ON cd.discount_id = m.id
+                JOIN categories c ON c.id = cd.category_id
+                GROUP BY c.title
+            UNION ALL
+            SELECT 'city', l.city, count(DISTINCT m.id) FROM matched m
+                JOIN location_discount ld ON ld.discount_id = m.id
+                JOIN locations l ON l.id = ld.location_id
+                GROUP BY l.city
+            UNION ALL
+            SELECT 'size', CASE
+                    WHEN m.size_max < 10 THEN '0-9'
+                    WHEN m.size_max < 20 THEN '10-19'
+                    WHEN m.size_max < 30 THEN '20-29'
+                    WHEN m.size_max < 50 THEN '30-49'
+                    ELSE '50-100' END, count(*) FROM matched m
+                GROUP BY 2
+            UNION ALL
+            SELECT 'item', p.id::text, row_number() OVER () FROM (
+                SELECT m.id FROM matched m ORDER BY m.start_date DESC, m.id DESC OFFSET :offset LIMIT :limit) p
+            ORDER BY facet, number DESC, value""";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    /**
+     * @param total number of discounts found by the filter
+     * @param categories numbers of found discounts by title of category, the largest first
+     * @param cities numbers of found discounts by city, the largest first
+     * @param sizes numbers of found discounts by bucket of their maximal size, the largest first
+     * @param ids ids of found discounts of the page, the latest first
+     */
+    public record Counts(long total, Map<String, Long> categories, Map<String, Long> cities, Map<String, Long> sizes,
+                         List<Long> ids) {
+    }
+
+    @Autowired
+    public DiscountFacetRepository(final NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * @param filter filters of discounts, null filters are not applied
+     * @param offset number of found discounts before the page
+     * @param limit size of the page
+     * @return counts of discounts found by the filter and ids of the page
+     */
+    public Counts count(final DiscountFilter filter, final long offset, final int limit) {
+        final MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("offset", offset)
+                .addValue("limit", limit);
+        final List<String> conditions = new ArrayList<>();
+        if (!Objects.isNull(filter.category())) {
+            conditions.add("""
+                    EXISTS (SELECT 1 FROM category_discount cd JOIN categories c ON c.id = cd.category_id
+                        WHERE cd.discount_id = d.id AND c.title = :category)""");
+            parameters.addValue("category", filter.category());
+        }
+        if (!Objects.isNull(filter.city())) {
+            conditions.add("""
+                    EXISTS (SELECT 1 FROM location_discount ld JOIN locations l ON l.id = ld.location_id
+                        WHERE ld.discount_id = d.id AND l.city_lower LIKE :city ESCAPE '\\')""");
+            parameters.addValue("city", DiscountSpec.toContainsPattern(filter.city()));
+        }
+        if (!Objects.isNull(filter.type())) {
+            conditions.add("""
+                    (d.type_lower LIKE :type ESCAPE '\\'
+                        OR EXISTS (SELECT 1 FROM company c WHERE c.id = d.company_id AND c.title_lower LIKE :type ESCAPE '\\'))""");
+            parameters.addValue("type", DiscountSpec.toContainsPattern(filter.type()));
+        }
+        if (!Objects.isNull(filter.sizeDiscount())) {
+            conditions.add(":size BETWEEN d.size_min AND d.size_max");
+            parameters.addValue("size", filter.sizeDiscount());
+        }
+        if (!Objects.isNull(filter.activeOn())) {
+            if (!filter.activeOn().isBefore(LocalDate.now())) {
+                conditions.add("NOT d.expired");
+            }
+            conditions.add("d.start_date <= :activeOn AND (d.end_date IS NULL OR d.end_date >= :activeOn)");
+            parameters.addValue("activeOn", Date.valueOf(filter.activeOn()));
+        }
+        final String where = conditions.isEmpty() ? "TRUE" : String.join(" AND ", conditions);
+        final long[] total = new long[1];
+        final Map<String, Long> categories = new LinkedHashMap<>();
+        final Map<String, Long> cities = new LinkedHashMap<>();
+        final Map<String, Long> sizes = new LinkedHashMap<>();
+        // the query orders rows of the page from the last one, so they are put back by position
+        final TreeMap<Long, Long> ids = new TreeMap<>();
+        final RowCallbackHandler handler = rs -> {
+            switch (rs.getString(1)) {
+                case "total" -> total[0] = rs.getLong(3);
+                case "category" -> categories.put(rs.getString(2), rs.getLong(3));
+                case "city" -> cities.put(rs.getString(2), rs.getLong(3));
+                case "item" -> ids.put(rs.getLong(3), Long.valueOf(rs.getString(2)));
+                default -> sizes.put(rs.getString(2), rs.getLong(3));
+            }
+        };
+        this.jdbcTemplate.query(FACET_QUERY.formatted(where), parameters, handler);
+        return new Counts(total[0], categories, cities, sizes, List.copyOf(ids.values()));
+    }
+}
@@ -0,0 +1,112 @@
+package com.andersenlab.benefits.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Ledger of rows imported from partner files. A row is identified by the source of file
+ * and its number, the hash of its fields tells whether it changed since the last import.
+ * Ledger is written in the transaction of imported discounts, so an interrupted import
+ * resumes after its last committed chunk when the file is imported again.
+ *
+ * @version 1.0
+ */
+@Repository
+public class DiscountImportLedgerRepository {
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    /**
+     * @param rowHash hash of fields of the row, null if its discount was expired
+     * @param discountId id of discount imported from the row
+     */
+    public record Entry(String rowHash, Long discountId) {
+    }
+
+    @Autowired
+    public DiscountImportLedgerRepository(final NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * @param source source of file, not null
+     * @return entries of rows imported from the source by number of row
+     */
+    public Map<String, Entry> findBySource(final String source) {
+        final Map<String, Entry> result = new HashMap<>();
+        final RowCallbackHandler handler = rs -> result.put(rs.getString(1), new Entry(rs.getString(2), rs.getLong(3)));
+        this.jdbcTemplate.query("SELECT number, row_hash, discount_id FROM discount_import_ledger WHERE source = :source",
+                new MapSqlParameterSource("source", source), handler);
+        return result;
+    }
+
+    /**
+     * Marks rows as seen by the import, so their discounts are not expired
+     *
+     * @param numbers numbers of rows found in file
+     */
+    public void markSeen(final String source, final UUID importId, final Collection<String> numbers) {
+        if (numbers.isEmpty()) {
+            return;
+        }
+        this.jdbcTemplate.update("""
+                        UPDATE discount_import_ledger SET import_id = :importId
+                        WHERE source = :source AND number IN (:numbers)""",
+                new MapSqlParameterSource()
+                        .addValue("source", source)
+                        .addValue("importId", importId)
+                        .addValue("numbers", numbers));
+    }
+
+    /**
+     * Stores entries of imported rows, replacing entries of the same numbers
+     *
+     * @param entries entries by number of row
+     */
+    public void save(final String source, final UUID importId, final Map<String, Entry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        this.jdbcTemplate.batchUpdate("""
+                        INSERT INTO discount_import_ledger (source, number, row_hash, discount_id, import_id, updated_at)
+                        VALUES (:source, :number, :rowHash, :discountId, :importId, now())
+                        ON CONFLICT (source, number) DO UPDATE
+                        SET row_hash = excluded.row_hash, discount_id = excluded.discount_id,
+                            import_id = excluded.import_id, updated_at = excluded.updated_at""",
+                entries.entrySet().stream().map(entry -> new MapSqlParameterSource()
+                        .addValue("source", source)
+                        .addValue("number", entry.getKey())
+                        .addValue("rowHash", entry.getValue().rowHash())
+                        .addValue("discountId", entry.getValue().discountId())
+                        .addValue("importId", importId))
+                        .toArray(MapSqlParameterSource[]::new));
+    }
+
+    /**
+     * Expires discounts of rows which were not seen by the import, the ones without end date included.
+     * Their entries lose the hash, so the rows are updated when they come back.
+     *
+     * @return number of expired discounts
+     */
+    @Transactional
+    public int expireMissing(final String source, final UUID importId) {
+        return this.jdbcTemplate.update("""
+                        WITH missing AS (
+                            UPDATE discount_import_ledger SET row_hash = NULL, updated_at = now()
+                            WHERE source = :source AND import_id <> :importId AND row_hash IS NOT NULL
+                            RETURNING discount_id)
+                        UPDATE discounts SET end_date = current_date
+                        WHERE id IN (SELECT discount_id FROM missing) AND (end_date IS NULL OR end_date > current_date)""",
+                new MapSqlParameterSource()
+                        .addValue("source", source)
+                        .addValue("importId", importId));
+    }
+}
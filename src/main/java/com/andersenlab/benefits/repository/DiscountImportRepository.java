@@ -0,0 +1,276 @@
+package com.andersenlab.benefits.repository;
+
+import com.andersenlab.benefits.domain.CategoryEntity;
+import com.andersenlab.benefits.domain.CompanyEntity;
+import com.andersenlab.benefits.domain.DiscountEntity;
+import com.andersenlab.benefits.domain.LocationEntity;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.IncorrectUpdateSemanticsDataAccessException;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Plain JDBC access used by bulk import of {@link DiscountEntity}.
+ * Rows are written with JDBC batching and bypass the persistence context,
+ * so imports do not have to hydrate the whole discounts table.
+ *
+ * @version 1.0
+ */
+@Repository
+public class DiscountImportRepository {
+    private final DataSource dataSource;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public DiscountImportRepository(final DataSource dataSource, final NamedParameterJdbcTemplate jdbcTemplate) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Looks up content hashes with the unique index of discounts.
+     *
+     * @param contentHashes hashes of discounts to import
+     * @return those of given hashes which are already stored
+     */
+    public Set<String> findContentHashes(final Collection<String> contentHashes) {
+        if (contentHashes.isEmpty()) {
+            return new HashSet<>();
+        }
+        return new HashSet<>(this.jdbcTemplate.queryForList(
+                "SELECT content_hash FROM discounts WHERE content_hash IN (:hashes)",
+                new MapSqlParameterSource("hashes", contentHashes), String.class));
+    }
+
+    /**
+     * @param titles titles of companies
+     * @return ids of stored companies by title, the first created for duplicated titles
+     */
+    public Map<String, Long> findCompanyIds(final Collection<String> titles) {
+        final Map<String, Long> result = new HashMap<>();
+        if (titles.isEmpty()) {
+            return result;
+        }
+        final RowCallbackHandler handler = rs -> result.put(rs.getString(1), rs.getLong(2));
+        this.jdbcTemplate.query("SELECT title, min(id) FROM company WHERE title IN (:titles) GROUP BY title",
+                new MapSqlParameterSource("titles", titles), handler);
+        return result;
+    }
+
+    /**
+     * Stores given discounts in one transaction. The whole list is sent in JDBC batches under a savepoint,
+     * if it fails discounts are stored one by one, each under its own savepoint. So a failed discount
+     * is rolled back together with the company created for it and does not abort the others.
+     * Discounts with id replace stored ones in place, together with their locations and categories.
+     * Ids of rolled back companies and new discounts are reset.
+     *
+     * @param discounts new or changed discounts with resolved locations and categories, not null
+     * @return errors in the order of given discounts, null for stored ones
+     */
+    @Transactional
+    public List<DataAccessException> saveDiscounts(final List<DiscountEntity> discounts) {
+        final List<DataAccessException> errors = new ArrayList<>(Collections.nCopies(discounts.size(), null));
+        if (discounts.isEmpty()) {
+            return errors;
+        }
+        final Connection connection = DataSourceUtils.getConnection(this.dataSource);
+        try {
+            final DataAccessException batchError = insertUnderSavepoint(connection, discounts);
+            if (discounts.size() == 1) {
+                errors.set(0, batchError);
+            } else if (!Objects.isNull(batchError)) {
+                for (int i = 0; i < discounts.size(); i++) {
+                    errors.set(i, insertUnderSavepoint(connection, List.of(discounts.get(i))));
+                }
+            }
+            return errors;
+        } finally {
+            DataSourceUtils.releaseConnection(connection, this.dataSource);
+        }
+    }
+
+    private DataAccessException insertUnderSavepoint(final Connection connection, final List<DiscountEntity> discounts) {
+        final Set<CompanyEntity> newCompanies = new LinkedHashSet<>();
+        discounts.stream().map(DiscountEntity::getCompany)
+                .filter(company -> Objects.isNull(company.getId()))
+                .forEach(newCompanies::add);
+        final List<DiscountEntity> newDiscounts = discounts.stream()
+                .filter(discount -> Objects.isNull(discount.getId())).toList();
+        final Savepoint savepoint;
+        try {
+            savepoint = connection.setSavepoint();
+        } catch (final SQLException ex) {
+            throw translate("SAVEPOINT", ex);
+        }
+        try {
+            insert(newCompanies, newDiscounts, discounts);
+        } catch (final DataAccessException ex) {
+            try {
+                connection.rollback(savepoint);
+            } catch (final SQLException rollbackEx) {
+                throw translate("ROLLBACK TO SAVEPOINT", rollbackEx);
+            }
+            newCompanies.forEach(company -> company.setId(null));
+            newDiscounts.forEach(discount -> discount.setId(null));
+            return ex;
+        }
+        try {
+            connection.releaseSavepoint(savepoint);
+        } catch (final SQLException ex) {
+            throw translate("RELEASE SAVEPOINT", ex);
+        }
+        return null;
+    }
+
+    private void insert(final Set<CompanyEntity> newCompanies, final List<DiscountEntity> newDiscounts,
+                        final List<DiscountEntity> discounts) {
+        final List<DiscountEntity> changedDiscounts = discounts.stream()
+                .filter(discount -> !Objects.isNull(discount.getId())).toList();
+        saveCompanies(newCompanies);
+        final List<Long> ids = nextIds("discount_id", newDiscounts.size());
+        for (int i = 0; i < newDiscounts.size(); i++) {
+            newDiscounts.get(i).setId(ids.get(i));
+        }
+        discounts.forEach(DiscountEntity::updateContentHash);
+        this.jdbcTemplate.batchUpdate("""
+                        INSERT INTO discounts (id, company_id, type, description, discount_condition, size_min, size_max,
+                                               discount_type, start_date, end_date, image, content_hash)
+                        VALUES (:id, :companyId, :type, :description, :condition, :sizeMin, :sizeMax,
+                                :discountType, :dateBegin, :dateFinish, :image, :contentHash)""",
+                newDiscounts.stream().map(DiscountImportRepository::toParameters).toArray(MapSqlParameterSource[]::new));
+        if (!changedDiscounts.isEmpty()) {
+            update(changedDiscounts);
+        }
+        final List<MapSqlParameterSource> locations = new ArrayList<>();
+        final List<MapSqlParameterSource> categories = new ArrayList<>();
+        discounts.forEach(discount -> {
+            for (final LocationEntity location : discount.getArea()) {
+                locations.add(new MapSqlParameterSource()
+                        .addValue("discountId", discount.getId())
+                        .addValue("linkedId", location.getId()));
+            }
+            for (final CategoryEntity category : discount.getCategories()) {
+                categories.add(new MapSqlParameterSource()
+                        .addValue("discountId", discount.getId())
+                        .addValue("linkedId", category.getId()));
+            }
+        });
+        this.jdbcTemplate.batchUpdate("INSERT INTO location_discount (discount_id, location_id) VALUES (:discountId, :linkedId)",
+                locations.toArray(MapSqlParameterSource[]::new));
+        this.jdbcTemplate.batchUpdate("INSERT INTO category_discount (discount_id, category_id) VALUES (:discountId, :linkedId)",
+                categories.toArray(MapSqlParameterSource[]::new));
+    }
+
+    private void update(final List<DiscountEntity> discounts) {
+        final int[] counts = this.jdbcTemplate.batchUpdate("""
+                        UPDATE discounts SET company_id = :companyId, type = :type, description = :description,
+                                             discount_condition = :condition, size_min = :sizeMin, size_max = :sizeMax,
+                                             discount_type = :discountType, start_date = :dateBegin, end_date = :dateFinish,
+                                             image = :image, content_hash = :contentHash
+                        WHERE id = :id""",
+                discounts.stream().map(DiscountImportRepository::toParameters).toArray(MapSqlParameterSource[]::new));
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                throw new IncorrectUpdateSemanticsDataAccessException("Discount with id " + discounts.get(i).getId() + " was not found");
+            }
+        }
+        final MapSqlParameterSource ids = new MapSqlParameterSource("ids",
+                discounts.stream().map(DiscountEntity::getId).toList());
+        this.jdbcTemplate.update("DELETE FROM location_discount WHERE discount_id IN (:ids)", ids);
+        this.jdbcTemplate.update("DELETE FROM category_discount WHERE discount_id IN (:ids)", ids);
+    }
+
+    /**
+     * Titles are locked till the end of the transaction and looked up again, so a company created
+     * meanwhile by an import of another node or by COPY is reused, not created twice
+     */
+    private void saveCompanies(final Collection<CompanyEntity> companies) {
+        if (companies.isEmpty()) {
+            return;
+        }
+        final List<String> titles = companies.stream().map(CompanyEntity::getTitle).toList();
+        this.jdbcTemplate.execute("SELECT lock_company_titles(ARRAY[:titles]::text[])",
+                new MapSqlParameterSource("titles", titles), PreparedStatement::execute);
+        final Map<String, Long> storedIds = findCompanyIds(titles);
+        final List<CompanyEntity> newCompanies = new ArrayList<>(companies.size());
+        for (final CompanyEntity company : companies) {
+            final Long id = storedIds.get(company.getTitle());
+            if (Objects.isNull(id)) {
+                newCompanies.add(company);
+            } else {
+                company.setId(id);
+            }
+        }
+        if (newCompanies.isEmpty()) {
+            return;
+        }
+        final List<Long> ids = nextIds("company_id", newCompanies.size());
+        int i = 0;
+        for (final CompanyEntity company : newCompanies) {
+            company.setId(ids.get(i++));
+        }
+        this.jdbcTemplate.batchUpdate("""
+                        INSERT INTO company (id, title, description, address, phone, link)
+                        VALUES (:id, :title, :description, :address, :phone, :link)""",
+                newCompanies.stream().map(company -> new MapSqlParameterSource()
+                        .addValue("id", company.getId())
+                        .addValue("title", company.getTitle())
+                        .addValue("description", company.getDescription())
+                        .addValue("address", company.getAddress())
+                        .addValue("phone", company.getPhone())
+                        .addValue("link", company.getLink()))
+                        .toArray(MapSqlParameterSource[]::new));
+    }
+
+    private DataAccessException translate(final String task, final SQLException ex) {
+        return Objects.requireNonNull(this.jdbcTemplate.getJdbcTemplate().getExceptionTranslator()
+                .translate(task, null, ex));
+    }
+
+    private List<Long> nextIds(final String sequence, final int count) {
+        return this.jdbcTemplate.queryForList("SELECT nextval('" + sequence + "') FROM generate_series(1, :count)",
+                new MapSqlParameterSource("count", count), Long.class);
+    }
+
+    private static MapSqlParameterSource toParameters(final DiscountEntity discount) {
+        return new MapSqlParameterSource()
+                .addValue("id", discount.getId())
+                .addValue("companyId", discount.getCompany().getId())
+                .addValue("type", discount.getType())
+                .addValue("description", discount.getDescription())
+                .addValue("condition", discount.getDiscount_condition())
+                .addValue("sizeMin", discount.getSizeMin())
+                .addValue("sizeMax", discount.getSizeMax())
+                .addValue("discountType", discount.getDiscount_type().name())
+                .addValue("dateBegin", toSqlDate(discount.getDateBegin()))
+                .addValue("dateFinish", toSqlDate(discount.getDateFinish()))
+                .addValue("image", discount.getImageDiscount())
+                .addValue("contentHash", discount.getContentHash());
+    }
+
+    private static Date toSqlDate(final java.util.Date date) {
+        return Objects.isNull(date) ? null : new Date(date.getTime());
+    }
+}
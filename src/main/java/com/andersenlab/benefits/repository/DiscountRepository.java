@@ -1,10 +1,125 @@
 package com.andersenlab.benefits.repository;
 
 import com.andersenlab.benefits.domain.DiscountEntity;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
 
 @Repository
-public interface DiscountRepository extends JpaRepository<DiscountEntity, Long>, JpaSpecificationExecutor<DiscountEntity> {
+public interface DiscountRepository extends JpaRepository<DiscountEntity, Long>, JpaSpecificationExecutor<DiscountEntity>,
+        DiscountRepositoryCustom {
+
+    /**
+     * Listings join the company, locations and categories are loaded by batches, see {@link DiscountEntity#FETCH_BATCH_SIZE}
+     */
+    @Override
+    @EntityGraph(attributePaths = "company", type = EntityGraph.EntityGraphType.LOAD)
+    Page<DiscountEntity> findAll(final Pageable pageable);
+
+    @Override
+    @EntityGraph(attributePaths = "company", type = EntityGraph.EntityGraphType.LOAD)
+    Page<DiscountEntity> findAll(final Specification<DiscountEntity> spec, final Pageable pageable);
+
+    @Override
+    @EntityGraph(attributePaths = "company", type = EntityGraph.EntityGraphType.LOAD)
+    List<DiscountEntity> findAll(final Specification<DiscountEntity> spec);
+
+    Optional<DiscountEntity> findByContentHash(final String contentHash);
+
+    /**
+     * @param query text of tsquery made by {@link DiscountSpec#toSearchQuery(String, String)}
+     * @return discounts matching the query, the most relevant first
+     */
+    @Query(value = """
+            SELECT d.* FROM discounts d
+            WHERE discount_search_matches(d.search_vector, :query)
+            ORDER BY ts_rank(d.search_vector, discount_search_query(:query)) DESC, d.id""",
+            countQuery = "SELECT count(*) FROM discounts d WHERE discount_search_matches(d.search_vector, :query)",
+            nativeQuery = true)
+    Page<DiscountEntity> findBySearch(@Param("query") final String query, final Pageable pageable);
+
+    /**
+     * The same as {@link #findBySearch(String, Pageable)} for discounts active on the date
+     */
+    @Query(value = """
+            SELECT d.* FROM discounts d
+            WHERE discount_search_matches(d.search_vector, :query)
+              AND d.start_date <= :activeOn AND (d.end_date IS NULL OR d.end_date >= :activeOn)
+            ORDER BY ts_rank(d.search_vector, discount_search_query(:query)) DESC, d.id""",
+            countQuery = """
+                    SELECT count(*) FROM discounts d
+                    WHERE discount_search_matches(d.search_vector, :query)
+                      AND d.start_date <= :activeOn AND (d.end_date IS NULL OR d.end_date >= :activeOn)""",
+            nativeQuery = true)
+    Page<DiscountEntity> findActiveBySearch(@Param("query") final String query,
+                                            @Param("activeOn") final LocalDate activeOn,
+                                            final Pageable pageable);
+
+    /**
+     * Finds discounts of the category with the size in their range, the most similar first.
+     * Similarity is the sum of: 2 / number of categories of discount, so discounts of the category only come first;
+     * share of locations of discount in the city; 2 * proximity of the size to the middle of the range of discount;
+     * freshness 30 / (30 + days since the beginning). Only the first discounts are returned by the database.
+     * The in-memory catalog ranks discounts by the same score.
+     *
+     * @param city part of name of city of discount, null for any city
+     * @param activeOn date on which discounts must be active, null for any date
+     * @param limit number of discounts to return
+     */
+    default List<DiscountEntity> findSimilar(final String category, final int size, final String city,
+                                             final LocalDate activeOn, final int limit) {
+        return findSimilarByCityPattern(category, size, Objects.isNull(city) ? "%" : DiscountSpec.toContainsPattern(city),
+                Objects.isNull(activeOn), Objects.requireNonNullElse(activeOn, LocalDate.now()), limit);
+    }
+
+    @Query(value = """
+            SELECT d.* FROM discounts d
+            WHERE :size BETWEEN d.size_min AND d.size_max
+              AND EXISTS (SELECT 1 FROM category_discount cd JOIN categories c ON c.id = cd.category_id
+                          WHERE cd.discount_id = d.id AND c.title = :category)
+              AND EXISTS (SELECT 1 FROM location_discount ld JOIN locations l ON l.id = ld.location_id
+                          WHERE ld.discount_id = d.id AND l.city_lower LIKE :city ESCAPE '\\')
+              AND (:anyDate OR d.start_date <= :activeOn AND (d.end_date IS NULL OR d.end_date >= :activeOn))
+            ORDER BY 2.0 / (SELECT count(*) FROM category_discount cd WHERE cd.discount_id = d.id)
+                + (SELECT CAST(count(*) FILTER (WHERE l.city_lower LIKE :city ESCAPE '\\') AS double precision) / count(*)
+                   FROM location_discount ld JOIN locations l ON l.id = ld.location_id WHERE ld.discount_id = d.id)
+                + 2 * (1 - abs(:size - (d.size_min + d.size_max) / 2.0) / 100)
+                + 30.0 / (30 + GREATEST(current_date - d.start_date, 0)) DESC, d.id
+            LIMIT :limit""",
+            nativeQuery = true)
+    List<DiscountEntity> findSimilarByCityPattern(@Param("category") final String category,
+                                                  @Param("size") final int size,
+                                                  @Param("city") final String cityPattern,
+                                                  @Param("anyDate") final boolean anyDate,
+                                                  @Param("activeOn") final LocalDate activeOn,
+                                                  @Param("limit") final int limit);
+
+    /**
+     * Marks discounts finished before today as expired, a batch at a time,
+     * so the sweep does not lock the whole table
+     *
+     * @param batchSize maximal number of discounts to mark
+     * @return number of marked discounts
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            UPDATE discounts SET expired = true
+            WHERE id IN (SELECT id FROM discounts WHERE NOT expired AND end_date < current_date
+                         LIMIT :batchSize FOR UPDATE SKIP LOCKED)""",
+            nativeQuery = true)
+    int expireFinished(@Param("batchSize") final int batchSize);
 }
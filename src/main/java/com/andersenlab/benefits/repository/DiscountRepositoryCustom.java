@@ -0,0 +1,30 @@
+package com.andersenlab.benefits.repository;
+
+import com.andersenlab.benefits.domain.DiscountEntity;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+/**
+ * Queries of {@link DiscountRepository} which are not derived by Spring Data.
+ *
+ * @version 1.0
+ */
+public interface DiscountRepositoryCustom {
+
+    /**
+     * Reads the first discounts matching the specification, unlike paged queries it does not count them
+     *
+     * @param limit maximum number of discounts to return
+     */
+    List<DiscountEntity> findAll(final Specification<DiscountEntity> spec, final Sort sort, final int limit);
+
+    /**
+     * Reads discounts held by the second-level cache from it, the rest by one query
+     *
+     * @param ids ids of discounts
+     * @return found discounts in the order of ids, discounts deleted since are skipped
+     */
+    List<DiscountEntity> findAllInOrder(final List<Long> ids);
+}
@@ -0,0 +1,70 @@
+package com.andersenlab.benefits.repository;
+
+import com.andersenlab.benefits.domain.DiscountEntity;
+import com.andersenlab.benefits.domain.DiscountEntity_;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import javax.persistence.Cache;
+import javax.persistence.EntityGraph;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import static org.springframework.data.jpa.repository.query.QueryUtils.toOrders;
+
+public class DiscountRepositoryCustomImpl implements DiscountRepositoryCustom {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<DiscountEntity> findAll(final Specification<DiscountEntity> spec, final Sort sort, final int limit) {
+        final CriteriaBuilder criteriaBuilder = this.entityManager.getCriteriaBuilder();
+        final CriteriaQuery<DiscountEntity> query = criteriaBuilder.createQuery(DiscountEntity.class);
+        final Root<DiscountEntity> root = query.from(DiscountEntity.class);
+        final Predicate predicate = spec.toPredicate(root, query, criteriaBuilder);
+        if (!Objects.isNull(predicate)) {
+            query.where(predicate);
+        }
+        query.select(root).orderBy(toOrders(sort, root, criteriaBuilder));
+        // the same fetch plan as of paged listings of DiscountRepository
+        final EntityGraph<DiscountEntity> graph = this.entityManager.createEntityGraph(DiscountEntity.class);
+        graph.addAttributeNodes(DiscountEntity_.COMPANY);
+        return this.entityManager.createQuery(query)
+                .setHint("javax.persistence.loadgraph", graph)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public List<DiscountEntity> findAllInOrder(final List<Long> ids) {
+        final Cache cache = this.entityManager.getEntityManagerFactory().getCache();
+        final List<Long> missing = ids.stream()
+                .filter(id -> !cache.contains(DiscountEntity.class, id))
+                .toList();
+        final Map<Long, DiscountEntity> loaded = new HashMap<>();
+        if (!missing.isEmpty()) {
+            this.entityManager.createQuery(
+                            "SELECT d FROM DiscountEntity d LEFT JOIN FETCH d.company WHERE d.id IN :ids", DiscountEntity.class)
+                    .setParameter("ids", missing)
+                    .getResultList()
+                    .forEach(discount -> loaded.put(discount.getId(), discount));
+        }
+        final List<DiscountEntity> discounts = new ArrayList<>(ids.size());
+        for (final Long id : ids) {
+            final DiscountEntity discount = loaded.containsKey(id) ? loaded.get(id) : this.entityManager.find(DiscountEntity.class, id);
+            if (!Objects.isNull(discount)) {
+                discounts.add(discount);
+            }
+        }
+        return discounts;
+    }
+}
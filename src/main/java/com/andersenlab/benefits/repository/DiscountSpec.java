@@ -1,19 +1,52 @@
 package com.andersenlab.benefits.repository;
 
 import com.andersenlab.benefits.domain.CategoryEntity_;
+import com.andersenlab.benefits.domain.CompanyEntity_;
+import com.andersenlab.benefits.domain.DiscountCursor;
 import com.andersenlab.benefits.domain.DiscountEntity;
 import com.andersenlab.benefits.domain.DiscountEntity_;
+import com.andersenlab.benefits.domain.DiscountFilter;
 import com.andersenlab.benefits.domain.LocationEntity_;
-import com.andersenlab.benefits.domain.CompanyEntity_;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Component;
 
 import javax.persistence.criteria.*;
+import java.time.LocalDate;
 import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.regex.MatchResult;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 @Component
 public class DiscountSpec {
+    private static final Pattern SEARCH_WORD = Pattern.compile("[\\p{L}\\p{N}]+");
+    private static final char LIKE_ESCAPE = '\\';
 
+    /**
+     * @return discounts matching all given filters of the search
+     */
+    public static Specification<DiscountEntity> getByFilter(final DiscountFilter filter) {
+        Specification<DiscountEntity> spec = Specification.where(null);
+        if (!Objects.isNull(filter.category())) {
+            spec = spec.and(getByCategory(filter.category()));
+        }
+        if (!Objects.isNull(filter.city())) {
+            spec = spec.and(getByLocation(filter.city())).and(getDistinct());
+        }
+        if (!Objects.isNull(filter.type())) {
+            spec = spec.and(getByTypeOrCompanyTitleSearch(filter.type()));
+        }
+        if (!Objects.isNull(filter.sizeDiscount())) {
+            spec = spec.and(getBySize(filter.sizeDiscount()));
+        }
+        if (!Objects.isNull(filter.activeOn())) {
+            spec = spec.and(getActiveOn(filter.activeOn()));
+        }
+        return spec;
+    }
 
     public static Specification<DiscountEntity> getByCategory(final String category) {
         return (root, query, criteriaBuilder) -> {
@@ -26,7 +59,7 @@ public class DiscountSpec {
     public static Specification<DiscountEntity> getByLocation(final String location) {
         return (root, query, criteriaBuilder) -> {
             final Join<Object, Object> areaJoin = root.join(DiscountEntity_.AREA);
-            return criteriaBuilder.like(areaJoin.get(LocationEntity_.CITY), "%" + location + "%");
+            return criteriaBuilder.like(areaJoin.get(LocationEntity_.CITY_LOWER), toContainsPattern(location), LIKE_ESCAPE);
         };
     }
 
@@ -37,22 +70,122 @@ public class DiscountSpec {
         };
     }
 
-    public static Specification<DiscountEntity> getByType(final String type) {
-        return (root, query, criteriaBuilder) ->
-                criteriaBuilder.like(root.get(DiscountEntity_.TYPE), "%" + type + "%");
-    }
-
-    public static Specification<DiscountEntity> getByCompanyTitle(final String title) {
+    /**
+     * Case-insensitive search of the value anywhere in type or title of company,
+     * served by the trigram indexes on discounts.type_lower and company.title_lower
+     *
+     * @param search part of type or title of company
+     */
+    public static Specification<DiscountEntity> getByTypeOrCompanyTitleSearch(final String search) {
         return (root, query, criteriaBuilder) -> {
-            final Join<Object, Object> companyJoin = root.join(DiscountEntity_.COMPANY);
-            return criteriaBuilder.like(companyJoin.get(CompanyEntity_.TITLE), "%" + title + "%");
+            final Join<Object, Object> companyJoin = root.join(DiscountEntity_.COMPANY, JoinType.LEFT);
+            final String pattern = toContainsPattern(search);
+            return criteriaBuilder.or(criteriaBuilder.like(root.get(DiscountEntity_.TYPE_LOWER), pattern, LIKE_ESCAPE),
+                    criteriaBuilder.like(companyJoin.get(CompanyEntity_.TITLE_LOWER), pattern, LIKE_ESCAPE));
         };
     }
 
+    /**
+     * Makes text of tsquery from words of the search. Only letters and digits are kept,
+     * so the operators of tsquery can not come from the user.
+     *
+     * @param weights weights of the search vector to match, empty for all fields
+     * @return words joined by &amp;, the last one as a prefix, or null if there are no words
+     */
+    public static String toSearchQuery(final String search, final String weights) {
+        if (Objects.isNull(search)) {
+            return null;
+        }
+        final List<String> words = SEARCH_WORD.matcher(search).results()
+                .map(MatchResult::group)
+                .toList();
+        if (words.isEmpty()) {
+            return null;
+        }
+        final String label = weights.isEmpty() ? "" : ":" + weights;
+        return words.stream().limit(words.size() - 1L)
+                .map(word -> word + label + " & ")
+                .collect(Collectors.joining()) + words.get(words.size() - 1) + ":*" + weights;
+    }
+
+    /**
+     * @return pattern of LIKE matching the value in any case anywhere in lower-case column,
+     *         served by its trigram index
+     */
+    static String toContainsPattern(final String value) {
+        final String escaped = String.valueOf(value).toLowerCase(Locale.ROOT)
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+        return "%" + escaped + "%";
+    }
+
     public static Specification<DiscountEntity> getBySize(final int sizeDiscount) {
         return (root, query, criteriaBuilder) -> criteriaBuilder.between(
                 root.get(DiscountEntity_.SIZE_MIN),
                 root.get(DiscountEntity_.SIZE_MAX),
                 criteriaBuilder.literal(sizeDiscount));
     }
+
+    /**
+     * Discounts which began by the date and did not finish before it.
+     * From today on expired discounts can not be active, so only the indexes of live discounts are read.
+     */
+    public static Specification<DiscountEntity> getActiveOn(final LocalDate date) {
+        return (root, query, criteriaBuilder) -> {
+            final Date day = java.sql.Date.valueOf(date);
+            final Path<Date> dateFinish = root.get(DiscountEntity_.DATE_FINISH);
+            final Predicate active = criteriaBuilder.and(criteriaBuilder.lessThanOrEqualTo(root.get(DiscountEntity_.DATE_BEGIN), day),
+                    criteriaBuilder.or(criteriaBuilder.isNull(dateFinish),
+                            criteriaBuilder.greaterThanOrEqualTo(dateFinish, day)));
+            if (date.isBefore(LocalDate.now())) {
+                return active;
+            }
+            return criteriaBuilder.and(criteriaBuilder.isFalse(root.get(DiscountEntity_.EXPIRED)), active);
+        };
+    }
+
+    /**
+     * Discounts which did not finish before the date, the ones which begin later included
+     *
+     * @param date today or a later date, expired discounts are not read
+     */
+    public static Specification<DiscountEntity> getNotFinishedBefore(final LocalDate date) {
+        return (root, query, criteriaBuilder) -> {
+            final Path<Date> dateFinish = root.get(DiscountEntity_.DATE_FINISH);
+            return criteriaBuilder.and(criteriaBuilder.isFalse(root.get(DiscountEntity_.EXPIRED)),
+                    criteriaBuilder.or(criteriaBuilder.isNull(dateFinish),
+                            criteriaBuilder.greaterThanOrEqualTo(dateFinish, java.sql.Date.valueOf(date))));
+        };
+    }
+
+    /**
+     * Discounts after the cursor in the order by {@link DiscountEntity#getDateBegin()} and id.
+     * The condition on the date alone lets the index on (start_date, id) limit the range of scan.
+     */
+    public static Specification<DiscountEntity> getAfter(final DiscountCursor cursor) {
+        return (root, query, criteriaBuilder) -> {
+            final Path<Date> dateBegin = root.get(DiscountEntity_.DATE_BEGIN);
+            final Path<Long> id = root.get(DiscountEntity_.ID);
+            final Date date = java.sql.Date.valueOf(cursor.dateBegin());
+            if (cursor.direction().isAscending()) {
+                return criteriaBuilder.and(criteriaBuilder.greaterThanOrEqualTo(dateBegin, date),
+                        criteriaBuilder.or(criteriaBuilder.greaterThan(dateBegin, date),
+                                criteriaBuilder.greaterThan(id, cursor.id())));
+            }
+            return criteriaBuilder.and(criteriaBuilder.lessThanOrEqualTo(dateBegin, date),
+                    criteriaBuilder.or(criteriaBuilder.lessThan(dateBegin, date),
+                            criteriaBuilder.lessThan(id, cursor.id())));
+        };
+    }
+
+    /**
+     * Removes duplicates of discounts which have several matching locations or categories
+     */
+    public static Specification<DiscountEntity> getDistinct() {
+        return (root, query, criteriaBuilder) -> {
+            query.distinct(true);
+            return null;
+        };
+    }
 }
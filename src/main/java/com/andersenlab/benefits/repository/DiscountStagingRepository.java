@@ -0,0 +1,271 @@
+package com.andersenlab.benefits.repository;
+
+import com.andersenlab.benefits.domain.CompanyEntity;
+import com.andersenlab.benefits.domain.DiscountEntity;
+import com.andersenlab.benefits.domain.DiscountType;
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.ReflectionUtils;
+
+import javax.sql.DataSource;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.Size;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Bulk import of {@link DiscountEntity} through the unlogged staging table.
+ * Rows of CSV file are streamed by COPY, then checked, resolved and merged
+ * into discounts with set-based statements. Rows which fail a check keep the error
+ * as their result, checks of the batch import are repeated in the same order.
+ *
+ * @version 1.0
+ */
+@Repository
+public class DiscountStagingRepository {
+    private static final String SIZE_PATTERN = "'^[+-]?\\d{1,9}$'";
+    private static final String START_DATE_FALLBACK = "date_trunc('year', current_date)::date";
+    // a discount without an end date does not end
+    private static final String END_DATE_FALLBACK = "NULL::date";
+
+    private static final List<FieldCheck> COMPANY_CHECKS = List.of(
+            FieldCheck.of("company_title", CompanyEntity.class, "title"),
+            FieldCheck.of("company_description", CompanyEntity.class, "description"),
+            FieldCheck.of("company_address", CompanyEntity.class, "address"),
+            FieldCheck.of("company_phone", CompanyEntity.class, "phone"),
+            FieldCheck.of("links", CompanyEntity.class, "link"));
+    private static final List<FieldCheck> DISCOUNT_CHECKS = List.of(
+            FieldCheck.of("type", DiscountEntity.class, "type"),
+            FieldCheck.of("discount_description", DiscountEntity.class, "description"),
+            FieldCheck.of("discount_condition", DiscountEntity.class, "discount_condition"),
+            FieldCheck.of("image", DiscountEntity.class, "imageDiscount"));
+
+    private final DataSource dataSource;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public DiscountStagingRepository(final DataSource dataSource, final NamedParameterJdbcTemplate jdbcTemplate) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Loads discounts in one transaction.
+     *
+     * @param data rows of CSV file without header
+     * @param columns staging columns in the order of fields of CSV file
+     * @param delimiter delimiter of fields
+     * @param encoding name of encoding of data in PostgreSQL
+     * @param importId id of import which marks its staging rows
+     * @return line-by-line result of import in the order of file
+     */
+    @Transactional
+    public List<String> copyDiscounts(final InputStream data, final List<String> columns,
+                                      final char delimiter, final String encoding, final UUID importId) {
+        final MapSqlParameterSource params = new MapSqlParameterSource("importId", importId);
+        copyIn("COPY discount_import_staging (" + String.join(", ", columns) + ") FROM STDIN WITH (FORMAT csv, DELIMITER '"
+                + (delimiter == '\'' ? "''" : String.valueOf(delimiter)) + "', ENCODING '" + encoding + "')", data);
+        this.jdbcTemplate.update("UPDATE discount_import_staging SET import_id = :importId WHERE import_id IS NULL", params);
+        checkRows(params);
+        resolveCompanies(params);
+        skipDuplicates(params);
+        insertDiscounts(params);
+        final List<String> report = this.jdbcTemplate.queryForList("""
+                        SELECT coalesce(number, '') || ': ' || result FROM discount_import_staging
+                        WHERE import_id = :importId ORDER BY line_no""", params, String.class);
+        this.jdbcTemplate.update("DELETE FROM discount_import_staging WHERE import_id = :importId", params);
+        return report;
+    }
+
+    private void checkRows(final MapSqlParameterSource params) {
+        COMPANY_CHECKS.forEach(check -> fail(params, "(" + check.condition()
+                + ") AND NOT EXISTS (SELECT 1 FROM company c WHERE c.title = s.company_title)", check.message()));
+        failNotFound(params, "location", "locations", "city", "'City ' || m.value || ' was not found in database'");
+        failNotFound(params, "category", "categories", "title", "'Category ' || m.value || ' was not found in database'");
+        fail(params, "coalesce(s.min_sizediscount, '') !~ " + SIZE_PATTERN, "'Incorrect discount size ' || coalesce(s.min_sizediscount, '')");
+        fail(params, "coalesce(s.max_sizediscount, '') !~ " + SIZE_PATTERN, "'Incorrect discount size ' || coalesce(s.max_sizediscount, '')");
+        params.addValue("types", Arrays.stream(DiscountType.values()).map(Enum::name).toList());
+        fail(params, "coalesce(s.discount_type, '') NOT IN (:types)", "'Incorrect discount type ' || coalesce(s.discount_type, '')");
+        DISCOUNT_CHECKS.forEach(check -> fail(params, check.condition(), check.message()));
+        final Field sizeMin = ReflectionUtils.findField(DiscountEntity.class, "sizeMin");
+        final Min min = Objects.requireNonNull(sizeMin).getAnnotation(Min.class);
+        final Max max = sizeMin.getAnnotation(Max.class);
+        params.addValue("sizeMin", min.value()).addValue("sizeMax", max.value());
+        fail(params, sizeOf("s.min_sizediscount") + " NOT BETWEEN :sizeMin AND :sizeMax OR "
+                + sizeOf("s.max_sizediscount") + " NOT BETWEEN :sizeMin AND :sizeMax", quote(min.message()));
+    }
+
+    /**
+     * Titles are locked as by the batch import before companies are looked for, so imports running
+     * in parallel do not create the same company twice. Locks are held till the end of the import.
+     */
+    private void resolveCompanies(final MapSqlParameterSource params) {
+        this.jdbcTemplate.execute("""
+                SELECT lock_company_titles(array_agg(DISTINCT company_title)) FROM discount_import_staging
+                WHERE import_id = :importId AND result IS NULL""", params, PreparedStatement::execute);
+        this.jdbcTemplate.update("""
+                INSERT INTO company (id, title, description, address, phone, link)
+                SELECT nextval('company_id'), f.company_title, f.company_description, f.company_address,
+                       f.company_phone, f.links
+                FROM (SELECT DISTINCT ON (company_title) * FROM discount_import_staging
+                      WHERE import_id = :importId AND result IS NULL
+                      ORDER BY company_title, line_no) f
+                WHERE NOT EXISTS (SELECT 1 FROM company c WHERE c.title = f.company_title)""", params);
+        this.jdbcTemplate.update("""
+                UPDATE discount_import_staging s
+                SET company_id = (SELECT min(c.id) FROM company c WHERE c.title = s.company_title)
+                WHERE s.import_id = :importId AND s.result IS NULL""", params);
+        this.jdbcTemplate.update("""
+                UPDATE discount_import_staging s
+                SET content_hash = md5(concat_ws(chr(31), coalesce(s.type, chr(30)),
+                                                 coalesce(s.discount_description, chr(30)),
+                                                 coalesce(s.discount_condition, chr(30)),
+                                                 coalesce((%s)::text, chr(30)), coalesce((%s)::text, chr(30)),
+                                                 coalesce(s.image, chr(30)), coalesce(s.company_id::text, chr(30))))
+                WHERE s.import_id = :importId AND s.result IS NULL"""
+                .formatted(sizeOf("s.min_sizediscount"), sizeOf("s.max_sizediscount")), params);
+    }
+
+    /**
+     * The first row of file with the same content is imported, the rest and those already stored are skipped
+     */
+    private void skipDuplicates(final MapSqlParameterSource params) {
+        this.jdbcTemplate.update("""
+                UPDATE discount_import_staging s SET result = 'SKIP already exists'
+                FROM (SELECT line_no, row_number() OVER (PARTITION BY content_hash ORDER BY line_no) AS rn
+                      FROM discount_import_staging
+                      WHERE import_id = :importId AND result IS NULL) r
+                WHERE s.import_id = :importId AND s.line_no = r.line_no
+                  AND (r.rn > 1 OR EXISTS (SELECT 1 FROM discounts d WHERE d.content_hash = s.content_hash))""", params);
+    }
+
+    private void insertDiscounts(final MapSqlParameterSource params) {
+        this.jdbcTemplate.update("""
+                UPDATE discount_import_staging SET discount_id = nextval('discount_id')
+                WHERE import_id = :importId AND result IS NULL""", params);
+        this.jdbcTemplate.update("""
+                INSERT INTO discounts (id, company_id, type, description, discount_condition, size_min, size_max,
+                                       discount_type, start_date, end_date, image, content_hash)
+                SELECT s.discount_id, s.company_id, s.type, s.discount_description, s.discount_condition, %s, %s,
+                       s.discount_type, discount_import_date(s.start_date, %s), discount_import_date(s.end_date, %s),
+                       s.image, s.content_hash
+                FROM discount_import_staging s
+                WHERE s.import_id = :importId AND s.result IS NULL
+                ORDER BY s.line_no"""
+                .formatted(sizeOf("s.min_sizediscount"), sizeOf("s.max_sizediscount"),
+                        START_DATE_FALLBACK, END_DATE_FALLBACK), params);
+        this.jdbcTemplate.update("""
+                INSERT INTO location_discount (discount_id, location_id)
+                SELECT DISTINCT s.discount_id, l.id
+                FROM discount_import_staging s
+                CROSS JOIN LATERAL unnest(string_to_array(s.location, '|')) AS t(value)
+                JOIN locations l ON l.city = t.value
+                WHERE s.import_id = :importId AND s.result IS NULL""", params);
+        this.jdbcTemplate.update("""
+                INSERT INTO category_discount (discount_id, category_id)
+                SELECT DISTINCT s.discount_id, c.id
+                FROM discount_import_staging s
+                CROSS JOIN LATERAL unnest(string_to_array(s.category, '|')) AS t(value)
+                JOIN categories c ON c.title = t.value
+                WHERE s.import_id = :importId AND s.result IS NULL""", params);
+        this.jdbcTemplate.update("""
+                UPDATE discount_import_staging SET result = 'OK'
+                WHERE import_id = :importId AND result IS NULL""", params);
+    }
+
+    /**
+     * Sets the result of rows without result yet which match the condition
+     *
+     * @param condition SQL condition on staging row aliased as s
+     * @param message SQL expression of the result
+     */
+    private void fail(final MapSqlParameterSource params, final String condition, final String message) {
+        this.jdbcTemplate.update("UPDATE discount_import_staging s SET result = " + message
+                + " WHERE s.import_id = :importId AND s.result IS NULL AND (" + condition + ")", params);
+    }
+
+    /**
+     * Fails rows with the first value of '|'-separated column which is not found in the reference table
+     */
+    private void failNotFound(final MapSqlParameterSource params, final String column,
+                              final String table, final String tableColumn, final String message) {
+        this.jdbcTemplate.update("""
+                UPDATE discount_import_staging s SET result = %4$s
+                FROM (SELECT DISTINCT ON (f.line_no) f.line_no, t.value
+                      FROM discount_import_staging f
+                      CROSS JOIN LATERAL unnest(string_to_array(coalesce(f.%1$s, ''), '|')
+                                                || CASE WHEN coalesce(f.%1$s, '') = '' THEN ARRAY[''] END)
+                                         WITH ORDINALITY AS t(value, n)
+                      WHERE f.import_id = :importId AND f.result IS NULL
+                        AND NOT EXISTS (SELECT 1 FROM %2$s r WHERE r.%3$s = t.value)
+                      ORDER BY f.line_no, t.n) m
+                WHERE s.import_id = :importId AND s.line_no = m.line_no"""
+                .formatted(column, table, tableColumn, message), params);
+    }
+
+    private void copyIn(final String sql, final InputStream data) {
+        final Connection connection = DataSourceUtils.getConnection(this.dataSource);
+        try {
+            connection.unwrap(PGConnection.class).getCopyAPI().copyIn(sql, data);
+        } catch (final SQLException ex) {
+            final DataAccessException translated = Objects.requireNonNull(this.jdbcTemplate.getJdbcTemplate()
+                    .getExceptionTranslator().translate("COPY", sql, ex));
+            throw translated;
+        } catch (final IOException ex) {
+            throw new DataAccessResourceFailureException("Could not read uploaded file", ex);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, this.dataSource);
+        }
+    }
+
+    private static String sizeOf(final String column) {
+        return "(CASE WHEN " + column + " ~ " + SIZE_PATTERN + " THEN " + column + "::int END)";
+    }
+
+    private static String quote(final String value) {
+        return "'" + value.replace("'", "''") + "'";
+    }
+
+    /**
+     * Constraints of entity field repeated for staging column
+     */
+    private record FieldCheck(String column, boolean notBlank, Size size) {
+
+        static FieldCheck of(final String column, final Class<?> entity, final String fieldName) {
+            final Field field = Objects.requireNonNull(ReflectionUtils.findField(entity, fieldName));
+            return new FieldCheck(column, field.isAnnotationPresent(NotBlank.class), field.getAnnotation(Size.class));
+        }
+
+        String condition() {
+            final String blank = this.notBlank ? "trim(coalesce(s." + this.column + ", '')) = ''" : "false";
+            if (Objects.isNull(this.size)) {
+                return blank;
+            }
+            return blank + " OR length(s." + this.column + ") NOT BETWEEN " + this.size.min() + " AND " + this.size.max();
+        }
+
+        /**
+         * Blank value is reported by the size constraint when there is one
+         */
+        String message() {
+            return quote(Objects.isNull(this.size) ? "must not be blank" : this.size.message());
+        }
+    }
+}
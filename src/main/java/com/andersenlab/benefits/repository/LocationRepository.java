@@ -24,7 +24,7 @@ public interface LocationRepository extends JpaRepository<LocationEntity, Long>
     Optional<LocationEntity> findByCountryAndCity(final String country, final String city);
 
     @QueryHints(@QueryHint(name = org.hibernate.annotations.QueryHints.CACHEABLE, value = "true"))
-    Page<LocationEntity> findByCountryAndCityStartsWith(final String country, final String cityMask, final Pageable pageable);
+    Page<LocationEntity> findByCountryAndCityLowerStartsWith(final String country, final String cityMask, final Pageable pageable);
 
     @QueryHints(@QueryHint(name = org.hibernate.annotations.QueryHints.CACHEABLE, value = "true"))
     @Query("FROM LocationEntity loc JOIN FETCH loc.discounts WHERE loc.id = :id")
@@ -1,6 +1,9 @@
 package com.andersenlab.benefits.repository;
 
 import com.andersenlab.benefits.domain.UserEntity;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 import java.util.Optional;
@@ -8,5 +11,9 @@ import java.util.Optional;
 @Repository
 public interface UserRepository extends JpaRepository<UserEntity, Long> {
 
+    @Override
+    @EntityGraph(attributePaths = {"roleEntity", "location"}, type = EntityGraph.EntityGraphType.LOAD)
+    Page<UserEntity> findAll(final Pageable pageable);
+
     Optional<UserEntity> findByLogin(final String login);
 }
\ No newline at end of file
@@ -88,6 +88,12 @@ public class WebSecurityConfig extends KeycloakWebSecurityConfigurerAdapter {
                 .antMatchers(HttpMethod.POST, "/companies").hasAnyRole("MODERATOR")
                 .antMatchers(HttpMethod.PATCH, "/companies/**").hasAnyRole("MODERATOR")
                 .antMatchers(HttpMethod.DELETE, "/companies/**").hasAnyRole("MODERATOR")
+                // imports
+                .antMatchers(HttpMethod.GET, "/imports/**").hasAnyRole("ADMIN", "MODERATOR")
+                // caches
+                .antMatchers(HttpMethod.GET, "/caches").hasRole("ADMIN")
+                .antMatchers(HttpMethod.GET, "/caches/**").hasRole("ADMIN")
+                .antMatchers(HttpMethod.DELETE, "/caches/**").hasRole("ADMIN")
 
                 // swagger
                 .antMatchers(AUTH_WHITELIST).permitAll()
@@ -0,0 +1,30 @@
+package com.andersenlab.benefits.service;
+
+import com.andersenlab.benefits.domain.CacheRegionStatistics;
+import com.andersenlab.benefits.domain.CacheStatistics;
+
+import java.util.List;
+
+/**
+ * An interface for reading statistics of caches of lookups and of regions of the second-level cache of Hibernate.
+ *
+ * @version 1.0
+ */
+public interface CacheService {
+
+    /**
+     * @return statistics of each cache, ordered by name
+     */
+    List<CacheStatistics> getStatistics();
+
+    /**
+     * @return statistics of each region of the second-level cache, ordered by name
+     */
+    List<CacheRegionStatistics> getRegionStatistics();
+
+    /**
+     * @param region name of the region of the second-level cache to be cleared
+     * @throws IllegalStateException if the region is not found
+     */
+    void evictRegion(final String region);
+}
@@ -1,8 +1,11 @@
 package com.andersenlab.benefits.service;
 
+import com.andersenlab.benefits.domain.ImportJob;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.InputStream;
+import java.nio.file.Path;
 import java.util.List;
 
 /***
@@ -15,8 +18,44 @@ public interface CsvDiscountLoaderService {
     /***
      * Method to load list of Discounts from CSV file. Failsafe.
      * @param file MultipartFile file contains contents of Discounts list
-     * @param delimiter string separator which delimits columns of fields (default ";")
+     * @param delimiter single character which delimits columns of fields (default ";")
      * @return List of line-by-line separated result of import Discounts
      */
     List<String> loadDiscountsFromCsv(final MultipartFile file, final String delimiter);
+
+    /***
+     * Method to load list of Discounts from CSV file, plain or compressed to .csv.gz or .zip,
+     * or from the first sheet of .xlsx workbook. Failsafe.
+     * @param file MultipartFile file contains contents of Discounts list
+     * @param delimiter single character which delimits columns of fields (default ";")
+     * @param charset charset of file, null to detect UTF-8 or windows-1251
+     * @return List of line-by-line separated result of import Discounts
+     */
+    List<String> loadDiscountsFromCsv(final MultipartFile file, final String delimiter, final String charset);
+
+    /***
+     * Method to load Discounts from CSV stream reporting progress to given {@link ImportJob}. Failsafe.
+     * Stream is decompressed and decoded by the file name and charset of the job.
+     * @param inputStream stream with contents of Discounts list, closed after the import
+     * @param delimiter single character which delimits columns of fields (default ";")
+     * @param job receives line-by-line separated result of import Discounts
+     */
+    void loadDiscountsFromCsv(final InputStream inputStream, final String delimiter, final ImportJob job);
+
+    /***
+     * Method to load Discounts from the first sheet of .xlsx workbook reporting progress to given {@link ImportJob}.
+     * Sheet has the same columns as CSV file, it is read as a stream. Failsafe.
+     * @param file workbook, not null
+     * @param job receives line-by-line separated result of import Discounts
+     */
+    void loadDiscountsFromXlsx(final Path file, final ImportJob job);
+
+    /***
+     * Method to load Discounts from CSV stream with COPY to the staging table, for large files.
+     * All columns of header must be known, the file must be in UTF-8 or windows-1251.
+     * @param inputStream stream with contents of Discounts list, closed after the import
+     * @param delimiter single character which delimits columns of fields (default ";")
+     * @param job receives line-by-line separated result of import Discounts
+     */
+    void copyDiscountsFromCsv(final InputStream inputStream, final String delimiter, final ImportJob job);
 }
@@ -0,0 +1,38 @@
+package com.andersenlab.benefits.service;
+
+import com.andersenlab.benefits.domain.ImportJob;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.UUID;
+
+/**
+ * Interface for running imports of discounts in background.
+ *
+ * @version 1.0
+ * @see CsvDiscountLoaderService
+ * @see ImportJob
+ */
+@Service
+public interface CsvImportJobService {
+
+    /**
+     * Method to queue import of discounts from CSV file
+     *
+     * @param file MultipartFile file contains contents of Discounts list, plain or compressed to .csv.gz or .zip, not null
+     * @param delimiter single character which delimits columns of fields
+     * @param mode how rows are written to the database, not null
+     * @param source source of file for incremental import, null to import all rows
+     * @param expireMissing whether discounts of rows missing in file are expired, for incremental import only
+     * @param charset charset of file, null to detect UTF-8 or windows-1251
+     * @return queued {@link ImportJob}, error if the queue of imports is full
+     */
+    ImportJob submit(final MultipartFile file, final String delimiter, final ImportJob.Mode mode,
+                     final String source, final boolean expireMissing, final String charset);
+
+    /**
+     * @param id the id of {@link ImportJob}, not null
+     * @return {@link ImportJob} with given id, error if id not found
+     */
+    ImportJob findById(final UUID id);
+}
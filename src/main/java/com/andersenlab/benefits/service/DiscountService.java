@@ -1,11 +1,16 @@
 package com.andersenlab.benefits.service;
 
 import com.andersenlab.benefits.domain.DiscountEntity;
+import com.andersenlab.benefits.domain.DiscountFacets;
+import com.andersenlab.benefits.domain.DiscountFilter;
+import com.andersenlab.benefits.domain.DiscountSlice;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
 import java.util.List;
 
 /**
@@ -25,16 +30,63 @@ public interface DiscountService extends CrudService<DiscountEntity> {
     Page<DiscountEntity> getDiscountsByCriteria(final Specification<DiscountEntity> specificDiscountEntity, final Pageable pageable);
 
     /**
-     * Method to find similar discounts in certain category with similar size
+     * Method to find {@link DiscountEntity} by combined filters
+     *
+     * @param filter filters of discounts, null filters are not applied
+     * @param pageable page of {@link DiscountEntity} sorted by dateBegin or sizeMax and id
+     */
+    Page<DiscountEntity> getDiscountsByFilter(final DiscountFilter filter, final Pageable pageable);
+
+    /**
+     * Method to find {@link DiscountEntity} by words of type, company title, description or condition
+     *
+     * @param search words to search, the last one may be a beginning of word
+     * @param activeOn date on which discounts must be active, null for any date
+     * @return found {@link DiscountEntity}, the most relevant first
+     * @throws IllegalStateException if the search has no words
+     */
+    Page<DiscountEntity> search(final String search, final LocalDate activeOn, final Pageable pageable);
+
+    /**
+     * Method to find {@link DiscountEntity} by criteria part by part, ordered by {@link DiscountEntity#dateBegin} and id.
+     * Unlike pages, the next part is read from the position of the cursor and the discounts are not counted.
+     *
+     * @param specificDiscountEntity entity provide filtering data
+     * @param cursor cursor of the part from the previous result, null for the first part
+     * @param direction direction of the order of the first part, the next parts keep the direction of the cursor
+     * @param size number of {@link DiscountEntity} in the part
+     * @throws IllegalStateException if the cursor is not valid or the size is out of range
+     */
+    DiscountSlice getDiscountsByCursor(final Specification<DiscountEntity> specificDiscountEntity,
+                                       final String cursor,
+                                       final Sort.Direction direction,
+                                       final int size);
+
+    /**
+     * Method to find {@link DiscountEntity} by combined filters with numbers of found discounts
+     * by category, city and size, ordered by {@link DiscountEntity#dateBegin} descending and id
+     *
+     * @param filter filters of discounts, null filters are not applied
+     * @param pageable page of found {@link DiscountEntity} to return, its sort is not used
+     * @return page of found {@link DiscountEntity} with their counts
+     */
+    DiscountFacets getFacets(final DiscountFilter filter, final Pageable pageable);
+
+    /**
+     * Method to find similar discounts in certain category with similar size, the most similar first
      *
      * @param category string with category name in which to search
      * @param sizeDiscount integer which must be between {@link DiscountEntity#sizeMin} and {@link DiscountEntity#sizeMax}
      * @param city is name of City where to search (optional) if certain location needed
+     * @param activeOn date on which discounts must be active, null for any date
      * @param limit number of {@link DiscountEntity} to return
      * @return List of {@link DiscountEntity} suitable to search conditions
+     * @throws IllegalStateException if the limit is out of range
+     * @see com.andersenlab.benefits.repository.DiscountRepository#findSimilar(String, int, String, LocalDate, int)
      */
     List<DiscountEntity> getSimilarDiscounts(final String category,
                                              final Integer sizeDiscount,
                                              final String city,
+                                             final LocalDate activeOn,
                                              final Integer limit);
 }
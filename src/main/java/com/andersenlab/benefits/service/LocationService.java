@@ -5,6 +5,8 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
+import java.util.Optional;
+
 /**
  * Interface for performing operations on a {@link LocationEntity} database.
  * @author Denis Popov
@@ -23,6 +25,13 @@ public interface LocationService extends CrudService<LocationEntity> {
      */
     LocationEntity findByCity(final String country, final String city);
 
+    /***
+     * Method to find {@link LocationEntity} by its name in any country, the found one is cached
+     * @param city name of city to find, not null
+     * @return {@link LocationEntity} corresponding given name from database, empty if the name not found
+     */
+    Optional<LocationEntity> findByCity(final String city);
+
     /***
      * Method to find all {@link LocationEntity} in specified country
      * @param country name of country to get all locations, not null
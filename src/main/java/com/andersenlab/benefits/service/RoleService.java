@@ -21,6 +21,13 @@ public interface RoleService extends CrudService<RoleEntity> {
      */
     RoleEntity update(final Long id, final RoleEntity roleEntity);
 
+    /**
+     * Method to get {@link RoleEntity} by its code, the found one is cached
+     * @param code the code of {@link RoleEntity}, not null
+     * @return {@link RoleEntity} with given code, empty if the code not found
+     */
+    Optional<RoleEntity> findByCode(final String code);
+
     /**
      * Method to get {@link RoleEntity} with EAGER fetch associated {@link UserEntity}
      * @param id the id of {@link RoleEntity} need to load, not null
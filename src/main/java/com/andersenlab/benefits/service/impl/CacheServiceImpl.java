@@ -0,0 +1,91 @@
+package com.andersenlab.benefits.service.impl;
+
+import com.andersenlab.benefits.domain.CacheRegionStatistics;
+import com.andersenlab.benefits.domain.CacheStatistics;
+import com.andersenlab.benefits.domain.DiscountsChangedEvent;
+import com.andersenlab.benefits.service.CacheService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * An implementation for reading statistics of Caffeine caches and of regions of the second-level cache.
+ * Imports write discounts, companies, categories and locations with JDBC past Hibernate,
+ * so all regions are cleared after changes which are not tracked by discount.
+ *
+ * @version 1.0
+ * @see CacheService
+ * @see com.andersenlab.benefits.config.CacheConfig
+ */
+@Service
+public class CacheServiceImpl implements CacheService {
+    private final CacheManager cacheManager;
+    private final EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    public CacheServiceImpl(final CacheManager cacheManager, final EntityManagerFactory entityManagerFactory) {
+        this.cacheManager = cacheManager;
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @Override
+    public List<CacheStatistics> getStatistics() {
+        return this.cacheManager.getCacheNames().stream()
+                .sorted()
+                .map(this.cacheManager::getCache)
+                .filter(Objects::nonNull)
+                .filter(cache -> cache.getNativeCache() instanceof Cache)
+                .map(cache -> {
+                    final Cache<?, ?> nativeCache = (Cache<?, ?>) cache.getNativeCache();
+                    final CacheStats stats = nativeCache.stats();
+                    return new CacheStatistics(cache.getName(), nativeCache.estimatedSize(), stats.hitCount(),
+                            stats.missCount(), stats.hitRate(), stats.evictionCount());
+                })
+                .toList();
+    }
+
+    @Override
+    public List<CacheRegionStatistics> getRegionStatistics() {
+        final Statistics statistics = getSessionFactory().getStatistics();
+        return Arrays.stream(statistics.getSecondLevelCacheRegionNames())
+                .sorted()
+                .map(statistics::getCacheRegionStatistics)
+                .filter(Objects::nonNull)
+                .map(region -> {
+                    final long reads = region.getHitCount() + region.getMissCount();
+                    return new CacheRegionStatistics(region.getRegionName(), region.getHitCount(), region.getMissCount(),
+                            region.getPutCount(), reads == 0 ? 1 : (double) region.getHitCount() / reads);
+                })
+                .toList();
+    }
+
+    @Override
+    public void evictRegion(final String region) {
+        final SessionFactory sessionFactory = getSessionFactory();
+        if (!Arrays.asList(sessionFactory.getStatistics().getSecondLevelCacheRegionNames()).contains(region)) {
+            throw new IllegalStateException("Cache region " + region + " is not found");
+        }
+        sessionFactory.getCache().evictRegion(region);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDiscountsChanged(final DiscountsChangedEvent event) {
+        if (event.isAll()) {
+            getSessionFactory().getCache().evictAllRegions();
+        }
+    }
+
+    private SessionFactory getSessionFactory() {
+        return this.entityManagerFactory.unwrap(SessionFactory.class);
+    }
+}
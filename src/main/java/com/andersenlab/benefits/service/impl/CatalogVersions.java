@@ -0,0 +1,52 @@
+package com.andersenlab.benefits.service.impl;
+
+import com.andersenlab.benefits.domain.CatalogChangedEvent;
+import com.andersenlab.benefits.domain.DiscountsChangedEvent;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Versions of discounts, categories and locations, changed after commit of each change of the table.
+ * Discounts show their categories and locations, so a change which is not tracked by discount,
+ * like an import or a renamed category, changes the versions of all tables.
+ * Versions are local to the node, they stamp what the node keeps and are not shown to clients.
+ *
+ * @version 1.0
+ * @see CatalogChangedEvent
+ * @see DiscountsChangedEvent
+ */
+@Service
+public class CatalogVersions {
+    private final Map<CatalogChangedEvent.Table, AtomicLong> versions = new EnumMap<>(CatalogChangedEvent.Table.class);
+
+    public CatalogVersions() {
+        for (final CatalogChangedEvent.Table table : CatalogChangedEvent.Table.values()) {
+            this.versions.put(table, new AtomicLong());
+        }
+    }
+
+    /**
+     * @return current version of the table
+     */
+    public long get(final CatalogChangedEvent.Table table) {
+        return this.versions.get(table).get();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(final CatalogChangedEvent event) {
+        this.versions.get(event.table()).incrementAndGet();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDiscountsChanged(final DiscountsChangedEvent event) {
+        if (event.isAll()) {
+            this.versions.values().forEach(AtomicLong::incrementAndGet);
+        } else {
+            this.versions.get(CatalogChangedEvent.Table.DISCOUNTS).incrementAndGet();
+        }
+    }
+}
@@ -1,10 +1,17 @@
 package com.andersenlab.benefits.service.impl;
 
+import com.andersenlab.benefits.config.CacheConfig;
+import com.andersenlab.benefits.domain.CatalogChangedEvent;
 import com.andersenlab.benefits.domain.CategoryEntity;
+import com.andersenlab.benefits.domain.DiscountsChangedEvent;
+import com.andersenlab.benefits.domain.EntityChangedEvent;
 import com.andersenlab.benefits.repository.CategoryRepository;
 import com.andersenlab.benefits.service.CategoryService;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -24,14 +31,18 @@ import static com.andersenlab.benefits.service.impl.ValidateUtils.*;
 @Service
 public class CategoryServiceImpl implements CategoryService {
     private final CategoryRepository categoryRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
-    public CategoryServiceImpl(final CategoryRepository categoryRepository) {
+    public CategoryServiceImpl(final CategoryRepository categoryRepository,
+                               final ApplicationEventPublisher eventPublisher) {
         this.categoryRepository = categoryRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     @Override
     @Transactional
+    @CacheEvict(cacheNames = CacheConfig.CATEGORIES, key = "#id")
     public CategoryEntity update(final Long id, final CategoryEntity categoryEntity) {
         final Optional<CategoryEntity> theSameTitle = this.categoryRepository.findByTitle(categoryEntity.getTitle());
         if (theSameTitle.isPresent() && !theSameTitle.get().getId().equals(id)) {
@@ -41,7 +52,11 @@ public class CategoryServiceImpl implements CategoryService {
         BeanUtils.copyProperties(categoryEntity, existingCategory, "id");
         final CategoryEntity validatedCategory = new CategoryEntity(id, existingCategory.getTitle());
         validateEntityFieldsAnnotations(validatedCategory, false);
-        return this.categoryRepository.save(existingCategory);
+        final CategoryEntity savedCategory = this.categoryRepository.save(existingCategory);
+        this.eventPublisher.publishEvent(EntityChangedEvent.of(EntityChangedEvent.Type.CATEGORY, id));
+        // discounts show the category
+        this.eventPublisher.publishEvent(DiscountsChangedEvent.all());
+        return savedCategory;
     }
 
     @Override
@@ -50,6 +65,7 @@ public class CategoryServiceImpl implements CategoryService {
     }
 
     @Override
+    @Cacheable(cacheNames = CacheConfig.CATEGORIES, key = "#id")
     public CategoryEntity findById(final Long id) {
         return this.categoryRepository.findById(id).orElseThrow(
                 () -> new IllegalStateException(errIdNotFoundMessage("category", id)));
@@ -64,10 +80,15 @@ public class CategoryServiceImpl implements CategoryService {
         });
         entity.setId(null);
         validateEntityFieldsAnnotations(entity, true);
-        return this.categoryRepository.save(entity);
+        final CategoryEntity savedCategory = this.categoryRepository.save(entity);
+        this.eventPublisher.publishEvent(EntityChangedEvent.of(EntityChangedEvent.Type.CATEGORY, savedCategory.getId()));
+        this.eventPublisher.publishEvent(new CatalogChangedEvent(CatalogChangedEvent.Table.CATEGORIES));
+        return savedCategory;
     }
 
     @Override
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.CATEGORIES, key = "#id")
     public void delete(final Long id) {
         final CategoryEntity existingCategory = findById(id);
         final Optional<CategoryEntity> categoryEntity = this.findWithAssociatedDiscounts(id);
@@ -75,6 +96,8 @@ public class CategoryServiceImpl implements CategoryService {
             throw new IllegalStateException(errAssociatedEntity("category", "discount"));
         }
         this.categoryRepository.delete(existingCategory);
+        this.eventPublisher.publishEvent(EntityChangedEvent.of(EntityChangedEvent.Type.CATEGORY, id));
+        this.eventPublisher.publishEvent(new CatalogChangedEvent(CatalogChangedEvent.Table.CATEGORIES));
     }
 
     @Override
@@ -0,0 +1,246 @@
+package com.andersenlab.benefits.service.impl;
+
+import com.andersenlab.benefits.config.CacheConfig;
+import com.andersenlab.benefits.domain.CategoryEntity;
+import com.andersenlab.benefits.domain.CompanyEntity;
+import com.andersenlab.benefits.domain.DiscountEntity;
+import com.andersenlab.benefits.domain.DiscountEntity_;
+import com.andersenlab.benefits.domain.DiscountsChangedEvent;
+import com.andersenlab.benefits.domain.EntityChangedEvent;
+import com.andersenlab.benefits.domain.LocationEntity;
+import com.andersenlab.benefits.domain.RoleEntity;
+import com.andersenlab.benefits.repository.CacheInvalidationRepository;
+import com.andersenlab.benefits.repository.CacheInvalidationRepository.Invalidation;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Clears caches of all nodes of the cluster after a change of entities on one of them.
+ * Changes are written to the outbox of {@link CacheInvalidationRepository} before commit of their transactions,
+ * so a rolled back change leaves no row. Every node listens to the notifications of committed rows on its own connection and clears
+ * its caches of the changed entities: Caffeine caches, regions of the second-level cache and,
+ * through {@link DiscountsChangedEvent}, the catalog and versions of listings.
+ * Rows written by this node are skipped, its caches are cleared by the changes themselves.
+ * After the connection is lost rows created since then are read again, clearing is repeatable.
+ *
+ * @version 1.0
+ * @see EntityChangedEvent
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "benefits.cache-invalidation.enabled", havingValue = "true")
+public class ClusterCacheInvalidator {
+    /**
+     * Rows are dated by the start of their transactions, so rows of transactions started
+     * shortly before the connection was lost may be committed after that
+     */
+    private static final Duration REPLAY_MARGIN = Duration.ofMinutes(5);
+
+    private final CacheInvalidationRepository cacheInvalidationRepository;
+    private final DataSource dataSource;
+    private final CacheManager cacheManager;
+    private final EntityManagerFactory entityManagerFactory;
+    private final ApplicationEventPublisher eventPublisher;
+    private final String node = UUID.randomUUID().toString();
+    private final int pollTimeout;
+    private final Duration reconnectDelay;
+    private final Duration retention;
+    private Thread listener;
+
+    @Autowired
+    public ClusterCacheInvalidator(final CacheInvalidationRepository cacheInvalidationRepository,
+                                   final DataSource dataSource,
+                                   final CacheManager cacheManager,
+                                   final EntityManagerFactory entityManagerFactory,
+                                   final ApplicationEventPublisher eventPublisher,
+                                   @Value("${benefits.cache-invalidation.poll-timeout:1s}") final Duration pollTimeout,
+                                   @Value("${benefits.cache-invalidation.reconnect-delay:5s}") final Duration reconnectDelay,
+                                   @Value("${benefits.cache-invalidation.retention:1d}") final Duration retention) {
+        this.cacheInvalidationRepository = cacheInvalidationRepository;
+        this.dataSource = dataSource;
+        this.cacheManager = cacheManager;
+        this.entityManagerFactory = entityManagerFactory;
+        this.eventPublisher = eventPublisher;
+        this.pollTimeout = (int) pollTimeout.toMillis();
+        this.reconnectDelay = reconnectDelay;
+        this.retention = retention;
+    }
+
+    /**
+     * Called within the transaction of the change before its commit, or at once for changes made without one
+     */
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onEntityChanged(final EntityChangedEvent event) {
+        this.cacheInvalidationRepository.insert(this.node, event);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        this.listener = new Thread(this::listen, "cache-invalidation-listener");
+        this.listener.setDaemon(true);
+        this.listener.start();
+        log.info("Node {} listens to cache invalidations", this.node);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (!Objects.isNull(this.listener)) {
+            this.listener.interrupt();
+        }
+    }
+
+    /**
+     * @param ids ids of rows of the outbox
+     */
+    public void receive(final Collection<Long> ids) {
+        this.cacheInvalidationRepository.findByIds(ids).forEach(this::apply);
+    }
+
+    @Scheduled(fixedDelayString = "${benefits.cache-invalidation.cleanup-delay:PT1H}")
+    public void cleanup() {
+        final int deleted = this.cacheInvalidationRepository.deleteCreatedBefore(Instant.now().minus(this.retention));
+        log.debug("{} cache invalidations deleted", deleted);
+    }
+
+    /**
+     * The connection is held for the life of the node, notifications are read from it
+     * by polling with a timeout, the thread stops when interrupted
+     */
+    private void listen() {
+        Instant lostAt = null;
+        while (!Thread.currentThread().isInterrupted()) {
+            Instant polledAt = Instant.now();
+            try (Connection connection = this.dataSource.getConnection(); Statement statement = connection.createStatement()) {
+                statement.execute("LISTEN " + CacheInvalidationRepository.CHANNEL);
+                final PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                if (!Objects.isNull(lostAt)) {
+                    this.cacheInvalidationRepository.findCreatedSince(lostAt.minus(REPLAY_MARGIN)).forEach(this::apply);
+                    lostAt = null;
+                }
+                while (!Thread.currentThread().isInterrupted()) {
+                    polledAt = Instant.now();
+                    final PGNotification[] notifications = pgConnection.getNotifications(this.pollTimeout);
+                    if (!Objects.isNull(notifications) && notifications.length > 0) {
+                        receive(Arrays.stream(notifications).map(notification -> Long.valueOf(notification.getParameter())).toList());
+                    }
+                }
+            } catch (final SQLException | RuntimeException ex) {
+                if (Objects.isNull(lostAt)) {
+                    lostAt = polledAt;
+                }
+                log.warn("Listening to cache invalidations failed, retrying in {}", this.reconnectDelay, ex);
+                try {
+                    Thread.sleep(this.reconnectDelay.toMillis());
+                } catch (final InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    private void apply(final Invalidation invalidation) {
+        if (invalidation.node().equals(this.node)) {
+            return;
+        }
+        final EntityChangedEvent event = invalidation.toEvent();
+        switch (event.type()) {
+            case DISCOUNT -> {
+                evictDiscounts(event);
+                this.eventPublisher.publishEvent(new DiscountsChangedEvent(event.ids()));
+            }
+            case COMPANY -> {
+                evict(event, CacheConfig.COMPANIES, null, CompanyEntity.class);
+                // discounts show the company
+                this.eventPublisher.publishEvent(DiscountsChangedEvent.all());
+            }
+            case CATEGORY -> {
+                evict(event, CacheConfig.CATEGORIES, null, CategoryEntity.class);
+                // discounts show the category, listings of categories are versioned with discounts
+                this.eventPublisher.publishEvent(DiscountsChangedEvent.all());
+            }
+            case LOCATION -> {
+                evict(event, CacheConfig.LOCATIONS, CacheConfig.LOCATIONS_BY_CITY, LocationEntity.class);
+                // discounts show the location
+                this.eventPublisher.publishEvent(DiscountsChangedEvent.all());
+            }
+            case ROLE -> evict(event, CacheConfig.ROLES, CacheConfig.ROLES_BY_CODE, RoleEntity.class);
+        }
+        log.debug("Caches of {} {} cleared by node {}", event.type(), event.isAll() ? "all" : event.ids(), invalidation.node());
+    }
+
+    private void evictDiscounts(final EntityChangedEvent event) {
+        final org.hibernate.Cache secondLevelCache = getSecondLevelCache();
+        if (event.isAll()) {
+            secondLevelCache.evictEntityData(DiscountEntity.class);
+        } else {
+            event.ids().forEach(id -> secondLevelCache.evictEntityData(DiscountEntity.class, id));
+        }
+        for (final String attribute : List.of(DiscountEntity_.AREA, DiscountEntity_.CATEGORIES)) {
+            final String role = DiscountEntity.class.getName() + "." + attribute;
+            if (event.isAll()) {
+                secondLevelCache.evictCollectionData(role);
+            } else {
+                event.ids().forEach(id -> secondLevelCache.evictCollectionData(role, id));
+            }
+        }
+    }
+
+    /**
+     * @param byId cache of entities by id
+     * @param byKey cache of entities by other key, cleared as a whole, null if there is no such cache
+     */
+    private void evict(final EntityChangedEvent event, final String byId, final String byKey, final Class<?> entityClass) {
+        final org.hibernate.Cache secondLevelCache = getSecondLevelCache();
+        final Cache cache = this.cacheManager.getCache(byId);
+        if (event.isAll()) {
+            secondLevelCache.evictEntityData(entityClass);
+            if (!Objects.isNull(cache)) {
+                cache.clear();
+            }
+        } else {
+            event.ids().forEach(id -> {
+                secondLevelCache.evictEntityData(entityClass, id);
+                if (!Objects.isNull(cache)) {
+                    cache.evict(id);
+                }
+            });
+        }
+        if (!Objects.isNull(byKey) && !Objects.isNull(this.cacheManager.getCache(byKey))) {
+            this.cacheManager.getCache(byKey).clear();
+        }
+        // results of queries of the other node are not dated by the timestamps of this node
+        secondLevelCache.evictQueryRegions();
+    }
+
+    private org.hibernate.Cache getSecondLevelCache() {
+        return this.entityManagerFactory.unwrap(SessionFactory.class).getCache();
+    }
+}
@@ -1,13 +1,20 @@
 package com.andersenlab.benefits.service.impl;
 
+import com.andersenlab.benefits.config.CacheConfig;
 import com.andersenlab.benefits.domain.CompanyEntity;
+import com.andersenlab.benefits.domain.DiscountsChangedEvent;
+import com.andersenlab.benefits.domain.EntityChangedEvent;
 import com.andersenlab.benefits.repository.CompanyRepository;
 import com.andersenlab.benefits.service.CompanyService;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import java.util.Objects;
 import java.util.Optional;
 import static com.andersenlab.benefits.service.impl.ValidateUtils.*;
@@ -26,13 +33,17 @@ import static com.andersenlab.benefits.service.impl.ValidateUtils.*;
 public class CompanyServiceImpl implements CompanyService {
 
     private final CompanyRepository companyRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
-    public CompanyServiceImpl(final CompanyRepository companyRepository) {
+    public CompanyServiceImpl(final CompanyRepository companyRepository,
+                              final ApplicationEventPublisher eventPublisher) {
         this.companyRepository = companyRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     @Override
+    @Cacheable(cacheNames = CacheConfig.COMPANIES, key = "#id")
     public CompanyEntity findById(final Long id) {
         return this.companyRepository.findById(id).orElseThrow(() ->
                 new IllegalStateException(errIdNotFoundMessage("Company", id)));
@@ -44,6 +55,8 @@ public class CompanyServiceImpl implements CompanyService {
     }
 
     @Override
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.COMPANIES, key = "#id")
     public CompanyEntity update(final Long id, final CompanyEntity company) {
         if (!Objects.isNull(company.getTitle())) {
             this.companyRepository.findByTitle(company.getTitle()).ifPresent(foundCompany -> {
@@ -53,10 +66,15 @@ public class CompanyServiceImpl implements CompanyService {
         final CompanyEntity existingCompany = findById(id);
         BeanUtils.copyProperties(company, existingCompany, "id");
         validateEntityFieldsAnnotations(company, false);
-        return this.companyRepository.save(company);
+        final CompanyEntity savedCompany = this.companyRepository.save(company);
+        this.eventPublisher.publishEvent(EntityChangedEvent.of(EntityChangedEvent.Type.COMPANY, id));
+        // discounts show the company
+        this.eventPublisher.publishEvent(DiscountsChangedEvent.all());
+        return savedCompany;
     }
 
     @Override
+    @Transactional
     public CompanyEntity save(final CompanyEntity company) {
         this.companyRepository.findByTitle(company.getTitle()).ifPresent(foundCompany -> {
             throw new IllegalStateException(
@@ -64,10 +82,14 @@ public class CompanyServiceImpl implements CompanyService {
         );
         company.setId(null);
         validateEntityFieldsAnnotations(company, true);
-        return this.companyRepository.save(company);
+        final CompanyEntity savedCompany = this.companyRepository.save(company);
+        this.eventPublisher.publishEvent(EntityChangedEvent.of(EntityChangedEvent.Type.COMPANY, savedCompany.getId()));
+        return savedCompany;
     }
 
     @Override
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.COMPANIES, key = "#id")
     public void delete(final Long id) {
         final CompanyEntity existingCompany = findById(id);
         final Optional<CompanyEntity> company = this.companyRepository.findWithAssociatedDiscounts(id);
@@ -76,5 +98,6 @@ public class CompanyServiceImpl implements CompanyService {
                     errAssociatedEntity("discounts", "Company"));
         }
         this.companyRepository.delete(existingCompany);
+        this.eventPublisher.publishEvent(EntityChangedEvent.of(EntityChangedEvent.Type.COMPANY, id));
     }
 }
@@ -4,44 +4,75 @@ import com.andersenlab.benefits.domain.CategoryEntity;
 import com.andersenlab.benefits.domain.CompanyEntity;
 import com.andersenlab.benefits.domain.DiscountEntity;
 import com.andersenlab.benefits.domain.DiscountType;
+import com.andersenlab.benefits.domain.DiscountsChangedEvent;
+import com.andersenlab.benefits.domain.EntityChangedEvent;
+import com.andersenlab.benefits.domain.ImportJob;
 import com.andersenlab.benefits.domain.LocationEntity;
 import com.andersenlab.benefits.repository.CategoryRepository;
 import com.andersenlab.benefits.repository.CompanyRepository;
-import com.andersenlab.benefits.repository.DiscountRepository;
+import com.andersenlab.benefits.repository.DiscountImportLedgerRepository;
+import com.andersenlab.benefits.repository.DiscountImportRepository;
+import com.andersenlab.benefits.repository.DiscountStagingRepository;
 import com.andersenlab.benefits.repository.LocationRepository;
 import com.andersenlab.benefits.service.CsvDiscountLoaderService;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 import javax.validation.ConstraintViolation;
 import javax.validation.Valid;
 import javax.validation.Validation;
 import javax.validation.Validator;
-import javax.validation.ValidatorFactory;
-import java.io.BufferedReader;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.ZoneId;
-import java.time.temporal.ChronoUnit;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
-import java.util.Iterator;
-import java.util.LinkedHashMap;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import static java.time.temporal.TemporalAdjusters.firstDayOfYear;
-import static java.time.temporal.TemporalAdjusters.lastDayOfYear;
 
 
 /***
@@ -50,153 +81,569 @@ import static java.time.temporal.TemporalAdjusters.lastDayOfYear;
  * @version 1.0
  * @see CsvDiscountLoaderService
  */
+@Slf4j
 @Service
 public class CsvDiscountLoaderServiceImpl implements CsvDiscountLoaderService {
-	private final Map<String, String> suitableHeader = new LinkedHashMap<>(){{
-		put("id", 					"number");
-		put("companyTitle", 		"company_title");
-		put("type", 				"type");
-		put("category",				"category");
-		put("image",				"image");
-		put("companyDescription",	"company_description");
-		put("companyAddress",		"company_address");
-		put("companyPhone",			"company_phone");
-		put("links",				"links");
-		put("sizeMin", 				"min_sizeDiscount");
-		put("sizeMax", 				"max_sizeDiscount");
-		put("discountType", 		"discount_type");
-		put("discountDescription",	"discount_description");
-		put("discountCondition",	"discount_condition");
-		put("startDate",			"start_date");
-		put("endDate",				"end_date");
-		put("location",				"location");
-	}};
-	private final List<String> header = new ArrayList<>();
+	private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("d.M.uuuu");
+	private static final char BOM = '\uFEFF';
 	private final CategoryRepository categoryRepository;
 	private final CompanyRepository companyRepository;
-	private final DiscountRepository discountRepository;
 	private final LocationRepository locationRepository;
+	private final DiscountImportRepository discountImportRepository;
+	private final DiscountStagingRepository discountStagingRepository;
+	private final DiscountImportLedgerRepository discountImportLedgerRepository;
+	private final TransactionTemplate transactionTemplate;
+	private final ApplicationEventPublisher eventPublisher;
+	private final Validator validator;
+	private final Executor importWorkerExecutor;
+	private final int chunkSize;
+	private final int queueCapacity;
+	private final Lock[] companyLocks;
 
 	@Autowired
 	public CsvDiscountLoaderServiceImpl(final CategoryRepository categoryRepository,
 										final CompanyRepository companyRepository,
-										final DiscountRepository discountRepository,
-										final LocationRepository locationRepository) {
+										final LocationRepository locationRepository,
+										final DiscountImportRepository discountImportRepository,
+										final DiscountStagingRepository discountStagingRepository,
+										final DiscountImportLedgerRepository discountImportLedgerRepository,
+										final TransactionTemplate transactionTemplate,
+										final ApplicationEventPublisher eventPublisher,
+										@Qualifier("importWorkerExecutor") final Executor importWorkerExecutor,
+										@Value("${benefits.import.chunk-size:500}") final int chunkSize,
+										@Value("${benefits.import.queue-capacity:8}") final int queueCapacity,
+										@Value("${benefits.import.company-lock-stripes:64}") final int companyLockStripes) {
 		this.categoryRepository = categoryRepository;
 		this.companyRepository = companyRepository;
-		this.discountRepository = discountRepository;
 		this.locationRepository = locationRepository;
+		this.discountImportRepository = discountImportRepository;
+		this.discountStagingRepository = discountStagingRepository;
+		this.discountImportLedgerRepository = discountImportLedgerRepository;
+		this.transactionTemplate = transactionTemplate;
+		this.eventPublisher = eventPublisher;
+		this.importWorkerExecutor = importWorkerExecutor;
+		this.chunkSize = chunkSize;
+		this.queueCapacity = queueCapacity;
+		this.companyLocks = new Lock[companyLockStripes];
+		Arrays.setAll(this.companyLocks, i -> new ReentrantLock());
+		this.validator = Validation.buildDefaultValidatorFactory().getValidator();
 	}
 
+	@Override
 	public List<String> loadDiscountsFromCsv(final MultipartFile file, final String delimiter) {
-		final List<String> response = new ArrayList<>();
+		return loadDiscountsFromCsv(file, delimiter, null);
+	}
+
+	@Override
+	public List<String> loadDiscountsFromCsv(final MultipartFile file, final String delimiter, final String charset) {
+		final ImportJob job = new ImportJob(file.getOriginalFilename(), ImportJob.Mode.BATCH, null, false, charset);
 		try {
-			final InputStreamReader isr = new InputStreamReader(file.getInputStream());
-			try (BufferedReader input = new BufferedReader(isr)) {
-				String line = input.readLine();
-				this.header.clear();
-				this.header.addAll(Arrays.stream(line.split(delimiter)).toList());
-				checkHeadersSuitable();
-				while (input.ready() && !line.isEmpty()) {
-					line = input.readLine();
-					final String[] splittedLine = line.split(delimiter);
-					response.add(splittedLine.length == this.header.size() ?
-							putRowToTables(parseLine(splittedLine)) :
-							splittedLine[0] + ": Number of delimited fields does not match header");
-				}
+			if (CsvFiles.isXlsx(job.getFileName()))
+				loadDiscountsFromXlsx(file, job);
+			else
+				loadDiscountsFromCsv(file.getInputStream(), delimiter, job);
+		} catch (final IOException ex) {
+			throw new IllegalStateException("Check uploaded file is correct", ex);
+		}
+		return job.getReport();
+	}
+
+	/**
+	 * Workbook is read from a file, so the upload is saved to a temporary file first
+	 */
+	private void loadDiscountsFromXlsx(final MultipartFile file, final ImportJob job) throws IOException {
+		final Path tempFile = Files.createTempFile("import-" + job.getId(), ".xlsx");
+		try {
+			file.transferTo(tempFile);
+			loadDiscountsFromXlsx(tempFile, job);
+		} finally {
+			Files.deleteIfExists(tempFile);
+		}
+	}
+
+	@Override
+	public void loadDiscountsFromCsv(final InputStream inputStream, final String delimiter, final ImportJob job) {
+		job.start();
+		try {
+			try (InputStream source = inputStream; InputStreamReader input = openReader(source, job)) {
+				importRecords(new CsvTokenizer(input, getSeparator(delimiter)), job);
 			}
 		} catch (final IllegalStateException ex) {
-			throw new IllegalStateException("Headers titles not suitable");
+			job.fail(ex.getMessage());
+			throw ex;
 		} catch (final IOException ex) {
+			job.fail("Check uploaded file is correct");
 			throw new IllegalStateException("Check uploaded file is correct", ex);
 		}
-		return response;
+		job.finish();
+		log.info("CSV import of {} rows from {} finished ({} rows/s)",
+				job.getRowsProcessed(), job.getFileName(), String.format("%.1f", job.getRowsPerSecond()));
 	}
 
-	@Transactional(rollbackFor = {DataIntegrityViolationException.class, IllegalStateException.class})
-	public String putRowToTables (final Map<String, String> row) {
+	@Override
+	public void loadDiscountsFromXlsx(final Path file, final ImportJob job) {
+		job.start();
 		try {
-			final CompanyEntity companyEntity = getCompany(row);
-			if (Objects.isNull(companyEntity.getId())) {
-				validateCompany(companyEntity);
-				companyEntity.setId(this.companyRepository.save(companyEntity).getId());
+			try (XlsxSheetReader reader = new XlsxSheetReader(file)) {
+				importRecords(reader, job);
 			}
-			final long companyId = companyEntity.getId();
-			final List<DiscountEntity> discounts = this.discountRepository.findAll();
-			final DiscountEntity newDiscount = getDiscount(row, companyEntity);
-			discounts.stream().filter(discount ->
-								!Objects.isNull(discount.getCompany().getId()) &&
-									discount.getCompany().getId().equals(companyId) &&
-									equalDiscounts(discount, newDiscount))
-					.findFirst().ifPresent(found -> {throw new IllegalStateException("SKIP already exists");});
-			validateDiscount(newDiscount);
-			this.discountRepository.save(newDiscount);
-			return (row.get(this.suitableHeader.get("id")) + ": OK");
 		} catch (final IllegalStateException ex) {
-			return (row.get(this.suitableHeader.get("id")) + ": " + ex.getMessage());
-		} catch (final DataIntegrityViolationException ex) {
-			return (row.get(this.suitableHeader.get("id")) + ": " + ex.getCause().getCause());
+			job.fail(ex.getMessage());
+			throw ex;
+		} catch (final IOException ex) {
+			job.fail("Check uploaded file is correct");
+			throw new IllegalStateException("Check uploaded file is correct", ex);
 		}
+		job.finish();
+		log.info("XLSX import of {} rows from {} finished ({} rows/s)",
+				job.getRowsProcessed(), job.getFileName(), String.format("%.1f", job.getRowsPerSecond()));
 	}
 
-	private Date getDate(final String date, final boolean isStartDate) {
+	/**
+	 * Import runs as a pipeline: a reader thread cuts the file into chunks of lines,
+	 * chunks are parsed and validated in parallel on the import workers,
+	 * and the calling thread writes parsed chunks to the database strictly in the order of file.
+	 * The queue of parsed chunks is bounded, so the reader waits when the writer falls behind.
+	 * Incremental import skips rows unchanged since the last import of the same source
+	 * and updates discounts of changed rows in place.
+	 */
+	private void importRecords(final RecordReader records, final ImportJob job) throws IOException {
+		final List<String> header = new ArrayList<>();
+		if (!records.next(header))
+			throw new IOException();
+		final ImportSession session = new ImportSession(job, mapHeader(header), header.size(), loadDictionary(),
+				job.isIncremental() ? this.discountImportLedgerRepository.findBySource(job.getSource()) : Map.of(),
+				new HashSet<>());
+		final BlockingQueue<Future<List<CsvRow>>> parsedChunks = new ArrayBlockingQueue<>(this.queueCapacity);
+		final Thread reader = new Thread(() -> readChunks(session, records, parsedChunks),
+				"import-reader-" + session.job().getId());
+		reader.start();
 		try {
-			return (new SimpleDateFormat("dd.MM.yyyy")).parse(date);
-		} catch (final ParseException e) {
-			return Date.from(isStartDate ?
-					LocalDate.now().with(firstDayOfYear()).atStartOfDay().atZone(ZoneId.systemDefault()).toInstant() :
-					LocalDate.now().plus(100L, ChronoUnit.YEARS).with(lastDayOfYear()).atStartOfDay().atZone(ZoneId.systemDefault()).toInstant());
+			List<CsvRow> chunk;
+			while (!(chunk = takeChunk(parsedChunks)).isEmpty()) {
+				job.addRows(putChunkToTables(session, chunk));
+			}
+		} finally {
+			reader.interrupt();
 		}
+		if (job.isIncremental() && job.isExpireMissing())
+			job.addExpired(Objects.requireNonNull(this.transactionTemplate.execute(status -> {
+				final int expired = this.discountImportLedgerRepository.expireMissing(job.getSource(), job.getId());
+				if (expired > 0)
+					publishDiscountsChanged(null);
+				return expired;
+			})));
 	}
 
-	private void checkHeadersSuitable() throws IOException, IllegalStateException {
-		if (this.header.size() == 0)
+	/**
+	 * Header is read and checked here, the rest of stream goes to COPY as is
+	 */
+	@Override
+	public void copyDiscountsFromCsv(final InputStream inputStream, final String delimiter, final ImportJob job) {
+		job.start();
+		try (InputStream source = inputStream; BufferedInputStream input = CsvFiles.open(source, job.getFileName())) {
+			final char separator = getSeparator(delimiter);
+			final Charset charset = CsvFiles.getCharset(input, job.getCharset());
+			final String encoding = CsvFiles.getPostgresEncoding(charset);
+			job.setCharset(charset.name());
+			final List<String> header = readHeader(input, separator, charset);
+			mapHeader(header);
+			final List<String> columns = new ArrayList<>(header.size());
+			for (int i = 0; i < header.size(); i++) {
+				final String title = getHeaderTitle(header, i);
+				final Column column = Column.byTitle(title);
+				if (Objects.isNull(column))
+					throw new IllegalStateException("Headers titles not suitable, column " + title + " is not supported by copy import");
+				columns.add(column.getTitle().toLowerCase(Locale.ROOT));
+			}
+			// the file is copied in one transaction, which does not tell ids of changed discounts
+			job.addRows(this.transactionTemplate.execute(status -> {
+				final List<String> report = this.discountStagingRepository.copyDiscounts(input, columns, separator, encoding, job.getId());
+				publishDiscountsChanged(null);
+				return report;
+			}));
+		} catch (final IllegalStateException ex) {
+			job.fail(ex.getMessage());
+			throw ex;
+		} catch (final DataAccessException ex) {
+			final String message = ex.getMostSpecificCause().getMessage();
+			job.fail(message);
+			throw new IllegalStateException(message, ex);
+		} catch (final IOException ex) {
+			job.fail("Check uploaded file is correct");
+			throw new IllegalStateException("Check uploaded file is correct", ex);
+		}
+		job.finish();
+		log.info("CSV copy of {} rows from {} finished ({} rows/s)",
+				job.getRowsProcessed(), job.getFileName(), String.format("%.1f", job.getRowsPerSecond()));
+	}
+
+	/**
+	 * Decompresses the file by its name and decodes it by the charset of job, detected charset is set to the job
+	 */
+	private InputStreamReader openReader(final InputStream inputStream, final ImportJob job) throws IOException {
+		final BufferedInputStream input = CsvFiles.open(inputStream, job.getFileName());
+		final Charset charset = CsvFiles.getCharset(input, job.getCharset());
+		job.setCharset(charset.name());
+		return new InputStreamReader(input, charset);
+	}
+
+	/**
+	 * Reads the first line only, so the stream is left at the first row
+	 */
+	private List<String> readHeader(final InputStream input, final char separator, final Charset charset) throws IOException {
+		final ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+		int b;
+		while ((b = input.read()) >= 0 && b != '\n')
+			line.write(b);
+		final List<String> header = new ArrayList<>();
+		if (!new CsvTokenizer(new StringReader(line.toString(charset)), separator).next(header))
 			throw new IOException();
-		final Iterator<String> headerIterator = this.header.iterator();
-		this.suitableHeader.forEach((key, value) -> {
-			if (!headerIterator.next().equals(value))
-				throw new IllegalStateException();
-		});
+		return header;
 	}
 
-	private Map<String, String> parseLine(final String[] splittedLine) {
-		final Map<String, String> result = new LinkedHashMap<>(this.header.size() * 2);
-		final Iterator<String> headerTitle = this.suitableHeader.values().iterator();
-		Arrays.stream(splittedLine).forEach(item -> result.put(headerTitle.next(), item));
+	/**
+	 * Reader stage. Reads records of the file, submits chunks of records to the workers
+	 * and queues their results in the order of file. Empty chunk marks the end of file.
+	 */
+	private void readChunks(final ImportSession session, final RecordReader recordReader,
+							final BlockingQueue<Future<List<CsvRow>>> parsedChunks) {
+		try {
+			try {
+				final List<String> fields = new ArrayList<>(session.headerSize());
+				List<String[]> records = new ArrayList<>(this.chunkSize);
+				while (recordReader.next(fields)) {
+					if (fields.size() == 1 && fields.get(0).isEmpty())
+						continue;
+					records.add(fields.toArray(new String[0]));
+					if (records.size() >= this.chunkSize) {
+						parsedChunks.put(submitChunk(session, records));
+						records = new ArrayList<>(this.chunkSize);
+					}
+				}
+				if (!records.isEmpty())
+					parsedChunks.put(submitChunk(session, records));
+				parsedChunks.put(CompletableFuture.completedFuture(List.of()));
+			} catch (final IOException | RuntimeException ex) {
+				parsedChunks.put(CompletableFuture.failedFuture(ex));
+			}
+		} catch (final InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private Future<List<CsvRow>> submitChunk(final ImportSession session, final List<String[]> records) {
+		return CompletableFuture.supplyAsync(() -> parseChunk(session, records), this.importWorkerExecutor);
+	}
+
+	private List<CsvRow> takeChunk(final BlockingQueue<Future<List<CsvRow>>> parsedChunks) throws IOException {
+		try {
+			return parsedChunks.take().get();
+		} catch (final InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Import was interrupted", ex);
+		} catch (final ExecutionException ex) {
+			if (ex.getCause() instanceof IOException cause)
+				throw cause;
+			if (ex.getCause() instanceof RuntimeException cause)
+				throw new IllegalStateException(cause.getMessage(), cause);
+			throw new IOException(ex.getCause());
+		}
+	}
+
+	/**
+	 * Worker stage. Resolves locations and categories, validates discounts.
+	 * Rows found unchanged in the ledger are skipped before any entity is built.
+	 * Does not touch the database.
+	 */
+	private List<CsvRow> parseChunk(final ImportSession session, final List<String[]> records) {
+		final ImportDictionary dictionary = session.dictionary();
+		final List<CsvRow> result = new ArrayList<>(records.size());
+		final RowView row = new RowView(session.columns());
+		for (final String[] record : records) {
+			row.reset(record);
+			if (record.length != session.headerSize()) {
+				result.add(CsvRow.failed(row.getNumber(), "Number of delimited fields does not match header"));
+				continue;
+			}
+			final String number = row.getNumber();
+			final String rowHash = session.job().isIncremental() ? row.getHash() : null;
+			final DiscountImportLedgerRepository.Entry entry = session.ledger().get(number);
+			if (!Objects.isNull(entry) && Objects.equals(entry.rowHash(), rowHash)) {
+				result.add(CsvRow.unchanged(number));
+				continue;
+			}
+			try {
+				final DiscountEntity discount = getDiscount(row, getCompany(row, dictionary), dictionary);
+				validateDiscount(discount);
+				if (!Objects.isNull(entry))
+					discount.setId(entry.discountId());
+				result.add(new CsvRow(number, discount, null, rowHash));
+			} catch (final IllegalStateException ex) {
+				result.add(CsvRow.failed(number, ex.getMessage()));
+			}
+		}
 		return result;
 	}
 
+	/**
+	 * Writer stage. Resolves companies, skips duplicates and writes the rest of chunk in one transaction.
+	 * A failed row is rolled back with the company created for it and does not abort the others.
+	 * New companies are looked up again and created under their locks,
+	 * so imports running in parallel do not create the same company twice.
+	 * Rows of incremental import are recorded in the ledger in the same transaction.
+	 *
+	 * @return line-by-line result of the chunk
+	 */
+	private List<String> putChunkToTables(final ImportSession session, final List<CsvRow> chunk) {
+		final ImportDictionary dictionary = session.dictionary();
+		final String[] response = new String[chunk.size()];
+		final List<Integer> resolved = new ArrayList<>(chunk.size());
+		for (int i = 0; i < chunk.size(); i++) {
+			final CsvRow row = chunk.get(i);
+			if (session.job().isIncremental() && !session.numbers().add(row.number())) {
+				response[i] = row.number() + ": Number is duplicated in file";
+			} else if (Objects.isNull(row.discount())) {
+				response[i] = row.number() + ": " + row.error();
+			} else {
+				row.discount().setCompany(putCompany(row.discount().getCompany(), dictionary));
+				resolved.add(i);
+			}
+		}
+		final Set<String> newTitles = resolved.stream().map(i -> chunk.get(i).discount().getCompany())
+				.filter(company -> Objects.isNull(company.getId()))
+				.map(CompanyEntity::getTitle).collect(Collectors.toSet());
+		final List<Lock> locks = lockCompanies(newTitles);
+		try {
+			this.discountImportRepository.findCompanyIds(newTitles)
+					.forEach((title, id) -> dictionary.companies().get(title).setId(id));
+			saveChunk(session, chunk, resolved, response);
+		} finally {
+			locks.forEach(Lock::unlock);
+		}
+		return Arrays.asList(response);
+	}
+
+	/**
+	 * Changed rows are not looked up by content hash, they may keep the content of their own discount
+	 */
+	private void saveChunk(final ImportSession session, final List<CsvRow> chunk, final List<Integer> resolved,
+						   final String[] response) {
+		resolved.forEach(i -> chunk.get(i).discount().updateContentHash());
+		final Set<String> existingKeys = this.discountImportRepository.findContentHashes(resolved.stream()
+				.map(i -> chunk.get(i).discount())
+				.filter(discount -> Objects.isNull(discount.getId()) && !Objects.isNull(discount.getCompany().getId()))
+				.map(DiscountEntity::getContentHash).collect(Collectors.toSet()));
+		final List<Integer> toSave = new ArrayList<>(resolved.size());
+		for (final Integer i : resolved) {
+			if (existingKeys.add(duplicateKey(chunk.get(i).discount()))) {
+				toSave.add(i);
+			} else {
+				response[i] = chunk.get(i).number() + ": SKIP already exists";
+			}
+		}
+		final Set<Integer> changed = toSave.stream().filter(i -> !Objects.isNull(chunk.get(i).discount().getId()))
+				.collect(Collectors.toSet());
+		final List<DataAccessException> errors = saveRows(session, toSave.stream().map(chunk::get).toList(),
+				chunk.stream().map(CsvRow::number).filter(session.ledger()::containsKey).toList());
+		for (int k = 0; k < toSave.size(); k++) {
+			final int i = toSave.get(k);
+			final DataAccessException error = errors.get(k);
+			if (Objects.isNull(error))
+				response[i] = chunk.get(i).number() + (changed.contains(i) ? ": UPDATED" : ": OK");
+			else if (error instanceof DuplicateKeyException)
+				response[i] = chunk.get(i).number() + ": SKIP already exists";
+			else
+				response[i] = chunk.get(i).number() + ": " + error.getMostSpecificCause().getMessage();
+		}
+	}
+
+	/**
+	 * Locks stripes of given titles in ascending order, so writers of parallel imports never deadlock.
+	 * Titles with equal hash share a stripe, imports of different companies rarely wait for each other.
+	 *
+	 * @return locked stripes to be unlocked by caller
+	 */
+	private List<Lock> lockCompanies(final Collection<String> titles) {
+		final List<Lock> locks = titles.stream()
+				.map(title -> Math.floorMod(title.hashCode(), this.companyLocks.length))
+				.distinct().sorted()
+				.map(stripe -> this.companyLocks[stripe])
+				.toList();
+		final List<Lock> locked = new ArrayList<>(locks.size());
+		try {
+			for (final Lock lock : locks) {
+				lock.lock();
+				locked.add(lock);
+			}
+		} catch (final RuntimeException ex) {
+			locked.forEach(Lock::unlock);
+			throw ex;
+		}
+		return locked;
+	}
+
+	/**
+	 * Hash of discount of a company which is not stored yet is calculated without company id,
+	 * such discounts are told apart by the title of company.
+	 */
+	private String duplicateKey(final DiscountEntity discount) {
+		final CompanyEntity company = discount.getCompany();
+		return Objects.isNull(company.getId())
+				? company.getTitle() + ":" + discount.getContentHash()
+				: discount.getContentHash();
+	}
+
+	/**
+	 * Writes rows in one transaction, failed rows are rolled back to their savepoints.
+	 * If the transaction itself fails, all rows get its error. Written discounts are published
+	 * as changed in the transaction, so the outbox of cache invalidations commits with the chunk.
+	 * Rows of incremental import found in the ledger are marked as seen in the same transaction,
+	 * so a rolled back chunk does not keep its rows from expiry.
+	 *
+	 * @param seenNumbers numbers of rows of the chunk which are in the ledger
+	 * @return errors in the order of rows, null for written ones
+	 */
+	private List<DataAccessException> saveRows(final ImportSession session, final List<CsvRow> rows,
+											   final List<String> seenNumbers) {
+		final List<DiscountEntity> discounts = rows.stream().map(CsvRow::discount).toList();
+		final List<CompanyEntity> newCompanies = discounts.stream().map(DiscountEntity::getCompany)
+				.filter(company -> Objects.isNull(company.getId())).distinct().toList();
+		final List<DiscountEntity> newDiscounts = discounts.stream()
+				.filter(discount -> Objects.isNull(discount.getId())).toList();
+		try {
+			return this.transactionTemplate.execute(status -> {
+				if (session.job().isIncremental())
+					this.discountImportLedgerRepository.markSeen(session.job().getSource(), session.job().getId(), seenNumbers);
+				final List<DataAccessException> errors = this.discountImportRepository.saveDiscounts(discounts);
+				final Map<String, DiscountImportLedgerRepository.Entry> entries = new HashMap<>();
+				final List<Long> ids = new ArrayList<>(rows.size());
+				for (int i = 0; i < rows.size(); i++) {
+					if (Objects.isNull(errors.get(i))) {
+						entries.put(rows.get(i).number(),
+								new DiscountImportLedgerRepository.Entry(rows.get(i).rowHash(), discounts.get(i).getId()));
+						ids.add(discounts.get(i).getId());
+					}
+				}
+				if (session.job().isIncremental())
+					this.discountImportLedgerRepository.save(session.job().getSource(), session.job().getId(), entries);
+				if (!ids.isEmpty())
+					publishDiscountsChanged(ids);
+				return errors;
+			});
+		} catch (final DataAccessException ex) {
+			newCompanies.forEach(company -> company.setId(null));
+			newDiscounts.forEach(discount -> discount.setId(null));
+			return Collections.nCopies(discounts.size(), ex);
+		}
+	}
+
+	/**
+	 * Must be called in the transaction of the change
+	 *
+	 * @param ids ids of written discounts, null if any discount may have changed
+	 */
+	private void publishDiscountsChanged(final Collection<Long> ids) {
+		this.eventPublisher.publishEvent(new EntityChangedEvent(EntityChangedEvent.Type.DISCOUNT, ids));
+		this.eventPublisher.publishEvent(new DiscountsChangedEvent(ids));
+	}
+
+	/**
+	 * Makes all rows of the import share one instance of each company, the first seen wins
+	 */
+	private CompanyEntity putCompany(final CompanyEntity company, final ImportDictionary dictionary) {
+		final CompanyEntity existing = dictionary.companies().putIfAbsent(company.getTitle(), company);
+		return Objects.isNull(existing) ? company : existing;
+	}
+
+	private ImportDictionary loadDictionary() {
+		final Map<String, LocationEntity> locations = new HashMap<>();
+		this.locationRepository.findAll().forEach(location -> locations.putIfAbsent(location.getCity(), location));
+		final Map<String, CategoryEntity> categories = new HashMap<>();
+		this.categoryRepository.findAll().forEach(category -> categories.putIfAbsent(category.getTitle(), category));
+		final Map<String, CompanyEntity> companies = new ConcurrentHashMap<>();
+		this.companyRepository.findAll().forEach(company -> companies.putIfAbsent(company.getTitle(), company));
+		return new ImportDictionary(locations, categories, companies);
+	}
+
+	/**
+	 * A discount without a valid end date does not end, it is not expired by the sweep of finished discounts
+	 */
+	private Date getDate(final String date, final boolean isStartDate) {
+		try {
+			return Date.from(LocalDate.parse(date.trim(), DATE_FORMAT).atStartOfDay(ZoneId.systemDefault()).toInstant());
+		} catch (final DateTimeParseException e) {
+			return isStartDate ?
+					Date.from(LocalDate.now().with(firstDayOfYear()).atStartOfDay().atZone(ZoneId.systemDefault()).toInstant()) :
+					null;
+		}
+	}
+
+	private char getSeparator(final String delimiter) {
+		if (Objects.isNull(delimiter) || delimiter.length() != 1)
+			throw new IllegalStateException("Delimiter must be a single character");
+		return delimiter.charAt(0);
+	}
+
+	/**
+	 * Resolves columns by titles of header, so columns may go in any order and unknown columns are ignored
+	 *
+	 * @return indices of fields in record by ordinal of {@link Column}
+	 */
+	private int[] mapHeader(final List<String> header) {
+		final int[] columns = new int[Column.values().length];
+		Arrays.fill(columns, -1);
+		for (int i = 0; i < header.size(); i++) {
+			final Column column = Column.byTitle(getHeaderTitle(header, i));
+			if (Objects.isNull(column))
+				continue;
+			if (columns[column.ordinal()] >= 0)
+				throw new IllegalStateException("Headers titles not suitable, column " + column.getTitle() + " is duplicated");
+			columns[column.ordinal()] = i;
+		}
+		for (final Column column : Column.values()) {
+			if (columns[column.ordinal()] < 0)
+				throw new IllegalStateException("Headers titles not suitable, column " + column.getTitle() + " is missing");
+		}
+		return columns;
+	}
+
 	private List<String> splitMultilineValue(final String value) {
 		return (Arrays.asList(value.split("\\|")));
 	}
 
-	private CompanyEntity getCompany(final Map<String, String> row) {
-		return this.companyRepository.findAll().stream().filter(company ->
-						company.getTitle().equals(row.get(this.suitableHeader.get("companyTitle")))).findFirst()
-				.orElse(new CompanyEntity(
-						row.get(this.suitableHeader.get("companyTitle")),
-						row.get(this.suitableHeader.get("companyDescription")),
-						row.get(this.suitableHeader.get("companyAddress")),
-						row.get(this.suitableHeader.get("companyPhone")),
-						row.get(this.suitableHeader.get("links"))));
+	private String getHeaderTitle(final List<String> header, final int index) {
+		final String title = header.get(index).trim();
+		return index == 0 && !title.isEmpty() && title.charAt(0) == BOM ? title.substring(1) : title;
+	}
+
+	private CompanyEntity getCompany(final RowView row, final ImportDictionary dictionary) {
+		final String title = row.get(Column.COMPANY_TITLE);
+		final CompanyEntity found = dictionary.companies().get(title);
+		if (!Objects.isNull(found))
+			return found;
+		final CompanyEntity company = new CompanyEntity(
+				title,
+				row.get(Column.COMPANY_DESCRIPTION),
+				row.get(Column.COMPANY_ADDRESS),
+				row.get(Column.COMPANY_PHONE),
+				row.get(Column.LINKS));
+		validateCompany(company);
+		return company;
 	}
 
-	private Set<LocationEntity> getLocation(final Map<String, String> row) throws IllegalStateException {
-		final List<LocationEntity> locations = this.locationRepository.findAll();
-		final List<String> searchedCities = splitMultilineValue(row.get(this.suitableHeader.get("location")));
+	private Set<LocationEntity> getLocation(final RowView row, final ImportDictionary dictionary) throws IllegalStateException {
+		final List<String> searchedCities = splitMultilineValue(row.get(Column.LOCATION));
 		final Set<LocationEntity> result  = new LinkedHashSet<>();
-		searchedCities.forEach(city -> result.add(locations.stream().filter(location ->
-				location.getCity().equals(city)).findFirst().orElseThrow(() ->
+		searchedCities.forEach(city -> result.add(Optional.ofNullable(dictionary.locations().get(city)).orElseThrow(() ->
 				new IllegalStateException("City " + city + " was not found in database"))));
 		return result;
 	}
 
-	private Set<CategoryEntity> getCategory(final Map<String, String> row) {
-		final List<CategoryEntity> categories = this.categoryRepository.findAll();
-		final List<String> searchedCategories = splitMultilineValue(row.get(this.suitableHeader.get("category")));
+	private Set<CategoryEntity> getCategory(final RowView row, final ImportDictionary dictionary) {
+		final List<String> searchedCategories = splitMultilineValue(row.get(Column.CATEGORY));
 		final Set<CategoryEntity> result = new LinkedHashSet<>();
-		searchedCategories.forEach(title -> result.add(categories.stream().filter(category ->
-				category.getTitle().equals(title)).findFirst().orElseThrow(() ->
+		searchedCategories.forEach(title -> result.add(Optional.ofNullable(dictionary.categories().get(title)).orElseThrow(() ->
 				new IllegalStateException("Category " + title + " was not found in database"))));
 		return result;
 	}
@@ -212,62 +659,151 @@ public class CsvDiscountLoaderServiceImpl implements CsvDiscountLoaderService {
 		}
 	}
 
-	private DiscountEntity getDiscount(final Map<String, String> row, final CompanyEntity companyEntity) throws IllegalStateException {
-		final Set<LocationEntity> locations = getLocation(row);
-		final Set<CategoryEntity> categories = getCategory(row);
+	private DiscountType getDiscountType(final String discountType) {
+		try {
+			return DiscountType.valueOf(discountType);
+		} catch (final IllegalArgumentException ex) {
+			throw new IllegalStateException("Incorrect discount type " + discountType);
+		}
+	}
+
+	private DiscountEntity getDiscount(final RowView row, final CompanyEntity companyEntity,
+									   final ImportDictionary dictionary) throws IllegalStateException {
+		final Set<LocationEntity> locations = getLocation(row, dictionary);
+		final Set<CategoryEntity> categories = getCategory(row, dictionary);
 		final DiscountEntity discountEntity = new DiscountEntity();
-		discountEntity.setType(row.get(this.suitableHeader.get("type")));
-		discountEntity.setDescription(row.get(this.suitableHeader.get("discountDescription")));
-		discountEntity.setDiscount_condition(row.get(this.suitableHeader.get("discountCondition")));
-		discountEntity.setSizeMin(getSizeDiscount(row.get(this.suitableHeader.get("sizeMin"))));
-		discountEntity.setSizeMax(getSizeDiscount(row.get(this.suitableHeader.get("sizeMax"))));
-		discountEntity.setDiscount_type(DiscountType.valueOf(row.get(this.suitableHeader.get("discountType"))));
-		discountEntity.setDateBegin(getDate(row.get(this.suitableHeader.get("startDate")), true));
-		discountEntity.setDateFinish(getDate(row.get(this.suitableHeader.get("endDate")), false));
-		discountEntity.setImageDiscount(row.get(this.suitableHeader.get("image")));
+		discountEntity.setType(row.get(Column.TYPE));
+		discountEntity.setDescription(row.get(Column.DISCOUNT_DESCRIPTION));
+		discountEntity.setDiscount_condition(row.get(Column.DISCOUNT_CONDITION));
+		discountEntity.setSizeMin(getSizeDiscount(row.get(Column.SIZE_MIN)));
+		discountEntity.setSizeMax(getSizeDiscount(row.get(Column.SIZE_MAX)));
+		discountEntity.setDiscount_type(getDiscountType(row.get(Column.DISCOUNT_TYPE)));
+		discountEntity.setDateBegin(getDate(row.get(Column.START_DATE), true));
+		discountEntity.setDateFinish(getDate(row.get(Column.END_DATE), false));
+		discountEntity.setImageDiscount(row.get(Column.IMAGE));
 		discountEntity.setArea(locations);
 		discountEntity.setCategories(categories);
 		discountEntity.setCompany(companyEntity);
 		return discountEntity;
 	}
 
-	private boolean equalCompanies(final CompanyEntity company1, final CompanyEntity company2) {
-		return (company1.getTitle().equals(company2.getTitle()) &&
-				company1.getAddress().equals(company2.getAddress()) &&
-				company1.getDescription().equals(company2.getDescription()) &&
-				company1.getPhone().equals(company2.getPhone()) &&
-				company1.getLink().equals(company2.getLink())
-		);
+	public void validateDiscount(@Valid final DiscountEntity discount) {
+		final Set<ConstraintViolation<DiscountEntity>> constrains = this.validator.validate(discount);
+		if (constrains.size() > 0)
+			throw new IllegalStateException(constrains.iterator().next().getMessage());
 	}
 
-	private boolean equalDiscounts(final DiscountEntity discount1, final DiscountEntity discount2) throws IllegalStateException {
-		return ((discount1 == discount2) ||
-				(discount1.getType().equals(discount2.getType()) &&
-				discount1.getDescription().equals(discount2.getDescription()) &&
-				discount1.getDiscount_condition().equals(discount2.getDiscount_condition()) &&
-				discount1.getSizeMin().equals(discount2.getSizeMin()) &&
-				discount1.getSizeMax().equals(discount2.getSizeMax()) &&
-				discount1.getImageDiscount().equals(discount2.getImageDiscount()) &&
-				equalCompanies(discount1.getCompany(), discount2.getCompany())
-				));
+	public void validateCompany(@Valid final CompanyEntity company) {
+		final Set<ConstraintViolation<CompanyEntity>> constrains = this.validator.validate(company);
+		if (constrains.size() > 0)
+			throw new IllegalStateException(constrains.iterator().next().getMessage());
 	}
 
-	public void validateDiscount(@Valid final DiscountEntity discount) {
-		try (ValidatorFactory validatorFactory = Validation.buildDefaultValidatorFactory()) {
-			final Validator validator = validatorFactory.usingContext().getValidator();
-			final Set<ConstraintViolation<DiscountEntity>> constrains = validator.validate(discount);
-			if (constrains.size() > 0)
-				throw new IllegalStateException(constrains.iterator().next().getMessage());
+	/**
+	 * Reference data loaded once per upload
+	 */
+	private record ImportDictionary(Map<String, LocationEntity> locations,
+									Map<String, CategoryEntity> categories,
+									Map<String, CompanyEntity> companies) {
+	}
+
+	/**
+	 * Columns of CSV file by titles of header
+	 */
+	private enum Column {
+		NUMBER					("number"),
+		COMPANY_TITLE			("company_title"),
+		TYPE					("type"),
+		CATEGORY				("category"),
+		IMAGE					("image"),
+		COMPANY_DESCRIPTION		("company_description"),
+		COMPANY_ADDRESS			("company_address"),
+		COMPANY_PHONE			("company_phone"),
+		LINKS					("links"),
+		SIZE_MIN				("min_sizeDiscount"),
+		SIZE_MAX				("max_sizeDiscount"),
+		DISCOUNT_TYPE			("discount_type"),
+		DISCOUNT_DESCRIPTION	("discount_description"),
+		DISCOUNT_CONDITION		("discount_condition"),
+		START_DATE				("start_date"),
+		END_DATE				("end_date"),
+		LOCATION				("location");
+
+		private static final Map<String, Column> BY_TITLE = Arrays.stream(values())
+				.collect(Collectors.toMap(Column::getTitle, Function.identity()));
+
+		private final String title;
+
+		Column(final String title) {
+			this.title = title;
+		}
+
+		String getTitle() {
+			return this.title;
+		}
+
+		static Column byTitle(final String title) {
+			return BY_TITLE.get(title);
 		}
 	}
 
-	public void validateCompany(@Valid final CompanyEntity company) {
-		try (ValidatorFactory validatorFactory = Validation.buildDefaultValidatorFactory()) {
-			final Validator validator = validatorFactory.usingContext().getValidator();
-			final Set<ConstraintViolation<CompanyEntity>> constrains = validator.validate(company);
-			if (constrains.size() > 0)
-				throw new IllegalStateException(constrains.iterator().next().getMessage());
+	/**
+	 * View of a record by columns, one instance is reused for all records of a chunk
+	 */
+	private static final class RowView {
+		private final int[] columns;
+		private String[] record;
+
+		RowView(final int[] columns) {
+			this.columns = columns;
 		}
+
+		void reset(final String[] record) {
+			this.record = record;
+		}
+
+		String get(final Column column) {
+			return this.record[this.columns[column.ordinal()]];
+		}
+
+		/**
+		 * @return hash of fields in the order of columns, so it does not depend on the order of columns in file
+		 */
+		String getHash() {
+			final StringJoiner fields = new StringJoiner("\u001f");
+			for (final Column column : Column.values())
+				fields.add(get(column));
+			return DigestUtils.md5DigestAsHex(fields.toString().getBytes(StandardCharsets.UTF_8));
+		}
+
+		/**
+		 * @return number of row, or the first field if the record is too short
+		 */
+		String getNumber() {
+			final int index = this.columns[Column.NUMBER.ordinal()];
+			return index < this.record.length ? this.record[index] : this.record[0];
+		}
+	}
+
+	/**
+	 * State of one import, imports running in parallel share nothing but the locks of companies.
+	 * Ledger of the source is loaded once, numbers of rows are collected by the writer only.
+	 */
+	private record ImportSession(ImportJob job, int[] columns, int headerSize, ImportDictionary dictionary,
+								 Map<String, DiscountImportLedgerRepository.Entry> ledger, Set<String> numbers) {
 	}
 
+	/**
+	 * Parsed line of CSV file, either with discount ready to save or with error.
+	 * Hash of fields is set for incremental import only.
+	 */
+	private record CsvRow(String number, DiscountEntity discount, String error, String rowHash) {
+		static CsvRow failed(final String number, final String error) {
+			return new CsvRow(number, null, error, null);
+		}
+
+		static CsvRow unchanged(final String number) {
+			return new CsvRow(number, null, "SKIP unchanged", null);
+		}
+	}
 }
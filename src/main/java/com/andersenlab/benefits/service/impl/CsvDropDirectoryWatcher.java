@@ -0,0 +1,232 @@
+package com.andersenlab.benefits.service.impl;
+
+import com.andersenlab.benefits.domain.ImportJob;
+import com.andersenlab.benefits.service.CsvDiscountLoaderService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Imports discount files dropped to the watched directory, one by one in the order of arrival.
+ * CSV files are read through memory mapping and go through the same import as uploaded files,
+ * then are moved to processed/ or failed/ together with the report of import.
+ * Files must be moved to the directory when complete, files with unsupported names are ignored,
+ * so they may be written under a temporary name and renamed.
+ *
+ * @version 1.0
+ * @see CsvDiscountLoaderService
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "benefits.import.drop-directory.path")
+public class CsvDropDirectoryWatcher {
+    private static final String PROCESSED = "processed";
+    private static final String FAILED = "failed";
+
+    private final CsvDiscountLoaderService csvDiscountLoaderService;
+    private final Path directory;
+    private final String delimiter;
+    private final String charset;
+    private WatchService watchService;
+    private Thread watcher;
+
+    @Autowired
+    public CsvDropDirectoryWatcher(final CsvDiscountLoaderService csvDiscountLoaderService,
+                                   @Value("${benefits.import.drop-directory.path}") final String directory,
+                                   @Value("${benefits.import.drop-directory.delimiter:;}") final String delimiter,
+                                   @Value("${benefits.import.drop-directory.charset:#{null}}") final String charset) {
+        this.csvDiscountLoaderService = csvDiscountLoaderService;
+        this.directory = Paths.get(directory).toAbsolutePath();
+        this.delimiter = delimiter;
+        this.charset = charset;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        Files.createDirectories(this.directory.resolve(PROCESSED));
+        Files.createDirectories(this.directory.resolve(FAILED));
+        this.watchService = this.directory.getFileSystem().newWatchService();
+        this.directory.register(this.watchService, StandardWatchEventKinds.ENTRY_CREATE);
+        this.watcher = new Thread(this::watch, "import-drop-directory");
+        this.watcher.setDaemon(true);
+        this.watcher.start();
+        log.info("Watching {} for discount files", this.directory);
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        this.watcher.interrupt();
+        this.watchService.close();
+    }
+
+    /**
+     * Files dropped while the application was down are imported first.
+     * The thread stops when interrupted, an interrupted import leaves its file in place.
+     * On overflow of events the directory is scanned again.
+     */
+    private void watch() {
+        scan();
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                final WatchKey key = this.watchService.take();
+                boolean overflow = false;
+                final List<Path> files = new ArrayList<>();
+                for (final WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        overflow = true;
+                    } else if (!files.contains(this.directory.resolve((Path) event.context()))) {
+                        files.add(this.directory.resolve((Path) event.context()));
+                    }
+                }
+                if (!key.reset()) {
+                    log.error("Directory {} is no longer accessible, watching stopped", this.directory);
+                    return;
+                }
+                if (overflow) {
+                    scan();
+                } else {
+                    files.forEach(this::importFile);
+                }
+            }
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (final ClosedWatchServiceException ex) {
+            log.debug("Watching {} stopped", this.directory);
+        }
+    }
+
+    private void scan() {
+        final List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(this.directory)) {
+            stream.forEach(files::add);
+        } catch (final IOException ex) {
+            log.error("Directory {} can not be read", this.directory, ex);
+            return;
+        }
+        files.forEach(this::importFile);
+    }
+
+    /**
+     * Imports the file if it is still there, a file may be reported by several events
+     */
+    private void importFile(final Path file) {
+        final String fileName = file.getFileName().toString();
+        if (!Files.isRegularFile(file) || !CsvFiles.isSupported(fileName)) {
+            return;
+        }
+        final ImportJob job = new ImportJob(fileName, ImportJob.Mode.BATCH, null, false, this.charset);
+        try {
+            if (CsvFiles.isXlsx(fileName)) {
+                this.csvDiscountLoaderService.loadDiscountsFromXlsx(file, job);
+            } else {
+                try (InputStream input = new MappedFileInputStream(file)) {
+                    this.csvDiscountLoaderService.loadDiscountsFromCsv(input, this.delimiter, job);
+                }
+            }
+        } catch (final IOException | RuntimeException ex) {
+            log.warn("Import of {} failed", file, ex);
+            if (job.getStatus() != ImportJob.Status.FAILED) {
+                job.fail(Objects.toString(ex.getMessage(), ex.getClass().getSimpleName()));
+            }
+        }
+        if (Thread.currentThread().isInterrupted()) {
+            log.info("Import of {} was interrupted, the file is left to be imported again", file);
+            return;
+        }
+        final Path target = this.directory.resolve(job.getStatus() == ImportJob.Status.DONE ? PROCESSED : FAILED);
+        try {
+            writeReport(job, target.resolve(fileName + ".report.csv"));
+            Files.move(file, target.resolve(fileName), StandardCopyOption.REPLACE_EXISTING);
+        } catch (final IOException ex) {
+            log.error("File {} can not be moved to {}", file, target, ex);
+        }
+    }
+
+    private void writeReport(final ImportJob job, final Path report) throws IOException {
+        final List<String> rows = job.getReport();
+        if (job.getStatus() == ImportJob.Status.FAILED) {
+            rows.add(job.getMessage());
+        }
+        try (Writer writer = Files.newBufferedWriter(report, StandardCharsets.UTF_8)) {
+            CsvFiles.writeReport(rows, writer);
+        }
+    }
+
+    /**
+     * Stream of file mapped to memory by windows, so files of any size are read without copying to the heap
+     */
+    private static final class MappedFileInputStream extends InputStream {
+        private static final long WINDOW_SIZE = 64L * 1024 * 1024;
+
+        private final FileChannel channel;
+        private final long size;
+        private long position;
+        private MappedByteBuffer window;
+
+        MappedFileInputStream(final Path file) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.READ);
+            this.size = this.channel.size();
+        }
+
+        @Override
+        public int read() throws IOException {
+            return nextWindow() ? this.window.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(final byte[] bytes, final int offset, final int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (!nextWindow()) {
+                return -1;
+            }
+            final int count = Math.min(length, this.window.remaining());
+            this.window.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.channel.close();
+        }
+
+        private boolean nextWindow() throws IOException {
+            if (!Objects.isNull(this.window) && this.window.hasRemaining()) {
+                return true;
+            }
+            if (this.position >= this.size) {
+                return false;
+            }
+            final long length = Math.min(WINDOW_SIZE, this.size - this.position);
+            this.window = this.channel.map(FileChannel.MapMode.READ_ONLY, this.position, length);
+            this.position += length;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.andersenlab.benefits.service.impl;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
+import java.nio.charset.UnsupportedCharsetException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Uploaded CSV files: plain, compressed by gzip to .csv.gz or packed to .zip, and .xlsx workbooks.
+ * Files are decompressed as a stream, so the import never holds the whole file.
+ *
+ * @version 1.0
+ */
+public final class CsvFiles {
+    public static final Charset WINDOWS_1251 = Charset.forName("windows-1251");
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int SAMPLE_SIZE = 64 * 1024;
+    private static final Map<Charset, String> POSTGRES_ENCODINGS = Map.of(
+            StandardCharsets.UTF_8, "UTF8",
+            WINDOWS_1251, "WIN1251");
+
+    private CsvFiles() {
+    }
+
+    /**
+     * @param fileName name of uploaded file
+     * @return true if the file is .csv, .csv.gz, .zip or .xlsx
+     */
+    public static boolean isSupported(final String fileName) {
+        final String name = fileName.toLowerCase(Locale.ROOT);
+        return name.endsWith(".csv") || name.endsWith(".csv.gz") || name.endsWith(".zip") || isXlsx(name);
+    }
+
+    /**
+     * @param fileName name of uploaded file
+     * @return true if the file is .xlsx workbook, which is read by {@link XlsxSheetReader} instead of as a stream
+     */
+    public static boolean isXlsx(final String fileName) {
+        return Objects.requireNonNull(fileName).toLowerCase(Locale.ROOT).endsWith(".xlsx");
+    }
+
+    /**
+     * Opens contents of CSV file by the extension of its name. Archive .zip is read up to its first .csv entry.
+     *
+     * @return buffered stream of CSV contents, closes given stream when closed
+     * @throws IllegalStateException if the file is not supported or the archive has no CSV file
+     */
+    public static BufferedInputStream open(final InputStream input, final String fileName) throws IOException {
+        final String name = Objects.requireNonNull(fileName).toLowerCase(Locale.ROOT);
+        if (name.endsWith(".csv")) {
+            return new BufferedInputStream(input, BUFFER_SIZE);
+        }
+        if (name.endsWith(".csv.gz")) {
+            return new BufferedInputStream(new GZIPInputStream(input, BUFFER_SIZE), BUFFER_SIZE);
+        }
+        if (name.endsWith(".zip")) {
+            final ZipInputStream zip = new ZipInputStream(input);
+            ZipEntry entry;
+            while (!Objects.isNull(entry = zip.getNextEntry())) {
+                if (!entry.isDirectory() && entry.getName().toLowerCase(Locale.ROOT).endsWith(".csv")) {
+                    return new BufferedInputStream(zip, BUFFER_SIZE);
+                }
+            }
+            throw new IllegalStateException("Archive " + fileName + " does not contain a CSV file");
+        }
+        throw new IllegalStateException("Please select a CSV file to upload");
+    }
+
+    /**
+     * @param name name of charset, null to detect it
+     * @return charset of given name, or null if the name is null
+     * @throws IllegalStateException if the charset is not supported
+     */
+    public static Charset forName(final String name) {
+        if (Objects.isNull(name)) {
+            return null;
+        }
+        try {
+            return Charset.forName(name.trim());
+        } catch (final IllegalCharsetNameException | UnsupportedCharsetException ex) {
+            throw new IllegalStateException("Charset " + name + " is not supported");
+        }
+    }
+
+    /**
+     * Takes the given charset or detects it by the beginning of contents: UTF-8 if it has BOM or is valid
+     * UTF-8, windows-1251 otherwise. The stream is left at its beginning.
+     *
+     * @param input stream of CSV contents
+     * @param name name of charset, null to detect it
+     */
+    public static Charset getCharset(final BufferedInputStream input, final String name) throws IOException {
+        final Charset charset = forName(name);
+        if (!Objects.isNull(charset)) {
+            return charset;
+        }
+        input.mark(SAMPLE_SIZE);
+        final byte[] sample = input.readNBytes(SAMPLE_SIZE);
+        input.reset();
+        final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        final boolean wholeFile = sample.length < SAMPLE_SIZE;
+        final boolean utf8 = !decoder.decode(ByteBuffer.wrap(sample), CharBuffer.allocate(sample.length), wholeFile).isError();
+        return utf8 ? StandardCharsets.UTF_8 : WINDOWS_1251;
+    }
+
+    /**
+     * Writes line-by-line result of import as CSV with columns "number" and "result"
+     *
+     * @param report rows of report as "number: result"
+     */
+    public static void writeReport(final List<String> report, final Writer writer) throws IOException {
+        writer.write("number;result\n");
+        for (final String row : report) {
+            final int separator = row.indexOf(": ");
+            writer.write(separator < 0 ? ";" + quote(row) : quote(row.substring(0, separator)) + ";" + quote(row.substring(separator + 2)));
+            writer.write("\n");
+        }
+        writer.flush();
+    }
+
+    /**
+     * @return name of given charset for COPY
+     * @throws IllegalStateException if COPY does not support the charset
+     */
+    public static String getPostgresEncoding(final Charset charset) {
+        final String encoding = POSTGRES_ENCODINGS.get(charset);
+        if (Objects.isNull(encoding)) {
+            throw new IllegalStateException("Charset " + charset.name() + " is not supported by copy import");
+        }
+        return encoding;
+    }
+
+    private static String quote(final String value) {
+        if (value.contains(";") || value.contains("\"") || value.contains("\n")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+}
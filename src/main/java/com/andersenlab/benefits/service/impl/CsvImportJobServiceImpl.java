@@ -0,0 +1,156 @@
+package com.andersenlab.benefits.service.impl;
+
+import com.andersenlab.benefits.domain.ImportJob;
+import com.andersenlab.benefits.service.CsvDiscountLoaderService;
+import com.andersenlab.benefits.service.CsvImportJobService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+import static com.andersenlab.benefits.service.impl.ValidateUtils.errEntityNotFoundMessage;
+
+/**
+ * Implementation for running imports of discounts on the bounded import executor.
+ * Uploaded file is copied to a temporary file as is, compressed files are decompressed by the import.
+ * So the request returns at once.
+ *
+ * @version 1.0
+ * @see CsvImportJobService
+ */
+@Slf4j
+@Service
+public class CsvImportJobServiceImpl implements CsvImportJobService {
+    private static final int MAX_SOURCE_LENGTH = 255;
+    private final CsvDiscountLoaderService csvDiscountLoaderService;
+    private final TaskExecutor importExecutor;
+    private final int historySize;
+    private final Map<UUID, ImportJob> jobs = new LinkedHashMap<>();
+
+    @Autowired
+    public CsvImportJobServiceImpl(final CsvDiscountLoaderService csvDiscountLoaderService,
+                                   @Qualifier("importExecutor") final TaskExecutor importExecutor,
+                                   @Value("${benefits.import.jobs-history-size:100}") final int historySize) {
+        this.csvDiscountLoaderService = csvDiscountLoaderService;
+        this.importExecutor = importExecutor;
+        this.historySize = historySize;
+    }
+
+    @Override
+    public ImportJob submit(final MultipartFile file, final String delimiter, final ImportJob.Mode mode,
+                            final String source, final boolean expireMissing, final String charset) {
+        checkIncremental(mode, source, expireMissing);
+        if (mode == ImportJob.Mode.COPY && CsvFiles.isXlsx(Objects.requireNonNull(file.getOriginalFilename()))) {
+            throw new IllegalStateException("Copy import supports CSV files only");
+        }
+        CsvFiles.forName(charset);
+        final ImportJob job = new ImportJob(file.getOriginalFilename(), mode, source, expireMissing, charset);
+        final Path tempFile;
+        try {
+            tempFile = Files.createTempFile("import-" + job.getId(), ".tmp");
+            file.transferTo(tempFile);
+        } catch (final IOException ex) {
+            throw new IllegalStateException("Check uploaded file is correct", ex);
+        }
+        addJob(job);
+        try {
+            this.importExecutor.execute(() -> runJob(job, tempFile, delimiter));
+        } catch (final TaskRejectedException ex) {
+            synchronized (this.jobs) {
+                this.jobs.remove(job.getId());
+            }
+            deleteFile(tempFile);
+            throw new IllegalStateException("Too many imports in progress, try again later");
+        }
+        return job;
+    }
+
+    @Override
+    public ImportJob findById(final UUID id) {
+        final ImportJob job;
+        synchronized (this.jobs) {
+            job = this.jobs.get(id);
+        }
+        if (Objects.isNull(job)) {
+            throw new IllegalStateException(errEntityNotFoundMessage("Import", "id", id.toString()));
+        }
+        return job;
+    }
+
+    /**
+     * The oldest finished jobs are dropped beyond the size of history, jobs in progress are kept,
+     * their number is bounded by the import executor
+     */
+    private void addJob(final ImportJob job) {
+        synchronized (this.jobs) {
+            this.jobs.put(job.getId(), job);
+            final Iterator<ImportJob> oldest = this.jobs.values().iterator();
+            while (this.jobs.size() > this.historySize && oldest.hasNext()) {
+                final ImportJob.Status status = oldest.next().getStatus();
+                if (status == ImportJob.Status.DONE || status == ImportJob.Status.FAILED) {
+                    oldest.remove();
+                }
+            }
+        }
+    }
+
+    private void checkIncremental(final ImportJob.Mode mode, final String source, final boolean expireMissing) {
+        if (Objects.isNull(source)) {
+            if (expireMissing) {
+                throw new IllegalStateException("Missing rows are expired by incremental import only, source is required");
+            }
+            return;
+        }
+        if (source.isBlank() || source.length() > MAX_SOURCE_LENGTH) {
+            throw new IllegalStateException("Source must be from 1 to " + MAX_SOURCE_LENGTH + " characters");
+        }
+        if (mode != ImportJob.Mode.BATCH) {
+            throw new IllegalStateException("Incremental import is supported by BATCH mode only");
+        }
+    }
+
+    private void runJob(final ImportJob job, final Path file, final String delimiter) {
+        try {
+            if (CsvFiles.isXlsx(job.getFileName())) {
+                this.csvDiscountLoaderService.loadDiscountsFromXlsx(file, job);
+            } else {
+                try (InputStream input = Files.newInputStream(file)) {
+                    if (job.getMode() == ImportJob.Mode.COPY) {
+                        this.csvDiscountLoaderService.copyDiscountsFromCsv(input, delimiter, job);
+                    } else {
+                        this.csvDiscountLoaderService.loadDiscountsFromCsv(input, delimiter, job);
+                    }
+                }
+            }
+        } catch (final IOException | RuntimeException ex) {
+            log.warn("Import {} of {} failed", job.getId(), job.getFileName(), ex);
+            if (job.getStatus() != ImportJob.Status.FAILED) {
+                job.fail(ex.getMessage());
+            }
+        } finally {
+            deleteFile(file);
+        }
+    }
+
+    private void deleteFile(final Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (final IOException ex) {
+            log.warn("Temporary file {} was not deleted", file, ex);
+        }
+    }
+}
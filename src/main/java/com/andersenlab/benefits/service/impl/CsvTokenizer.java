@@ -0,0 +1,117 @@
+package com.andersenlab.benefits.service.impl;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+
+/**
+ * Streaming tokenizer of CSV as described by RFC 4180.
+ * Fields may be enclosed in double quotes, quoted fields may contain the delimiter,
+ * line breaks and doubled double quotes. Records end with LF, CRLF or CR.
+ * Is not thread safe, one tokenizer reads one stream.
+ *
+ * @version 1.0
+ */
+public final class CsvTokenizer implements RecordReader {
+    private static final int BUFFER_SIZE = 8192;
+    private static final char QUOTE = '"';
+
+    private final Reader reader;
+    private final char delimiter;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private final StringBuilder field = new StringBuilder(64);
+    private int position;
+    private int limit;
+    private long recordNumber;
+
+    public CsvTokenizer(final Reader reader, final char delimiter) {
+        if (delimiter == QUOTE || delimiter == '\n' || delimiter == '\r') {
+            throw new IllegalStateException("Incorrect delimiter " + delimiter);
+        }
+        this.reader = reader;
+        this.delimiter = delimiter;
+    }
+
+    /**
+     * @throws IllegalStateException if quoted field is not closed till the end of input
+     */
+    @Override
+    public boolean next(final List<String> fields) throws IOException {
+        fields.clear();
+        int c = read();
+        if (c < 0) {
+            return false;
+        }
+        this.recordNumber++;
+        this.field.setLength(0);
+        boolean fieldStart = true;
+        while (true) {
+            if (c == this.delimiter) {
+                fields.add(this.field.toString());
+                this.field.setLength(0);
+                fieldStart = true;
+            } else if (c < 0 || c == '\n' || c == '\r') {
+                if (c == '\r' && peek() == '\n') {
+                    read();
+                }
+                fields.add(this.field.toString());
+                return true;
+            } else if (c == QUOTE && fieldStart) {
+                readQuoted();
+                fieldStart = false;
+            } else {
+                this.field.append((char) c);
+                fieldStart = false;
+            }
+            c = read();
+        }
+    }
+
+    /**
+     * @return number of the last read record, starting from 1
+     */
+    public long getRecordNumber() {
+        return this.recordNumber;
+    }
+
+    private void readQuoted() throws IOException {
+        while (true) {
+            final int c = read();
+            if (c < 0) {
+                throw new IllegalStateException("Quoted field is not closed in record " + this.recordNumber);
+            }
+            if (c != QUOTE) {
+                this.field.append((char) c);
+            } else if (peek() == QUOTE) {
+                this.field.append(QUOTE);
+                read();
+            } else {
+                return;
+            }
+        }
+    }
+
+    private int read() throws IOException {
+        if (this.position == this.limit && !fill()) {
+            return -1;
+        }
+        return this.buffer[this.position++];
+    }
+
+    private int peek() throws IOException {
+        if (this.position == this.limit && !fill()) {
+            return -1;
+        }
+        return this.buffer[this.position];
+    }
+
+    private boolean fill() throws IOException {
+        final int count = this.reader.read(this.buffer, 0, this.buffer.length);
+        if (count <= 0) {
+            return false;
+        }
+        this.position = 0;
+        this.limit = count;
+        return true;
+    }
+}
@@ -0,0 +1,96 @@
+package com.andersenlab.benefits.service.impl;
+
+import com.andersenlab.benefits.domain.DiscountEntity;
+import com.andersenlab.benefits.domain.DiscountFilter;
+import com.andersenlab.benefits.domain.DiscountsChangedEvent;
+import com.andersenlab.benefits.repository.DiscountRepository;
+import com.andersenlab.benefits.repository.DiscountSpec;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Discounts not finished yet held in memory as {@link DiscountCatalogSnapshot} to answer listings
+ * of discounts active from the day of the load on by category, city and size without the database.
+ * Readers take the current snapshot without locking. A change of discounts merges the changed discounts
+ * into a new snapshot, an import or a sweep of expired discounts reloads all discounts,
+ * then the new snapshot replaces the current one at once. Until the first snapshot is loaded,
+ * as well as for listings of any date or of past dates, the listings are read from the database.
+ *
+ * @version 1.0
+ * @see DiscountsChangedEvent
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "benefits.catalog.in-memory", havingValue = "true")
+public class DiscountCatalog {
+    private final DiscountRepository discountRepository;
+    private volatile DiscountCatalogSnapshot snapshot;
+
+    @Autowired
+    public DiscountCatalog(final DiscountRepository discountRepository) {
+        this.discountRepository = discountRepository;
+    }
+
+    /**
+     * @param filter filters of discounts, null filters are not applied
+     * @param pageable page of discounts, sorted by dateBegin or sizeMax and id
+     * @return page of found discounts, empty if the catalog can not answer the query
+     */
+    public Optional<Page<DiscountEntity>> find(final DiscountFilter filter, final Pageable pageable) {
+        final DiscountCatalogSnapshot current = this.snapshot;
+        if (Objects.isNull(current) || !current.supports(filter, pageable.getSort())) {
+            return Optional.empty();
+        }
+        return Optional.of(current.find(filter, pageable));
+    }
+
+    /**
+     * @param filter filter by category, city and size
+     * @param limit number of discounts to return
+     * @return the most similar discounts, empty if the catalog can not answer the query
+     */
+    public Optional<List<DiscountEntity>> findSimilar(final DiscountFilter filter, final int limit) {
+        final DiscountCatalogSnapshot current = this.snapshot;
+        if (Objects.isNull(current) || !current.covers(filter)) {
+            return Optional.empty();
+        }
+        return Optional.of(current.findSimilar(filter, LocalDate.now(), limit));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void load() {
+        final long start = System.nanoTime();
+        final LocalDate today = LocalDate.now();
+        this.snapshot = DiscountCatalogSnapshot.of(today,
+                this.discountRepository.findAll(DiscountSpec.getNotFinishedBefore(today)));
+        log.info("Catalog of {} discounts loaded in {} ms", this.snapshot.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Changes made before the first snapshot are read by its load
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onDiscountsChanged(final DiscountsChangedEvent event) {
+        final DiscountCatalogSnapshot current = this.snapshot;
+        if (Objects.isNull(current)) {
+            return;
+        }
+        if (event.isAll()) {
+            load();
+        } else {
+            this.snapshot = current.with(event.ids(), this.discountRepository.findAllById(event.ids()));
+        }
+    }
+}
@@ -0,0 +1,331 @@
+package com.andersenlab.benefits.service.impl;
+
+import com.andersenlab.benefits.domain.CategoryEntity;
+import com.andersenlab.benefits.domain.DiscountEntity;
+import com.andersenlab.benefits.domain.DiscountEntity_;
+import com.andersenlab.benefits.domain.DiscountFilter;
+import com.andersenlab.benefits.domain.LocationEntity;
+import com.andersenlab.benefits.repository.DiscountRepository;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * Immutable columnar copy of discounts which did not finish before the day of the snapshot, so it answers
+ * queries of discounts active on that day or later only. Rows are ordered by id, sizes and dates are held
+ * in primitive arrays, categories and cities are held as dictionaries of their values with a bitset of rows per value.
+ * Filters are evaluated as operations on bitsets and scans of arrays, pages are read along the orders
+ * of rows, so a query does not sort and does not allocate per discount.
+ * A snapshot is never changed, a change of discounts makes a new snapshot. Its orders of rows are merged
+ * from the orders of the previous snapshot and the sorted changed discounts, so only the load sorts all rows.
+ *
+ * @version 1.0
+ */
+final class DiscountCatalogSnapshot {
+    private static final int NO_END = Integer.MAX_VALUE;
+
+    private final LocalDate day;
+    private final DiscountEntity[] discounts;
+    private final int[] sizeMin;
+    private final int[] sizeMax;
+    private final int[] dateBegin;
+    private final int[] dateFinish;
+    private final int[] categoryCount;
+    private final int[] locationCount;
+    private final Map<String, BitSet> categories;
+    private final String[] cities;
+    private final BitSet[] cityRows;
+    private final int[] byDateBegin;
+    private final int[] bySizeMax;
+
+    /**
+     * @param discounts discounts ordered by id
+     * @param keptByDateBegin rows of discounts kept from the previous snapshot in its order by dateBegin
+     * @param keptBySizeMax rows of discounts kept from the previous snapshot in its order by sizeMax
+     * @param added rows of the other discounts
+     */
+    private DiscountCatalogSnapshot(final LocalDate day, final DiscountEntity[] discounts,
+                                    final int[] keptByDateBegin, final int[] keptBySizeMax, final int[] added) {
+        this.day = day;
+        this.discounts = discounts;
+        final int size = this.discounts.length;
+        this.sizeMin = new int[size];
+        this.sizeMax = new int[size];
+        this.dateBegin = new int[size];
+        this.dateFinish = new int[size];
+        this.categoryCount = new int[size];
+        this.locationCount = new int[size];
+        this.categories = new HashMap<>();
+        final Map<String, BitSet> cityRows = new HashMap<>();
+        for (int row = 0; row < size; row++) {
+            final DiscountEntity discount = this.discounts[row];
+            // a discount without a size is not found by size, as by the database
+            this.sizeMin[row] = Objects.isNull(discount.getSizeMin()) ? Integer.MAX_VALUE : discount.getSizeMin();
+            this.sizeMax[row] = Objects.isNull(discount.getSizeMax()) ? Integer.MIN_VALUE : discount.getSizeMax();
+            this.dateBegin[row] = toEpochDay(discount.getDateBegin());
+            this.dateFinish[row] = Objects.isNull(discount.getDateFinish()) ? NO_END : toEpochDay(discount.getDateFinish());
+            this.categoryCount[row] = discount.getCategories().size();
+            this.locationCount[row] = discount.getArea().size();
+            for (final CategoryEntity category : discount.getCategories()) {
+                this.categories.computeIfAbsent(category.getTitle(), title -> new BitSet(size)).set(row);
+            }
+            for (final LocationEntity location : discount.getArea()) {
+                cityRows.computeIfAbsent(location.getCity().toLowerCase(Locale.ROOT), city -> new BitSet(size)).set(row);
+            }
+        }
+        this.cities = cityRows.keySet().toArray(String[]::new);
+        this.cityRows = Arrays.stream(this.cities).map(cityRows::get).toArray(BitSet[]::new);
+        this.byDateBegin = merge(keptByDateBegin, added, this.dateBegin);
+        this.bySizeMax = merge(keptBySizeMax, added, this.sizeMax);
+    }
+
+    /**
+     * @param day day of the snapshot, discounts finished before it are skipped
+     */
+    static DiscountCatalogSnapshot of(final LocalDate day, final List<DiscountEntity> discounts) {
+        final DiscountEntity[] live = discounts.stream()
+                .filter(discount -> isLive(discount, day))
+                .sorted(Comparator.comparing(DiscountEntity::getId))
+                .toArray(DiscountEntity[]::new);
+        return new DiscountCatalogSnapshot(day, live, new int[0], new int[0], IntStream.range(0, live.length).toArray());
+    }
+
+    /**
+     * Merges the changed discounts into the rows of this snapshot in O(n + k log k) for k changed discounts
+     *
+     * @param ids ids of changed discounts
+     * @param changed current state of the changed discounts, deleted discounts are missing
+     * @return new snapshot with the changed discounts, this snapshot is not changed
+     */
+    DiscountCatalogSnapshot with(final Collection<Long> ids, final List<DiscountEntity> changed) {
+        final Set<Long> replaced = new HashSet<>(ids);
+        changed.forEach(discount -> replaced.add(discount.getId()));
+        final List<DiscountEntity> added = changed.stream()
+                .filter(discount -> isLive(discount, this.day))
+                .sorted(Comparator.comparing(DiscountEntity::getId))
+                .toList();
+        final DiscountEntity[] result = new DiscountEntity[this.discounts.length + added.size()];
+        // new row of each row of this snapshot, -1 for replaced discounts
+        final int[] rows = new int[this.discounts.length];
+        final int[] addedRows = new int[added.size()];
+        int next = 0;
+        int position = 0;
+        for (int row = 0; row < this.discounts.length; row++) {
+            final DiscountEntity discount = this.discounts[row];
+            while (next < added.size() && added.get(next).getId() < discount.getId()) {
+                addedRows[next] = position;
+                result[position++] = added.get(next++);
+            }
+            if (replaced.contains(discount.getId())) {
+                rows[row] = -1;
+            } else {
+                rows[row] = position;
+                result[position++] = discount;
+            }
+        }
+        while (next < added.size()) {
+            addedRows[next] = position;
+            result[position++] = added.get(next++);
+        }
+        return new DiscountCatalogSnapshot(this.day, Arrays.copyOf(result, position),
+                renumber(this.byDateBegin, rows), renumber(this.bySizeMax, rows), addedRows);
+    }
+
+    int size() {
+        return this.discounts.length;
+    }
+
+    /**
+     * @return whether the snapshot holds all discounts the filter can find, that is the filter asks
+     *         for discounts active on the day of the snapshot or later. Search by type is done by words
+     *         and is not supported.
+     */
+    boolean covers(final DiscountFilter filter) {
+        return Objects.isNull(filter.type())
+                && !Objects.isNull(filter.activeOn())
+                && !filter.activeOn().isBefore(this.day);
+    }
+
+    /**
+     * Orders other than by {@link DiscountEntity#getDateBegin()} or {@link DiscountEntity#getSizeMax()} with id
+     * are not supported
+     */
+    boolean supports(final DiscountFilter filter, final Sort sort) {
+        if (!covers(filter)) {
+            return false;
+        }
+        final List<Sort.Order> orders = sort.toList();
+        return orders.size() == 2
+                && (orders.get(0).getProperty().equals(DiscountEntity_.DATE_BEGIN) || orders.get(0).getProperty().equals(DiscountEntity_.SIZE_MAX))
+                && orders.get(1).getProperty().equals(DiscountEntity_.ID)
+                && orders.get(0).getDirection() == orders.get(1).getDirection()
+                && !orders.get(0).isIgnoreCase();
+    }
+
+    /**
+     * @param filter filter supported by {@link #supports(DiscountFilter, Sort)}
+     * @param pageable page with supported sort
+     */
+    Page<DiscountEntity> find(final DiscountFilter filter, final Pageable pageable) {
+        final BitSet matched = match(filter);
+        final Sort.Order order = pageable.getSort().toList().get(0);
+        final int[] rows = order.getProperty().equals(DiscountEntity_.SIZE_MAX) ? this.bySizeMax : this.byDateBegin;
+        final int total = matched.cardinality();
+        final int from = (int) Math.min(pageable.getOffset(), total);
+        final int to = (int) Math.min(pageable.getOffset() + pageable.getPageSize(), total);
+        final List<DiscountEntity> content = new ArrayList<>(to - from);
+        int position = 0;
+        for (int i = 0; i < rows.length && position < to; i++) {
+            final int row = rows[order.isAscending() ? i : rows.length - 1 - i];
+            if (matched.get(row)) {
+                if (position >= from) {
+                    content.add(this.discounts[row]);
+                }
+                position++;
+            }
+        }
+        return new PageImpl<>(content, pageable, total);
+    }
+
+    /**
+     * Ranks found discounts by the score of {@link DiscountRepository#findSimilar(String, int, String, LocalDate, int)}
+     * keeping only the best of them in a bounded heap
+     *
+     * @param filter filter by category, city and size, covered by {@link #covers(DiscountFilter)}
+     * @param today date of freshness of discounts
+     * @param limit number of discounts to return
+     * @return the most similar discounts, the best first
+     */
+    List<DiscountEntity> findSimilar(final DiscountFilter filter, final LocalDate today, final int limit) {
+        final BitSet matched = match(filter);
+        final int[] cityMatches = new int[Objects.isNull(filter.city()) ? 0 : this.discounts.length];
+        if (!Objects.isNull(filter.city())) {
+            final String city = filter.city().toLowerCase(Locale.ROOT);
+            for (int i = 0; i < this.cities.length; i++) {
+                if (this.cities[i].contains(city)) {
+                    this.cityRows[i].stream().forEach(row -> cityMatches[row]++);
+                }
+            }
+        }
+        final int day = (int) today.toEpochDay();
+        final double[] scores = new double[this.discounts.length];
+        // the worst of the kept discounts is at the head: the lowest score, then the largest id
+        final Comparator<Integer> worstFirst = Comparator.<Integer>comparingDouble(row -> scores[row])
+                .thenComparing(Comparator.<Integer>naturalOrder().reversed());
+        final PriorityQueue<Integer> best = new PriorityQueue<>(limit + 1, worstFirst);
+        for (int row = matched.nextSetBit(0); row >= 0; row = matched.nextSetBit(row + 1)) {
+            final double locations = Objects.isNull(filter.city()) ? 1 : (double) cityMatches[row] / this.locationCount[row];
+            scores[row] = 2.0 / this.categoryCount[row]
+                    + locations
+                    + 2 * (1 - Math.abs(filter.sizeDiscount() - (this.sizeMin[row] + this.sizeMax[row]) / 2.0) / 100)
+                    + 30.0 / (30 + Math.max(day - this.dateBegin[row], 0));
+            best.add(row);
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+        final DiscountEntity[] result = new DiscountEntity[best.size()];
+        for (int i = result.length - 1; i >= 0; i--) {
+            result[i] = this.discounts[best.poll()];
+        }
+        return Arrays.asList(result);
+    }
+
+    private BitSet match(final DiscountFilter filter) {
+        final BitSet matched = new BitSet(this.discounts.length);
+        matched.set(0, this.discounts.length);
+        if (!Objects.isNull(filter.category())) {
+            matched.and(this.categories.getOrDefault(filter.category(), new BitSet()));
+        }
+        if (!Objects.isNull(filter.city())) {
+            final String city = filter.city().toLowerCase(Locale.ROOT);
+            final BitSet inCities = new BitSet(this.discounts.length);
+            for (int i = 0; i < this.cities.length; i++) {
+                if (this.cities[i].contains(city)) {
+                    inCities.or(this.cityRows[i]);
+                }
+            }
+            matched.and(inCities);
+        }
+        if (!Objects.isNull(filter.sizeDiscount())) {
+            final int size = filter.sizeDiscount();
+            for (int row = matched.nextSetBit(0); row >= 0; row = matched.nextSetBit(row + 1)) {
+                if (this.sizeMin[row] > size || this.sizeMax[row] < size) {
+                    matched.clear(row);
+                }
+            }
+        }
+        if (!Objects.isNull(filter.activeOn())) {
+            final int day = (int) filter.activeOn().toEpochDay();
+            for (int row = matched.nextSetBit(0); row >= 0; row = matched.nextSetBit(row + 1)) {
+                if (this.dateBegin[row] > day || this.dateFinish[row] < day) {
+                    matched.clear(row);
+                }
+            }
+        }
+        return matched;
+    }
+
+    /**
+     * @param kept rows ordered by the column ascending, then by id
+     * @param added other rows in any order
+     * @return all rows ordered by the column ascending, then by id
+     */
+    private static int[] merge(final int[] kept, final int[] added, final int[] column) {
+        final int[] sorted = IntStream.of(added).boxed()
+                .sorted((left, right) -> compare(column, left, right))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        final int[] result = new int[kept.length + sorted.length];
+        int i = 0;
+        int j = 0;
+        for (int position = 0; position < result.length; position++) {
+            if (j == sorted.length || i < kept.length && compare(column, kept[i], sorted[j]) < 0) {
+                result[position] = kept[i++];
+            } else {
+                result[position] = sorted[j++];
+            }
+        }
+        return result;
+    }
+
+    private static int compare(final int[] column, final int left, final int right) {
+        final int byColumn = Integer.compare(column[left], column[right]);
+        return byColumn != 0 ? byColumn : Integer.compare(left, right);
+    }
+
+    /**
+     * @param order rows of the previous snapshot in an order
+     * @param rows new row of each previous row, -1 for removed rows
+     * @return new rows of the kept rows in the same order
+     */
+    private static int[] renumber(final int[] order, final int[] rows) {
+        return IntStream.of(order).map(row -> rows[row]).filter(row -> row >= 0).toArray();
+    }
+
+    private static boolean isLive(final DiscountEntity discount, final LocalDate day) {
+        return Objects.isNull(discount.getDateFinish()) || toEpochDay(discount.getDateFinish()) >= day.toEpochDay();
+    }
+
+    private static int toEpochDay(final Date date) {
+        return (int) new java.sql.Date(date.getTime()).toLocalDate().toEpochDay();
+    }
+}
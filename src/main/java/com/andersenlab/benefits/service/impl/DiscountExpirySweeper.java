@@ -0,0 +1,55 @@
+package com.andersenlab.benefits.service.impl;
+
+import com.andersenlab.benefits.domain.DiscountsChangedEvent;
+import com.andersenlab.benefits.domain.EntityChangedEvent;
+import com.andersenlab.benefits.repository.DiscountRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Marks discounts finished before today as expired, so they leave the indexes of live discounts.
+ * Discounts are marked in short transactions of a batch each, rows locked by other transactions
+ * are skipped and marked by the next sweep. After each committed batch the caches of discounts of all nodes,
+ * the catalog and versions of listings are refreshed, as the flag is not changed through the entities.
+ *
+ * @version 1.0
+ */
+@Slf4j
+@Service
+public class DiscountExpirySweeper {
+    private final DiscountRepository discountRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int batchSize;
+
+    @Autowired
+    public DiscountExpirySweeper(final DiscountRepository discountRepository,
+                                 final ApplicationEventPublisher eventPublisher,
+                                 @Value("${benefits.discounts.expiry-sweep.batch-size:1000}") final int batchSize) {
+        this.discountRepository = discountRepository;
+        this.eventPublisher = eventPublisher;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @return number of discounts marked as expired
+     */
+    @Scheduled(cron = "${benefits.discounts.expiry-sweep.cron:0 5 0 * * *}")
+    public int sweep() {
+        int total = 0;
+        int expired;
+        do {
+            expired = this.discountRepository.expireFinished(this.batchSize);
+            if (expired > 0) {
+                this.eventPublisher.publishEvent(EntityChangedEvent.all(EntityChangedEvent.Type.DISCOUNT));
+                this.eventPublisher.publishEvent(DiscountsChangedEvent.all());
+            }
+            total += expired;
+        } while (expired == this.batchSize);
+        log.info("{} finished discounts marked as expired", total);
+        return total;
+    }
+}
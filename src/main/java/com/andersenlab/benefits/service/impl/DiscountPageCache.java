@@ -0,0 +1,90 @@
+package com.andersenlab.benefits.service.impl;
+
+import com.andersenlab.benefits.config.CacheConfig;
+import com.andersenlab.benefits.domain.CatalogChangedEvent;
+import com.andersenlab.benefits.domain.DiscountEntity;
+import com.andersenlab.benefits.domain.DiscountFilter;
+import com.andersenlab.benefits.repository.DiscountRepository;
+import com.andersenlab.benefits.repository.DiscountSpec;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Pages of discounts found by filter, held as ids of discounts in the order of the page and the total.
+ * Discounts of a cached page are read by ids from the second-level cache, so the page is served without the database.
+ * Filters are normalized for the key, so cities differing by case and types differing by punctuation share a page.
+ * A page is served while the version of discounts is the one it was read at. The version is changed
+ * after commit of each change of discounts, so a page read during a change is not served after it.
+ *
+ * @version 1.0
+ * @see CatalogVersions
+ */
+@Service
+public class DiscountPageCache {
+    private final DiscountRepository discountRepository;
+    private final CatalogVersions catalogVersions;
+    private final Cache cache;
+
+    /**
+     * Normalized filter and page
+     */
+    record Key(String category, String city, String type, Integer sizeDiscount, LocalDate activeOn,
+               long offset, int size, Sort sort) {
+
+        static Key of(final DiscountFilter filter, final Pageable pageable) {
+            return new Key(filter.category(),
+                    Objects.isNull(filter.city()) ? null : filter.city().toLowerCase(Locale.ROOT),
+                    Objects.isNull(filter.type()) ? null : filter.type().toLowerCase(Locale.ROOT),
+                    filter.sizeDiscount(), filter.activeOn(), pageable.getOffset(), pageable.getPageSize(), pageable.getSort());
+        }
+    }
+
+    /**
+     * @param version version of discounts the page was read at
+     */
+    record Entry(long version, List<Long> ids, long total) {
+    }
+
+    @Autowired
+    public DiscountPageCache(final DiscountRepository discountRepository,
+                             final CatalogVersions catalogVersions,
+                             final CacheManager cacheManager) {
+        this.discountRepository = discountRepository;
+        this.catalogVersions = catalogVersions;
+        this.cache = Objects.requireNonNull(cacheManager.getCache(CacheConfig.DISCOUNT_PAGES));
+    }
+
+    /**
+     * @param filter filters of discounts, null filters are not applied
+     * @param pageable page of discounts
+     * @return page of found discounts
+     */
+    public Page<DiscountEntity> find(final DiscountFilter filter, final Pageable pageable) {
+        // read before the discounts, so a change committed meanwhile makes the page outdated
+        final long version = this.catalogVersions.get(CatalogChangedEvent.Table.DISCOUNTS);
+        final Key key = Key.of(filter, pageable);
+        final Entry entry = this.cache.get(key, Entry.class);
+        if (!Objects.isNull(entry) && entry.version() == version) {
+            final List<DiscountEntity> discounts = this.discountRepository.findAllInOrder(entry.ids());
+            // a discount deleted past the services leaves the page to be read again
+            if (discounts.size() == entry.ids().size()) {
+                return new PageImpl<>(discounts, pageable, entry.total());
+            }
+        }
+        final Page<DiscountEntity> page = this.discountRepository.findAll(DiscountSpec.getByFilter(filter), pageable);
+        this.cache.put(key, new Entry(version, page.getContent().stream().map(DiscountEntity::getId).toList(),
+                page.getTotalElements()));
+        return page;
+    }
+}
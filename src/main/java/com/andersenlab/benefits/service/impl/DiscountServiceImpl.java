@@ -1,6 +1,14 @@
 package com.andersenlab.benefits.service.impl;
 
+import com.andersenlab.benefits.domain.DiscountCursor;
 import com.andersenlab.benefits.domain.DiscountEntity;
+import com.andersenlab.benefits.domain.DiscountEntity_;
+import com.andersenlab.benefits.domain.DiscountFacets;
+import com.andersenlab.benefits.domain.DiscountFilter;
+import com.andersenlab.benefits.domain.DiscountSlice;
+import com.andersenlab.benefits.domain.DiscountsChangedEvent;
+import com.andersenlab.benefits.domain.EntityChangedEvent;
+import com.andersenlab.benefits.repository.DiscountFacetRepository;
 import com.andersenlab.benefits.repository.DiscountRepository;
 import com.andersenlab.benefits.repository.DiscountSpec;
 import com.andersenlab.benefits.service.CategoryService;
@@ -8,14 +16,21 @@ import com.andersenlab.benefits.service.CompanyService;
 import com.andersenlab.benefits.service.DiscountService;
 import com.andersenlab.benefits.service.LocationService;
 import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 
 import static com.andersenlab.benefits.service.impl.ValidateUtils.*;
 
@@ -31,21 +46,35 @@ import static com.andersenlab.benefits.service.impl.ValidateUtils.*;
 
 @Service
 public class DiscountServiceImpl implements DiscountService {
+    public static final int MAX_PART_SIZE = 100;
+
     private final DiscountRepository discountRepository;
+    private final DiscountFacetRepository discountFacetRepository;
     private final CompanyService companyService;
     private final LocationService locationService;
     private final CategoryService categoryService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final DiscountCatalog discountCatalog;
+    private final DiscountPageCache discountPageCache;
 
 
     @Autowired
     public DiscountServiceImpl(final DiscountRepository discountRepository,
+                               final DiscountFacetRepository discountFacetRepository,
                                final CompanyService companyService,
                                final LocationService locationService,
-                               final CategoryService categoryService) {
+                               final CategoryService categoryService,
+                               final ApplicationEventPublisher eventPublisher,
+                               final ObjectProvider<DiscountCatalog> discountCatalog,
+                               final DiscountPageCache discountPageCache) {
         this.discountRepository = discountRepository;
+        this.discountFacetRepository = discountFacetRepository;
         this.companyService = companyService;
         this.locationService = locationService;
         this.categoryService = categoryService;
+        this.eventPublisher = eventPublisher;
+        this.discountCatalog = discountCatalog.getIfAvailable();
+        this.discountPageCache = discountPageCache;
     }
 
     @Override
@@ -64,44 +93,121 @@ public class DiscountServiceImpl implements DiscountService {
         return this.discountRepository.findAll(specificDiscountEntity,pageable);
     }
 
+    /**
+     * Answered by the in-memory catalog if it is enabled and supports the filter,
+     * otherwise by the cache of pages of discounts
+     */
+    @Override
+    public Page<DiscountEntity> getDiscountsByFilter(final DiscountFilter filter, final Pageable pageable) {
+        if (!Objects.isNull(this.discountCatalog)) {
+            final Optional<Page<DiscountEntity>> found = this.discountCatalog.find(filter, pageable);
+            if (found.isPresent()) {
+                return found.get();
+            }
+        }
+        return this.discountPageCache.find(filter, pageable);
+    }
+
+    @Override
+    public Page<DiscountEntity> search(final String search, final LocalDate activeOn, final Pageable pageable) {
+        final String query = DiscountSpec.toSearchQuery(search, "");
+        if (Objects.isNull(query)) {
+            throw new IllegalStateException("Search must contain a word");
+        }
+        if (Objects.isNull(activeOn)) {
+            return this.discountRepository.findBySearch(query, pageable);
+        }
+        return this.discountRepository.findActiveBySearch(query, activeOn, pageable);
+    }
+
+    @Override
+    public DiscountSlice getDiscountsByCursor(final Specification<DiscountEntity> specificDiscountEntity,
+                                              final String cursor,
+                                              final Sort.Direction direction,
+                                              final int size) {
+        if (size < 1 || size > MAX_PART_SIZE) {
+            throw new IllegalStateException("Size must be between 1 and " + MAX_PART_SIZE);
+        }
+        Specification<DiscountEntity> spec = Specification.where(specificDiscountEntity);
+        Sort.Direction order = direction;
+        if (!Objects.isNull(cursor)) {
+            final DiscountCursor after = DiscountCursor.decode(cursor);
+            spec = spec.and(DiscountSpec.getAfter(after));
+            order = after.direction();
+        }
+        // one more discount tells whether there is the next part
+        final List<DiscountEntity> discounts = this.discountRepository.findAll(spec,
+                Sort.by(order, DiscountEntity_.DATE_BEGIN, DiscountEntity_.ID), size + 1);
+        if (discounts.size() <= size) {
+            return new DiscountSlice(discounts, null);
+        }
+        final List<DiscountEntity> items = new ArrayList<>(discounts.subList(0, size));
+        return new DiscountSlice(items, DiscountCursor.after(items.get(size - 1), order).encode());
+    }
+
+    @Override
+    public DiscountFacets getFacets(final DiscountFilter filter, final Pageable pageable) {
+        final DiscountFacetRepository.Counts counts = this.discountFacetRepository.count(filter,
+                pageable.getOffset(), pageable.getPageSize());
+        final List<DiscountEntity> items = counts.ids().isEmpty() ? List.of()
+                : this.discountRepository.findAllInOrder(counts.ids());
+        return new DiscountFacets(items, counts.total(), counts.categories(), counts.cities(), counts.sizes());
+    }
+
     @Override
     public List<DiscountEntity> getSimilarDiscounts(final String category,
                                                     final Integer sizeDiscount,
                                                     final String city,
+                                                    final LocalDate activeOn,
                                                     final Integer limit) {
-        final Specification<DiscountEntity> specificationCategory = DiscountSpec.getByCategory(category)
-                .and(DiscountSpec.getBySize(sizeDiscount));
-        final Specification<DiscountEntity> specificationFinal;
-        if (Objects.isNull(city)) {
-            specificationFinal = Specification.where(specificationCategory);
-        } else {
-            specificationFinal = Specification.where(specificationCategory
-                    .and(DiscountSpec.getByLocation(city)));
+        if (limit < 1 || limit > MAX_PART_SIZE) {
+            throw new IllegalStateException("Limit must be between 1 and " + MAX_PART_SIZE);
+        }
+        if (!Objects.isNull(this.discountCatalog)) {
+            final Optional<List<DiscountEntity>> found = this.discountCatalog.findSimilar(
+                    new DiscountFilter(category, city, null, sizeDiscount, activeOn), limit);
+            if (found.isPresent()) {
+                return found.get();
+            }
         }
-        return this.discountRepository.findAll(specificationFinal);
+        return this.discountRepository.findSimilar(category, sizeDiscount, city, activeOn, limit);
     }
 
     @Override
+    @Transactional
     public DiscountEntity update(final Long id, final DiscountEntity discount) {
         final DiscountEntity existingDiscount = findById(id);
         validateCompanyLocationCategory(discount);
         validateEntityFieldsAnnotations(discount, false);
+        discount.setId(id);
+        validateNotDuplicated(discount);
         BeanUtils.copyProperties(discount, existingDiscount, "id");
-        return this.discountRepository.save(discount);
+        final DiscountEntity savedDiscount = this.discountRepository.save(discount);
+        this.eventPublisher.publishEvent(EntityChangedEvent.of(EntityChangedEvent.Type.DISCOUNT, id));
+        this.eventPublisher.publishEvent(new DiscountsChangedEvent(List.of(id)));
+        return savedDiscount;
     }
 
     @Override
+    @Transactional
     public DiscountEntity save(final DiscountEntity discount) {
         validateCompanyLocationCategory(discount);
         discount.setId(null);
         validateEntityFieldsAnnotations(discount, true);
-        return this.discountRepository.save(discount);
+        validateNotDuplicated(discount);
+        final DiscountEntity savedDiscount = this.discountRepository.save(discount);
+        this.eventPublisher.publishEvent(EntityChangedEvent.of(EntityChangedEvent.Type.DISCOUNT, savedDiscount.getId()));
+        this.eventPublisher.publishEvent(new DiscountsChangedEvent(List.of(savedDiscount.getId())));
+        return savedDiscount;
     }
 
     @Override
+    @Transactional
     public void delete(final Long id) {
         final DiscountEntity discount = findById(id);
         this.discountRepository.delete(discount);
+        this.eventPublisher.publishEvent(EntityChangedEvent.of(EntityChangedEvent.Type.DISCOUNT, id));
+        this.eventPublisher.publishEvent(new DiscountsChangedEvent(List.of(id)));
     }
 
     private void validateCompanyLocationCategory(final DiscountEntity discount) {
@@ -109,4 +215,14 @@ public class DiscountServiceImpl implements DiscountService {
         discount.getArea().forEach(location -> this.locationService.findById(location.getId()));
         discount.getCategories().forEach(category -> this.categoryService.findById(category.getId()));
     }
+
+    private void validateNotDuplicated(final DiscountEntity discount) {
+        discount.updateContentHash();
+        this.discountRepository.findByContentHash(discount.getContentHash())
+                .filter(existing -> !Objects.equals(existing.getId(), discount.getId()))
+                .ifPresent(existing -> {
+                    throw new IllegalStateException(errAlreadyExistMessage("Discount", "same content as discount id",
+                            existing.getId().toString()));
+                });
+    }
 }
@@ -1,15 +1,24 @@
 package com.andersenlab.benefits.service.impl;
 
+import com.andersenlab.benefits.config.CacheConfig;
+import com.andersenlab.benefits.domain.CatalogChangedEvent;
+import com.andersenlab.benefits.domain.DiscountsChangedEvent;
+import com.andersenlab.benefits.domain.EntityChangedEvent;
 import com.andersenlab.benefits.domain.LocationEntity;
 import com.andersenlab.benefits.repository.LocationRepository;
 import com.andersenlab.benefits.service.LocationService;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
 import javax.transaction.Transactional;
+import java.util.Locale;
 import java.util.Objects;
 import java.util.Optional;
 
@@ -26,13 +35,17 @@ import static com.andersenlab.benefits.service.impl.ValidateUtils.*;
 public class LocationServiceImpl implements LocationService {
 
     private final LocationRepository locationRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
-    public LocationServiceImpl(final LocationRepository locationRepository) {
+    public LocationServiceImpl(final LocationRepository locationRepository,
+                               final ApplicationEventPublisher eventPublisher) {
         this.locationRepository = locationRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     @Override
+    @Cacheable(cacheNames = CacheConfig.LOCATIONS, key = "#id")
     public LocationEntity findById(final Long id) {
         return this.locationRepository.findById(id).orElseThrow(() ->
                 new IllegalStateException(errIdNotFoundMessage("Location", id)));
@@ -46,6 +59,12 @@ public class LocationServiceImpl implements LocationService {
         );
     }
 
+    @Override
+    @Cacheable(cacheNames = CacheConfig.LOCATIONS_BY_CITY, key = "#city", unless = "#result == null")
+    public Optional<LocationEntity> findByCity(final String city) {
+        return this.locationRepository.findByCity(city);
+    }
+
     @Override
     public Page<LocationEntity> findAll(final Pageable pageable) {
         return this.locationRepository.findAll(pageable);
@@ -58,11 +77,14 @@ public class LocationServiceImpl implements LocationService {
 
     @Override
     public Page<LocationEntity> findByCityMask(final String country, final String cityMask, final Pageable pageable) {
-        return this.locationRepository.findByCountryAndCityStartsWith(country, cityMask, pageable);
+        return this.locationRepository.findByCountryAndCityLowerStartsWith(country, cityMask.toLowerCase(Locale.ROOT), pageable);
     }
 
     @Override
     @Transactional
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.LOCATIONS, key = "#id"),
+            @CacheEvict(cacheNames = CacheConfig.LOCATIONS_BY_CITY, allEntries = true)})
     public LocationEntity update(final Long id, final LocationEntity location) {
         if (!Objects.isNull(location.getCity())) {
             final Optional<LocationEntity> theSameLocation = this.locationRepository.findByCity(location.getCity());
@@ -74,10 +96,15 @@ public class LocationServiceImpl implements LocationService {
         final LocationEntity existingLocation = findById(id);
         BeanUtils.copyProperties(location, existingLocation, "id");
         validateEntityFieldsAnnotations(location, false);
-        return this.locationRepository.save(existingLocation);
+        final LocationEntity savedLocation = this.locationRepository.save(existingLocation);
+        this.eventPublisher.publishEvent(EntityChangedEvent.of(EntityChangedEvent.Type.LOCATION, id));
+        // discounts show the location
+        this.eventPublisher.publishEvent(DiscountsChangedEvent.all());
+        return savedLocation;
     }
 
     @Override
+    @Transactional
     public LocationEntity save(final LocationEntity location) {
         this.locationRepository.findByCity(location.getCity()).ifPresent(foundLocation -> {
             throw new IllegalStateException(
@@ -85,10 +112,17 @@ public class LocationServiceImpl implements LocationService {
         );
         location.setId(null);
         validateEntityFieldsAnnotations(location, true);
-        return this.locationRepository.save(location);
+        final LocationEntity savedLocation = this.locationRepository.save(location);
+        this.eventPublisher.publishEvent(EntityChangedEvent.of(EntityChangedEvent.Type.LOCATION, savedLocation.getId()));
+        this.eventPublisher.publishEvent(new CatalogChangedEvent(CatalogChangedEvent.Table.LOCATIONS));
+        return savedLocation;
     }
 
     @Override
+    @Transactional
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.LOCATIONS, key = "#id"),
+            @CacheEvict(cacheNames = CacheConfig.LOCATIONS_BY_CITY, allEntries = true)})
     public void delete(final Long id) {
         final LocationEntity existingLocation = findById(id);
         final Optional<LocationEntity> location = this.locationRepository.findWithAssociatedDiscounts(id);
@@ -97,5 +131,7 @@ public class LocationServiceImpl implements LocationService {
                     errAssociatedEntity("discounts", "Location"));
         }
         this.locationRepository.delete(existingLocation);
+        this.eventPublisher.publishEvent(EntityChangedEvent.of(EntityChangedEvent.Type.LOCATION, id));
+        this.eventPublisher.publishEvent(new CatalogChangedEvent(CatalogChangedEvent.Table.LOCATIONS));
     }
 }
@@ -0,0 +1,22 @@
+package com.andersenlab.benefits.service.impl;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Source of records of an import file, the first record is the header.
+ *
+ * @version 1.0
+ * @see CsvTokenizer
+ * @see XlsxSheetReader
+ */
+public interface RecordReader {
+
+    /**
+     * Reads the next record. Empty line is read as record of one empty field.
+     *
+     * @param fields receives fields of the record, is cleared first
+     * @return false if there are no more records
+     */
+    boolean next(final List<String> fields) throws IOException;
+}
@@ -1,10 +1,16 @@
 package com.andersenlab.benefits.service.impl;
 
+import com.andersenlab.benefits.config.CacheConfig;
+import com.andersenlab.benefits.domain.EntityChangedEvent;
 import com.andersenlab.benefits.domain.RoleEntity;
 import com.andersenlab.benefits.repository.RoleRepository;
 import com.andersenlab.benefits.service.RoleService;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -26,10 +32,13 @@ import static com.andersenlab.benefits.service.impl.ValidateUtils.*;
 @Service
 public class RoleServiceImpl implements RoleService {
     private final RoleRepository roleRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
-    public RoleServiceImpl(final RoleRepository roleRepository) {
+    public RoleServiceImpl(final RoleRepository roleRepository,
+                           final ApplicationEventPublisher eventPublisher) {
         this.roleRepository = roleRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     @Override
@@ -38,12 +47,20 @@ public class RoleServiceImpl implements RoleService {
     }
 
     @Override
+    @Cacheable(cacheNames = CacheConfig.ROLES, key = "#id")
     public RoleEntity findById(final Long id) {
         return this.roleRepository.findById(id).orElseThrow(
                 () -> new IllegalStateException(errIdNotFoundMessage("role", id)));
     }
 
     @Override
+    @Cacheable(cacheNames = CacheConfig.ROLES_BY_CODE, key = "#code", unless = "#result == null")
+    public Optional<RoleEntity> findByCode(final String code) {
+        return this.roleRepository.findByCode(code);
+    }
+
+    @Override
+    @Transactional
     public RoleEntity save(final RoleEntity role) {
         this.roleRepository.findByCode(role.getCode()).ifPresent(roleEntity -> {
                     throw new IllegalStateException(errAlreadyExistMessage("role", "role code", roleEntity.getCode()));
@@ -51,11 +68,16 @@ public class RoleServiceImpl implements RoleService {
         );
         role.setId(null);
         validateEntityFieldsAnnotations(role, true);
-        return this.roleRepository.save(role);
+        final RoleEntity savedRole = this.roleRepository.save(role);
+        this.eventPublisher.publishEvent(EntityChangedEvent.of(EntityChangedEvent.Type.ROLE, savedRole.getId()));
+        return savedRole;
     }
 
     @Override
     @Transactional
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.ROLES, key = "#id"),
+            @CacheEvict(cacheNames = CacheConfig.ROLES_BY_CODE, allEntries = true)})
     public RoleEntity update(final Long id, final RoleEntity roleEntity) {
         if (!Objects.isNull(roleEntity.getCode())) {
             final Optional<RoleEntity> theSameCodeRole = this.roleRepository.findByCode(roleEntity.getCode());
@@ -68,10 +90,16 @@ public class RoleServiceImpl implements RoleService {
         BeanUtils.copyProperties(roleEntity, existingRole, "id");
         final RoleEntity role = new RoleEntity(id, existingRole.getName(), existingRole.getCode());
         validateEntityFieldsAnnotations(role, false);
-        return this.roleRepository.save(existingRole);
+        final RoleEntity savedRole = this.roleRepository.save(existingRole);
+        this.eventPublisher.publishEvent(EntityChangedEvent.of(EntityChangedEvent.Type.ROLE, id));
+        return savedRole;
     }
 
     @Override
+    @Transactional
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.ROLES, key = "#id"),
+            @CacheEvict(cacheNames = CacheConfig.ROLES_BY_CODE, allEntries = true)})
     public void delete(final Long id) {
         final RoleEntity existingRole = findById(id);
         final Optional<RoleEntity> roleEntity = this.findWithAssociatedUsers(id);
@@ -79,6 +107,7 @@ public class RoleServiceImpl implements RoleService {
             throw new IllegalStateException(errAssociatedEntity("role", "discount"));
         }
         this.roleRepository.delete(existingRole);
+        this.eventPublisher.publishEvent(EntityChangedEvent.of(EntityChangedEvent.Type.ROLE, id));
     }
 
     @Override
@@ -6,6 +6,8 @@ import com.andersenlab.benefits.domain.UserEntity;
 import com.andersenlab.benefits.repository.LocationRepository;
 import com.andersenlab.benefits.repository.RoleRepository;
 import com.andersenlab.benefits.repository.UserRepository;
+import com.andersenlab.benefits.service.LocationService;
+import com.andersenlab.benefits.service.RoleService;
 import com.andersenlab.benefits.service.UserService;
 import org.keycloak.OAuth2Constants;
 import org.keycloak.admin.client.CreatedResponseUtil;
@@ -47,17 +49,23 @@ public class UserServiceImpl implements UserService {
     private final UserRepository userRepository;
     private final RoleRepository roleRepository;
     private final LocationRepository locationRepository;
+    private final RoleService roleService;
+    private final LocationService locationService;
     private final Keycloak keycloak;
 
     @Autowired
     public UserServiceImpl(final Environment env,
                            final UserRepository userRepository,
                            final RoleRepository roleRepository,
-                           final LocationRepository locationRepository) {
+                           final LocationRepository locationRepository,
+                           final RoleService roleService,
+                           final LocationService locationService) {
         this.env = env;
         this.userRepository = userRepository;
         this.roleRepository = roleRepository;
         this.locationRepository = locationRepository;
+        this.roleService = roleService;
+        this.locationService = locationService;
         this.keycloak = initKeycloak();
 
     }
@@ -95,9 +103,9 @@ public class UserServiceImpl implements UserService {
     public UserEntity createNewUser(final String login, final String password) {
         this.userRepository.findByLogin(login).ifPresent(foundUser -> {
             throw new IllegalStateException(errAlreadyExistMessage("User", "login", login));});
-        final RoleEntity role = this.roleRepository.findByCode("ROLE_USER").orElseThrow(() ->
+        final RoleEntity role = this.roleService.findByCode("ROLE_USER").orElseThrow(() ->
                 new IllegalStateException("No suitable role for ordinary users"));
-        final LocationEntity location = this.locationRepository.findByCity("Минск").orElseThrow(() ->
+        final LocationEntity location = this.locationService.findByCity("Минск").orElseThrow(() ->
                 new IllegalStateException("No base location Белоруссия/Минск found"));
         final UserEntity user = new UserEntity(login, role, location);
         validateEntityFieldsAnnotations(user, true);
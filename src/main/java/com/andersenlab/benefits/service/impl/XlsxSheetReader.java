@@ -0,0 +1,340 @@
+package com.andersenlab.benefits.service.impl;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Streaming reader of the first sheet of .xlsx workbook.
+ * The sheet is parsed by StAX as it is read from the archive, so memory does not depend on the number of rows,
+ * only the table of shared strings is held. Cells are read as they are shown in CSV files:
+ * dates as dd.MM.yyyy, numbers without exponent, empty cells as empty fields.
+ * Rows are padded to the width of the header.
+ *
+ * @version 1.0
+ */
+public final class XlsxSheetReader implements RecordReader, Closeable {
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+    private static final LocalDate EPOCH_1900 = LocalDate.of(1899, 12, 30);
+    private static final LocalDate EPOCH_1904 = LocalDate.of(1904, 1, 1);
+
+    private final ZipFile zip;
+    private final XMLInputFactory factory;
+    private final List<String> sharedStrings;
+    private final BitSet dateStyles;
+    private final LocalDate epoch;
+    private final XMLStreamReader sheet;
+    private final InputStream sheetInput;
+    private int width = -1;
+
+    public XlsxSheetReader(final Path file) throws IOException {
+        this.zip = new ZipFile(file.toFile());
+        try {
+            this.factory = XMLInputFactory.newInstance();
+            this.factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+            this.factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+            final Map<String, String> workbook = readWorkbook();
+            this.epoch = Objects.equals(workbook.get("date1904"), "1") || Objects.equals(workbook.get("date1904"), "true")
+                    ? EPOCH_1904 : EPOCH_1900;
+            final String sheetPath = readSheetPath(workbook.get("sheet"));
+            this.sharedStrings = readSharedStrings();
+            this.dateStyles = readDateStyles();
+            this.sheetInput = this.zip.getInputStream(getEntry(sheetPath));
+            this.sheet = this.factory.createXMLStreamReader(this.sheetInput);
+        } catch (final XMLStreamException ex) {
+            this.zip.close();
+            throw new IOException(ex);
+        } catch (final IOException | RuntimeException ex) {
+            this.zip.close();
+            throw ex;
+        }
+    }
+
+    @Override
+    public boolean next(final List<String> fields) throws IOException {
+        fields.clear();
+        try {
+            while (this.sheet.hasNext()) {
+                if (this.sheet.next() == XMLStreamConstants.START_ELEMENT && "row".equals(this.sheet.getLocalName())) {
+                    readRow(fields);
+                    if (this.width < 0) {
+                        this.width = fields.size();
+                    }
+                    while (fields.size() < this.width) {
+                        fields.add("");
+                    }
+                    if (fields.isEmpty()) {
+                        fields.add("");
+                    }
+                    return true;
+                }
+            }
+            return false;
+        } catch (final XMLStreamException ex) {
+            throw new IOException(ex);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            this.sheet.close();
+        } catch (final XMLStreamException ex) {
+            throw new IOException(ex);
+        } finally {
+            this.sheetInput.close();
+            this.zip.close();
+        }
+    }
+
+    private void readRow(final List<String> fields) throws XMLStreamException {
+        while (this.sheet.hasNext()) {
+            final int event = this.sheet.next();
+            if (event == XMLStreamConstants.END_ELEMENT && "row".equals(this.sheet.getLocalName())) {
+                return;
+            }
+            if (event == XMLStreamConstants.START_ELEMENT && "c".equals(this.sheet.getLocalName())) {
+                final String reference = attribute(this.sheet, "r");
+                final int column = Objects.isNull(reference) ? fields.size() : columnIndex(reference);
+                final String value = readCell();
+                while (fields.size() < column) {
+                    fields.add("");
+                }
+                if (fields.size() == column) {
+                    fields.add(value);
+                }
+            }
+        }
+    }
+
+    private String readCell() throws XMLStreamException {
+        final String type = attribute(this.sheet, "t");
+        final String style = attribute(this.sheet, "s");
+        String value = null;
+        final StringBuilder text = new StringBuilder();
+        while (this.sheet.hasNext()) {
+            final int event = this.sheet.next();
+            if (event == XMLStreamConstants.END_ELEMENT && "c".equals(this.sheet.getLocalName())) {
+                break;
+            }
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                switch (this.sheet.getLocalName()) {
+                    case "v" -> value = this.sheet.getElementText();
+                    case "t" -> text.append(this.sheet.getElementText());
+                    case "rPh" -> skipElement(this.sheet);
+                    default -> {
+                    }
+                }
+            }
+        }
+        if ("inlineStr".equals(type)) {
+            return text.toString();
+        }
+        if (Objects.isNull(value)) {
+            return "";
+        }
+        return switch (Objects.toString(type, "n")) {
+            case "s" -> this.sharedStrings.get(Integer.parseInt(value.trim()));
+            case "b" -> "1".equals(value.trim()) ? "TRUE" : "FALSE";
+            case "n" -> formatNumber(value.trim(), style);
+            default -> value;
+        };
+    }
+
+    private String formatNumber(final String value, final String style) {
+        try {
+            final BigDecimal number = new BigDecimal(value);
+            if (!Objects.isNull(style) && this.dateStyles.get(Integer.parseInt(style))) {
+                return this.epoch.plusDays(number.longValue()).format(DATE_FORMAT);
+            }
+            return number.stripTrailingZeros().toPlainString();
+        } catch (final NumberFormatException ex) {
+            return value;
+        }
+    }
+
+    /**
+     * @return attributes of workbook: "sheet" - relationship id of the first sheet, "date1904" - date system
+     */
+    private Map<String, String> readWorkbook() throws IOException, XMLStreamException {
+        final Map<String, String> result = new HashMap<>();
+        try (InputStream input = this.zip.getInputStream(getEntry("xl/workbook.xml"))) {
+            final XMLStreamReader reader = this.factory.createXMLStreamReader(input);
+            while (reader.hasNext()) {
+                if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+                    continue;
+                }
+                if ("workbookPr".equals(reader.getLocalName())) {
+                    result.put("date1904", attribute(reader, "date1904"));
+                } else if ("sheet".equals(reader.getLocalName()) && !result.containsKey("sheet")) {
+                    result.put("sheet", attribute(reader, "id"));
+                }
+            }
+            reader.close();
+        }
+        if (Objects.isNull(result.get("sheet"))) {
+            throw new IllegalStateException("Workbook does not contain a sheet");
+        }
+        return result;
+    }
+
+    private String readSheetPath(final String relationId) throws IOException, XMLStreamException {
+        try (InputStream input = this.zip.getInputStream(getEntry("xl/_rels/workbook.xml.rels"))) {
+            final XMLStreamReader reader = this.factory.createXMLStreamReader(input);
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT && "Relationship".equals(reader.getLocalName())
+                        && relationId.equals(attribute(reader, "Id"))) {
+                    final String target = attribute(reader, "Target");
+                    reader.close();
+                    return target.startsWith("/") ? target.substring(1) : "xl/" + target;
+                }
+            }
+            reader.close();
+        }
+        throw new IllegalStateException("Workbook does not contain a sheet");
+    }
+
+    private List<String> readSharedStrings() throws IOException, XMLStreamException {
+        final List<String> result = new ArrayList<>();
+        final ZipEntry entry = this.zip.getEntry("xl/sharedStrings.xml");
+        if (Objects.isNull(entry)) {
+            return result;
+        }
+        try (InputStream input = this.zip.getInputStream(entry)) {
+            final XMLStreamReader reader = this.factory.createXMLStreamReader(input);
+            final StringBuilder text = new StringBuilder();
+            while (reader.hasNext()) {
+                final int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    switch (reader.getLocalName()) {
+                        case "si" -> text.setLength(0);
+                        case "t" -> text.append(reader.getElementText());
+                        case "rPh" -> skipElement(reader);
+                        default -> {
+                        }
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT && "si".equals(reader.getLocalName())) {
+                    result.add(text.toString());
+                }
+            }
+            reader.close();
+        }
+        return result;
+    }
+
+    /**
+     * @return indices of cell formats which show numbers as dates
+     */
+    private BitSet readDateStyles() throws IOException, XMLStreamException {
+        final BitSet result = new BitSet();
+        final ZipEntry entry = this.zip.getEntry("xl/styles.xml");
+        if (Objects.isNull(entry)) {
+            return result;
+        }
+        try (InputStream input = this.zip.getInputStream(entry)) {
+            final XMLStreamReader reader = this.factory.createXMLStreamReader(input);
+            final Map<Integer, String> formats = new HashMap<>();
+            boolean cellFormats = false;
+            int index = 0;
+            while (reader.hasNext()) {
+                final int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    switch (reader.getLocalName()) {
+                        case "numFmt" -> formats.put(Integer.parseInt(attribute(reader, "numFmtId")), attribute(reader, "formatCode"));
+                        case "cellXfs" -> cellFormats = true;
+                        case "xf" -> {
+                            if (cellFormats) {
+                                final String format = attribute(reader, "numFmtId");
+                                if (!Objects.isNull(format) && isDateFormat(Integer.parseInt(format), formats)) {
+                                    result.set(index);
+                                }
+                                index++;
+                            }
+                        }
+                        default -> {
+                        }
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT && "cellXfs".equals(reader.getLocalName())) {
+                    cellFormats = false;
+                }
+            }
+            reader.close();
+        }
+        return result;
+    }
+
+    /**
+     * Built-in formats of dates and custom formats with day or year, quoted text and [colors] are not counted
+     */
+    private static boolean isDateFormat(final int id, final Map<Integer, String> formats) {
+        if (id >= 14 && id <= 22 || id >= 27 && id <= 36 || id >= 45 && id <= 47 || id >= 50 && id <= 58) {
+            return true;
+        }
+        final String code = formats.get(id);
+        if (Objects.isNull(code)) {
+            return false;
+        }
+        final String pattern = code.replaceAll("\"[^\"]*\"|\\[[^]]*]|\\\\.", "").toLowerCase();
+        return pattern.contains("d") || pattern.contains("y");
+    }
+
+    private ZipEntry getEntry(final String name) throws IOException {
+        final ZipEntry entry = this.zip.getEntry(name);
+        if (Objects.isNull(entry)) {
+            throw new IOException("Workbook has no " + name);
+        }
+        return entry;
+    }
+
+    /**
+     * @return value of attribute by local name in any namespace
+     */
+    private static String attribute(final XMLStreamReader reader, final String localName) {
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            if (localName.equals(reader.getAttributeLocalName(i))) {
+                return reader.getAttributeValue(i);
+            }
+        }
+        return null;
+    }
+
+    private static void skipElement(final XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0 && reader.hasNext()) {
+            final int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    /**
+     * @param reference reference of cell like AB12
+     * @return index of column starting from 0
+     */
+    private static int columnIndex(final String reference) {
+        int index = 0;
+        for (int i = 0; i < reference.length() && Character.isLetter(reference.charAt(i)); i++) {
+            index = index * 26 + Character.toUpperCase(reference.charAt(i)) - 'A' + 1;
+        }
+        return index - 1;
+    }
+}
@@ -2,8 +2,14 @@ package com.andersenlab.benefits.controller;
 
 import com.andersenlab.benefits.domain.CategoryEntity;
 import com.andersenlab.benefits.domain.DiscountEntity;
+import com.andersenlab.benefits.domain.DiscountsChangedEvent;
+import com.andersenlab.benefits.domain.EntityChangedEvent;
+import com.andersenlab.benefits.repository.CacheInvalidationRepository;
 import com.andersenlab.benefits.repository.CategoryRepository;
 import com.andersenlab.benefits.repository.DiscountRepository;
+import com.andersenlab.benefits.service.CategoryService;
+import com.andersenlab.benefits.service.impl.CatalogVersions;
+import com.andersenlab.benefits.service.impl.ClusterCacheInvalidator;
 import com.andersenlab.benefits.support.RestResponsePage;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -17,6 +23,7 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.DynamicPropertyRegistry;
@@ -24,13 +31,20 @@ import org.springframework.test.context.DynamicPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.util.NestedServletException;
 import org.testcontainers.containers.PostgreSQLContainer;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Predicate;
 
 import static java.lang.Math.random;
 import static org.junit.jupiter.api.Assertions.*;
@@ -50,6 +64,11 @@ public class CategoryControllerTest {
     private final DiscountRepository discountRepository;
     private final CategoryRepository categoryRepository;
     private final ControllerTestUtils ctu;
+    private final CategoryService categoryService;
+    private final CacheInvalidationRepository cacheInvalidationRepository;
+    private final ClusterCacheInvalidator clusterCacheInvalidator;
+    private final CatalogVersions catalogVersions;
+    private final PlatformTransactionManager transactionManager;
 
     @Container
     public static final PostgreSQLContainer<?> postgreSQLContainer =
@@ -63,12 +82,22 @@ public class CategoryControllerTest {
                                   final DiscountRepository discountRepository,
                                   final CategoryRepository categoryRepository,
                                   final ControllerTestUtils ctu,
-                                  final ObjectMapper objectMapper) {
+                                  final ObjectMapper objectMapper,
+                                  final CategoryService categoryService,
+                                  final CacheInvalidationRepository cacheInvalidationRepository,
+                                  final ClusterCacheInvalidator clusterCacheInvalidator,
+                                  final CatalogVersions catalogVersions,
+                                  final PlatformTransactionManager transactionManager) {
         this.mockMvc = mockMvc;
         this.discountRepository = discountRepository;
         this.categoryRepository = categoryRepository;
         this.ctu = ctu;
         this.objectMapper = objectMapper;
+        this.categoryService = categoryService;
+        this.cacheInvalidationRepository = cacheInvalidationRepository;
+        this.clusterCacheInvalidator = clusterCacheInvalidator;
+        this.catalogVersions = catalogVersions;
+        this.transactionManager = transactionManager;
     }
 
 
@@ -158,6 +187,164 @@ public class CategoryControllerTest {
     }
 
 
+    @Test
+    public void whenGetCategoriesWithCurrentETagThenNotModifiedUntilChanged() throws Exception {
+        // given
+        final String eTag = this.mockMvc.perform(MockMvcRequestBuilders
+                        .get("/categories")
+                        .with(csrf()))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // when
+        final long statements = this.ctu.getStatementCount(() -> this.mockMvc.perform(MockMvcRequestBuilders
+                        .get("/categories")
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag)
+                        .with(csrf()))
+                .andExpect(status().isNotModified()));
+        this.mockMvc.perform(MockMvcRequestBuilders
+                        .post("/categories")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(this.objectMapper.writeValueAsString(new CategoryEntity("Разное")))
+                        .with(csrf()))
+                .andExpect(status().isCreated());
+        final MvcResult changed = this.mockMvc.perform(MockMvcRequestBuilders
+                        .get("/categories")
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag)
+                        .with(csrf()))
+                .andReturn();
+
+        // then
+        assertNotNull(eTag);
+        assertEquals(0, statements);
+        assertEquals(200, changed.getResponse().getStatus());
+        assertNotEquals(eTag, changed.getResponse().getHeader(HttpHeaders.ETAG));
+        assertTrue(changed.getResponse().getContentAsString(StandardCharsets.UTF_8).contains("Разное"));
+    }
+
+    @Test
+    public void whenVersionChangedWithSameCategoriesThenETagKept() throws Exception {
+        // given
+        final String eTag = this.mockMvc.perform(MockMvcRequestBuilders
+                        .get("/categories")
+                        .with(csrf()))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        // versions differ by node, as do versions of this node before and after the event
+        this.catalogVersions.onDiscountsChanged(DiscountsChangedEvent.all());
+
+        // when
+        final MvcResult result = this.mockMvc.perform(MockMvcRequestBuilders
+                        .get("/categories")
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag)
+                        .with(csrf()))
+                .andReturn();
+
+        // then
+        assertNotNull(eTag);
+        assertTrue(eTag.startsWith("\""));
+        assertEquals(304, result.getResponse().getStatus());
+        assertEquals(eTag, result.getResponse().getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    public void whenEvictCacheRegionThenCategoryReadOnceAndCached() throws Exception {
+        // given
+        final Long id = this.categoryRepository.findAll().get(0).getId();
+        final String region = CategoryEntity.class.getName();
+
+        // when
+        this.mockMvc.perform(MockMvcRequestBuilders
+                        .delete("/caches/regions/" + region)
+                        .with(csrf()))
+                .andExpect(status().isOk());
+        final long read = this.ctu.getStatementCount(() -> this.categoryRepository.findById(id));
+        final long cached = this.ctu.getStatementCount(() -> this.categoryRepository.findById(id));
+        final MvcResult regions = this.mockMvc.perform(MockMvcRequestBuilders
+                        .get("/caches/regions")
+                        .with(csrf()))
+                .andReturn();
+
+        // then
+        assertEquals(1, read);
+        assertEquals(0, cached);
+        assertTrue(regions.getResponse().getContentAsString().contains(region));
+    }
+
+    @Test
+    public void whenUpdateCategoryThenChangeWrittenToOutbox() throws Exception {
+        // given
+        final CategoryEntity category = this.categoryRepository.findByTitle("Category4").orElseThrow();
+        category.setTitle("OutboxCategory");
+        final Instant start = Instant.now().minus(1, ChronoUnit.MINUTES);
+
+        // when
+        this.mockMvc.perform(MockMvcRequestBuilders
+                        .patch("/categories/{id}", category.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(this.objectMapper.writeValueAsString(category))
+                        .with(csrf()))
+                .andExpect(status().isOk());
+
+        // then
+        assertTrue(this.cacheInvalidationRepository.findCreatedSince(start).stream()
+                .anyMatch(invalidation -> invalidation.type() == EntityChangedEvent.Type.CATEGORY
+                        && List.of(category.getId()).equals(invalidation.ids())));
+    }
+
+    @Test
+    public void whenUpdateCategoryRolledBackThenNoChangeInOutbox() {
+        // given
+        final CategoryEntity category = this.categoryRepository.findByTitle("Category5").orElseThrow();
+        final Instant start = Instant.now().minus(1, ChronoUnit.MINUTES);
+        final Predicate<CacheInvalidationRepository.Invalidation> ofCategory = invalidation ->
+                invalidation.type() == EntityChangedEvent.Type.CATEGORY && List.of(category.getId()).equals(invalidation.ids());
+
+        // when
+        final boolean writtenBeforeCommit = new TransactionTemplate(this.transactionManager).execute(status -> {
+            this.categoryService.update(category.getId(), new CategoryEntity(category.getId(), "RolledBackCategory"));
+            status.setRollbackOnly();
+            return this.cacheInvalidationRepository.findCreatedSince(start).stream().anyMatch(ofCategory);
+        });
+
+        // then
+        assertFalse(writtenBeforeCommit);
+        assertTrue(this.cacheInvalidationRepository.findCreatedSince(start).stream().noneMatch(ofCategory));
+        assertEquals("Category5", this.categoryRepository.findById(category.getId()).orElseThrow().getTitle());
+    }
+
+    @Test
+    public void whenCategoryChangedByOtherNodeThenCachedCategoryEvicted() throws Exception {
+        // given
+        final Long id = this.categoryRepository.findAll().get(0).getId();
+        final Instant start = Instant.now().minus(1, ChronoUnit.MINUTES);
+        this.categoryService.findById(id);
+        final long cached = this.ctu.getStatementCount(() -> this.categoryService.findById(id));
+        this.cacheInvalidationRepository.insert("other-node", EntityChangedEvent.of(EntityChangedEvent.Type.CATEGORY, id));
+        final List<Long> rows = this.cacheInvalidationRepository.findCreatedSince(start).stream()
+                .filter(invalidation -> invalidation.node().equals("other-node"))
+                .map(CacheInvalidationRepository.Invalidation::id)
+                .toList();
+
+        // when
+        this.clusterCacheInvalidator.receive(rows);
+        final long read = this.ctu.getStatementCount(() -> this.categoryService.findById(id));
+
+        // then
+        assertEquals(0, cached);
+        assertEquals(1, read);
+    }
+
+    @Test
+    public void whenEvictUnknownCacheRegionFail() {
+        // when
+        final NestedServletException nestedServletException = assertThrows(NestedServletException.class,
+                () -> this.mockMvc.perform(MockMvcRequestBuilders
+                        .delete("/caches/regions/unknown")
+                        .with(csrf())));
+
+        // then
+        assertEquals("Cache region unknown is not found", nestedServletException.getCause().getMessage());
+    }
+
     @Test
     public void whenGetCategoryByIdFailIdNotExists() {
         // when
@@ -2,15 +2,20 @@ package com.andersenlab.benefits.controller;
 
 import com.andersenlab.benefits.domain.*;
 import com.andersenlab.benefits.repository.*;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.stereotype.Component;
 
+import javax.persistence.EntityManagerFactory;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.Callable;
 import java.util.stream.Collectors;
 
 import static java.lang.Math.random;
@@ -25,6 +30,8 @@ public class ControllerTestUtils {
     private final LocationRepository locationRepository;
     private final RoleRepository roleRepository;
     private final UserRepository userRepository;
+    private final EntityManagerFactory entityManagerFactory;
+    private final ApplicationEventPublisher eventPublisher;
     private final int listLength = 10;
 
     @Autowired
@@ -33,13 +40,33 @@ public class ControllerTestUtils {
                                final CategoryRepository categoryRepository,
                                final LocationRepository locationRepository,
                                final CompanyRepository companyRepository,
-                               final UserRepository userRepository) {
+                               final UserRepository userRepository,
+                               final EntityManagerFactory entityManagerFactory,
+                               final ApplicationEventPublisher eventPublisher) {
         this.roleRepository = roleRepository;
         this.discountRepository = discountRepository;
         this.categoryRepository = categoryRepository;
         this.companyRepository = companyRepository;
         this.locationRepository = locationRepository;
         this.userRepository = userRepository;
+        this.entityManagerFactory = entityManagerFactory;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * @return number of SQL statements prepared by Hibernate while the action runs
+     */
+    public long getStatementCount(final Callable<?> action) throws Exception {
+        final Statistics statistics = this.entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        final boolean enabled = statistics.isStatisticsEnabled();
+        statistics.clear();
+        statistics.setStatisticsEnabled(true);
+        try {
+            action.call();
+            return statistics.getPrepareStatementCount();
+        } finally {
+            statistics.setStatisticsEnabled(enabled);
+        }
     }
 
     public void clearTables() {
@@ -49,6 +76,8 @@ public class ControllerTestUtils {
         this.userRepository.deleteAll();
         this.locationRepository.deleteAll();
         this.roleRepository.deleteAll();
+        // tables are changed by repositories, past the services, so cached listings are dropped here
+        this.eventPublisher.publishEvent(DiscountsChangedEvent.all());
     }
 
     public int getRndEntityPos() {
@@ -78,16 +107,19 @@ public class ControllerTestUtils {
     public Set<CategoryEntity> getCategoryList() {
         final Set<CategoryEntity> result = new LinkedHashSet<>();
         final int size = (int) (random() * (this.listLength - 1) + 1);
-        for (long i = 1; i <= size; i++) {
-            final CategoryEntity category = this.categoryRepository.findByTitle("Category" + i)
-                    .orElse(new CategoryEntity("Category" + i));
-            if (Objects.isNull(category.getId()))
-                this.categoryRepository.save(category);
-            result.add(category);
-        }
+        for (long i = 1; i <= size; i++)
+            result.add(getCategory(i));
         return result;
     }
 
+    public CategoryEntity getCategory(final long num) {
+        final CategoryEntity category = this.categoryRepository.findByTitle("Category" + num)
+                .orElse(new CategoryEntity("Category" + num));
+        if (Objects.isNull(category.getId()))
+            this.categoryRepository.save(category);
+        return category;
+    }
+
     public LocationEntity getLocation(final long num) {
         final LocationEntity location = this.locationRepository.findAll().stream()
                 .filter(item -> item.getCity().equals("someCity" + num)).findFirst()
@@ -2,6 +2,7 @@ package com.andersenlab.benefits.controller;
 
 import com.andersenlab.benefits.domain.*;
 import com.andersenlab.benefits.repository.*;
+import org.json.JSONObject;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,18 +13,21 @@ import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.web.util.NestedServletException;
 import org.testcontainers.containers.PostgreSQLContainer;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
+import java.time.LocalDate;
 import java.util.*;
 
 import static org.hamcrest.Matchers.is;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -203,6 +207,88 @@ public class CsvDiscountLoaderControllerTest {
                 .andExpect(jsonPath("$[0]", is("1: Number of delimited fields does not match header")));
     }
 
+    @Test
+    public void whenLoadCsvAsyncSuccess() throws Exception {
+        // given
+        final List<DiscountEntity> discounts = this.ctu.getDiscountList();
+        final MockMultipartFile csvData = this.ctu.newMockMultipartFile(discounts);
+        final StringBuilder report = new StringBuilder("number;result\n");
+        discounts.forEach(discount -> report.append(discount.getId()).append(";OK\n"));
+
+        // when
+        final MvcResult queued = this.mockMvc.perform(MockMvcRequestBuilders
+                        .multipart("/upload-csv-file")
+                        .file(csvData)
+                        .param("async", "true")
+                        .with(csrf()))
+                .andDo(print())
+                .andExpect(status().isAccepted())
+                .andReturn();
+        final String jobId = new JSONObject(queued.getResponse().getContentAsString()).getString("id");
+        final String jobStatus = waitForImport(jobId);
+
+        // then
+        assertEquals("DONE", jobStatus);
+        this.mockMvc.perform(MockMvcRequestBuilders.get("/imports/{id}", jobId))
+                .andExpect(jsonPath("$.rowsProcessed", is(discounts.size())))
+                .andExpect(jsonPath("$.rowsFailed", is(0)));
+        this.mockMvc.perform(MockMvcRequestBuilders.get("/imports/{id}/report", jobId))
+                .andExpect(status().isOk())
+                .andExpect(content().string(report.toString()));
+        assertEquals(discounts.size(), this.discountRepository.findAll().size());
+    }
+
+    @Test
+    public void whenLoadCsvCopySuccess() throws Exception {
+        // given
+        final List<DiscountEntity> discounts = this.ctu.getDiscountList();
+        final MockMultipartFile csvData = this.ctu.newMockMultipartFile(discounts);
+        final StringBuilder report = new StringBuilder("number;result\n");
+        discounts.forEach(discount -> report.append(discount.getId()).append(";OK\n"));
+
+        // when
+        final MvcResult queued = this.mockMvc.perform(MockMvcRequestBuilders
+                        .multipart("/upload-csv-file")
+                        .file(csvData)
+                        .param("async", "true")
+                        .param("mode", "COPY")
+                        .with(csrf()))
+                .andDo(print())
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.mode", is("COPY")))
+                .andReturn();
+        final String jobId = new JSONObject(queued.getResponse().getContentAsString()).getString("id");
+        final String jobStatus = waitForImport(jobId);
+
+        // then
+        assertEquals("DONE", jobStatus);
+        this.mockMvc.perform(MockMvcRequestBuilders.get("/imports/{id}/report", jobId))
+                .andExpect(status().isOk())
+                .andExpect(content().string(report.toString()));
+        assertEquals(discounts.size(), this.discountRepository.findAll().size());
+    }
+
+    @Test
+    public void whenRowWithoutEndDateMissingThenDiscountExpired() throws Exception {
+        // given
+        final List<DiscountEntity> discounts = this.ctu.getDiscountList();
+        final DiscountEntity missing = discounts.get(discounts.size() - 1);
+        missing.setDateFinish(null);
+        assertEquals("DONE", waitForImport(submitIncremental(this.ctu.newMockMultipartFile(discounts))));
+
+        // when
+        final String jobStatus = waitForImport(submitIncremental(
+                this.ctu.newMockMultipartFile(discounts.subList(0, discounts.size() - 1))));
+
+        // then
+        assertEquals("DONE", jobStatus);
+        final DiscountEntity expired = this.discountRepository.findAll().stream()
+                .filter(discount -> discount.getType().equals(missing.getType()))
+                .findFirst().orElseThrow();
+        assertNotNull(expired.getDateFinish());
+        assertEquals(LocalDate.now(), new java.sql.Date(expired.getDateFinish().getTime()).toLocalDate());
+    }
+
     @Test
     public void whenLoadCsvFailIncorrectFilename() throws Exception {
         // given
@@ -226,4 +312,29 @@ public class CsvDiscountLoaderControllerTest {
         assertEquals(IllegalStateException.class, NestedServletException.getCause().getClass());
         assertEquals("Please select a CSV file to upload", NestedServletException.getCause().getMessage());
     }
+
+    private String submitIncremental(final MockMultipartFile csvData) throws Exception {
+        final MvcResult queued = this.mockMvc.perform(MockMvcRequestBuilders
+                        .multipart("/upload-csv-file")
+                        .file(csvData)
+                        .param("async", "true")
+                        .param("source", "partner")
+                        .param("expireMissing", "true")
+                        .with(csrf()))
+                .andExpect(status().isAccepted())
+                .andReturn();
+        return new JSONObject(queued.getResponse().getContentAsString()).getString("id");
+    }
+
+    private String waitForImport(final String jobId) throws Exception {
+        String jobStatus = "QUEUED";
+        for (int attempt = 0; attempt < 100 && !Objects.equals(jobStatus, "DONE") && !Objects.equals(jobStatus, "FAILED"); attempt++) {
+            Thread.sleep(100);
+            final MvcResult progress = this.mockMvc.perform(MockMvcRequestBuilders.get("/imports/{id}", jobId))
+                    .andExpect(status().isOk())
+                    .andReturn();
+            jobStatus = new JSONObject(progress.getResponse().getContentAsString()).getString("status");
+        }
+        return jobStatus;
+    }
 }
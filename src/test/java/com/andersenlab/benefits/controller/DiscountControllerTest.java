@@ -19,12 +19,14 @@ import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.web.util.NestedServletException;
 import org.testcontainers.containers.PostgreSQLContainer;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
+import java.time.LocalDate;
 import java.util.*;
 
 import static com.andersenlab.benefits.service.impl.ValidateUtils.errIdNotFoundMessage;
@@ -44,16 +46,19 @@ public class DiscountControllerTest {
     private final MockMvc mockMvc;
     private final ObjectMapper objectMapper;
     private final DiscountRepository discountRepository;
+    private final CompanyRepository companyRepository;
     private final ControllerTestUtils ctu;
 
     @Autowired
     public DiscountControllerTest(final MockMvc mockMvc,
                                   final ObjectMapper objectMapper,
                                   final DiscountRepository discountRepository,
+                                  final CompanyRepository companyRepository,
                                   final ControllerTestUtils ctu) {
         this.mockMvc = mockMvc;
         this.objectMapper = objectMapper;
         this.discountRepository = discountRepository;
+        this.companyRepository = companyRepository;
         this.ctu = ctu;
     }
 
@@ -266,6 +271,63 @@ public class DiscountControllerTest {
                 .anyMatch(areaCity -> areaCity.getCity().equals(city))));
     }
 
+    @Test
+    void whenFindByCityIgnoringCase() throws Exception {
+        // given
+        final DiscountEntity discount = this.discountRepository.saveAll(
+                this.ctu.getDiscountList()).get(this.ctu.getRndEntityPos() - 1);
+        final String city = (discount.getArea().stream().findFirst().orElseThrow()).getCity();
+        final MvcResult result;
+
+        //when
+        result = this.mockMvc.perform(MockMvcRequestBuilders
+                        .get("/discounts/find-by-city")
+                        .param("city", city.toUpperCase().substring(1))
+                        .param("size", "10")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .with(csrf()))
+                .andDo(print())
+                .andReturn();
+
+        // then
+        assertEquals(200, result.getResponse().getStatus());
+        final RestResponsePage<DiscountEntity> pageResult = this.objectMapper.readValue(result.getResponse().getContentAsString(),
+                new TypeReference<>() {});
+        assertTrue(pageResult.getContent().stream().anyMatch(item -> item.getId().equals(discount.getId())));
+    }
+
+    @Test
+    void whenGetFacetsCountsFoundDiscounts() throws Exception {
+        // given
+        final DiscountEntity discount = this.discountRepository.saveAll(
+                this.ctu.getDiscountList()).get(this.ctu.getRndEntityPos() - 1);
+        final String category = (discount.getCategories().stream().findFirst().orElseThrow()).getTitle();
+        final long expected = this.discountRepository.findAll().stream()
+                .filter(item -> item.getCategories().stream().anyMatch(c -> c.getTitle().equals(category)))
+                .count();
+        final MvcResult result;
+
+        //when
+        result = this.mockMvc.perform(MockMvcRequestBuilders
+                        .get("/discounts/facets")
+                        .param("category", category)
+                        .param("size", "3")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .with(csrf()))
+                .andDo(print())
+                .andReturn();
+
+        // then
+        assertEquals(200, result.getResponse().getStatus());
+        final DiscountFacets facets = this.objectMapper.readValue(result.getResponse().getContentAsString(), DiscountFacets.class);
+        assertEquals(expected, facets.total());
+        assertEquals(expected, facets.categories().get(category));
+        assertEquals(expected, facets.sizes().values().stream().mapToLong(Long::longValue).sum());
+        assertEquals(Math.min(expected, 3), facets.items().size());
+        assertTrue(facets.items().stream().allMatch(item ->
+                item.getCategories().stream().anyMatch(c -> c.getTitle().equals(category))));
+    }
+
     @Test
     void whenFindByCategorySuccess() throws Exception {
         // given
@@ -291,10 +353,69 @@ public class DiscountControllerTest {
     }
 
     @Test
-    void whenFindByTypeSuccess() throws Exception {
+    void whenFindByCategoryActiveOnThenFinishedSkipped() throws Exception {
         // given
         final DiscountEntity discount = this.discountRepository.saveAll(
                 this.ctu.getDiscountList()).get(this.ctu.getRndEntityPos() - 1);
+        final String category = (discount.getCategories().stream().findFirst().orElseThrow()).getTitle();
+
+        //when
+        final MvcResult inYear = this.mockMvc.perform(MockMvcRequestBuilders
+                        .get("/discounts/find-by-category")
+                        .param("category", category)
+                        .param("activeOn", "2022-06-01")
+                        .with(csrf()))
+                .andReturn();
+        final MvcResult today = this.mockMvc.perform(MockMvcRequestBuilders
+                        .get("/discounts/find-by-category")
+                        .param("category", category)
+                        .param("activeOn", LocalDate.now().toString())
+                        .with(csrf()))
+                .andReturn();
+
+        // then
+        final RestResponsePage<DiscountEntity> found = this.objectMapper.readValue(inYear.getResponse().getContentAsString(),
+                new TypeReference<>() {});
+        final RestResponsePage<DiscountEntity> finished = this.objectMapper.readValue(today.getResponse().getContentAsString(),
+                new TypeReference<>() {});
+        assertEquals(200, today.getResponse().getStatus());
+        assertTrue(found.getTotalElements() > 0);
+        assertEquals(0, finished.getTotalElements());
+    }
+
+    @Test
+    void whenGetDiscountsActiveOnThenFinishedSkipped() throws Exception {
+        // given
+        this.discountRepository.saveAll(this.ctu.getDiscountList());
+
+        //when
+        final MvcResult inYear = this.mockMvc.perform(MockMvcRequestBuilders
+                        .get("/discounts")
+                        .param("activeOn", "2022-06-01")
+                        .with(csrf()))
+                .andReturn();
+        final MvcResult today = this.mockMvc.perform(MockMvcRequestBuilders
+                        .get("/discounts")
+                        .param("activeOn", LocalDate.now().toString())
+                        .with(csrf()))
+                .andReturn();
+
+        // then
+        final RestResponsePage<DiscountEntity> found = this.objectMapper.readValue(inYear.getResponse().getContentAsString(),
+                new TypeReference<>() {});
+        final RestResponsePage<DiscountEntity> finished = this.objectMapper.readValue(today.getResponse().getContentAsString(),
+                new TypeReference<>() {});
+        assertEquals(200, today.getResponse().getStatus());
+        assertTrue(found.getTotalElements() > 0);
+        assertEquals(0, finished.getTotalElements());
+    }
+
+    @Test
+    void whenFindByTypeSuccess() throws Exception {
+        // given
+        final List<DiscountEntity> discounts = this.discountRepository.saveAll(this.ctu.getDiscountList());
+        // the type is searched as a part, so the last one is taken, it is not a part of the others
+        final DiscountEntity discount = discounts.get(discounts.size() - 1);
         final MvcResult result;
 
         //when
@@ -383,6 +504,31 @@ public class DiscountControllerTest {
         assertEquals(0, pageResult.getContent().size());
     }
 
+    @Test
+    void whenFindByPartOfCompanyTitleInOtherCaseSuccess() throws Exception {
+        // given
+        final List<DiscountEntity> discounts = this.discountRepository.saveAll(this.ctu.getDiscountList());
+        final DiscountEntity discount = discounts.get(discounts.size() - 1);
+        final String title = discount.getCompany().getTitle();
+        final MvcResult result;
+
+        //when
+        result = this.mockMvc.perform(MockMvcRequestBuilders
+                        .get("/discounts/find-by-type")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .param("type", title.substring(2).toUpperCase(Locale.ROOT))
+                        .with(csrf()))
+                .andDo(print())
+                .andReturn();
+
+        // then
+        assertEquals(200, result.getResponse().getStatus());
+        final RestResponsePage<DiscountEntity> pageResult = this.objectMapper.readValue(result.getResponse().getContentAsString(),
+                new TypeReference<>() {});
+        assertEquals(1, pageResult.getContent().size());
+        assertEquals(discount.getId(), pageResult.getContent().get(0).getId());
+    }
+
     @Test
     void whenFindByTypeEmptyResponse() throws Exception {
         // given
@@ -429,6 +575,143 @@ public class DiscountControllerTest {
         assertEquals(0, pageResult.getContent().size());
     }
 
+    @Test
+    void whenSearchSuccess() throws Exception {
+        // given
+        final DiscountEntity discount = this.discountRepository.saveAll(
+                this.ctu.getDiscountList()).get(this.ctu.getRndEntityPos() - 1);
+        final MvcResult result;
+
+        //when
+        result = this.mockMvc.perform(MockMvcRequestBuilders
+                        .get("/discounts/search")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .param("q", discount.getDescription() + " " + discount.getDiscount_condition())
+                        .with(csrf()))
+                .andDo(print())
+                .andReturn();
+
+        // then
+        assertEquals(200, result.getResponse().getStatus());
+        final RestResponsePage<DiscountEntity> pageResult = this.objectMapper.readValue(result.getResponse().getContentAsString(),
+                new TypeReference<>() {});
+        assertEquals(1, pageResult.getContent().size());
+        assertEquals(discount.getId(), pageResult.getContent().get(0).getId());
+    }
+
+    @Test
+    void whenSearchByCompanyTitleAfterRename() throws Exception {
+        // given
+        final DiscountEntity discount = this.discountRepository.saveAll(
+                this.ctu.getDiscountList()).get(this.ctu.getRndEntityPos() - 1);
+        final CompanyEntity company = discount.getCompany();
+        company.setTitle("Кофейня");
+        this.companyRepository.save(company);
+        final MvcResult result;
+
+        //when
+        result = this.mockMvc.perform(MockMvcRequestBuilders
+                        .get("/discounts/find-by-type")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .param("type", "кофейн")
+                        .with(csrf()))
+                .andDo(print())
+                .andReturn();
+
+        // then
+        assertEquals(200, result.getResponse().getStatus());
+        final RestResponsePage<DiscountEntity> pageResult = this.objectMapper.readValue(result.getResponse().getContentAsString(),
+                new TypeReference<>() {});
+        assertEquals(1, pageResult.getContent().size());
+        assertEquals(discount.getId(), pageResult.getContent().get(0).getId());
+    }
+
+    @Test
+    void whenScrollDiscountsByCursorSuccess() throws Exception {
+        // given
+        final List<DiscountEntity> discounts = this.discountRepository.saveAll(this.ctu.getDiscountList());
+        final List<DiscountEntity> scrolled = new ArrayList<>();
+        String cursor = null;
+
+        // when
+        do {
+            final MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                    .get("/discounts/scroll")
+                    .param("size", "2")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .with(csrf());
+            if (!Objects.isNull(cursor)) {
+                request.param("cursor", cursor);
+            }
+            final MvcResult result = this.mockMvc.perform(request)
+                    .andDo(print())
+                    .andReturn();
+            assertEquals(200, result.getResponse().getStatus());
+            final JSONObject slice = new JSONObject(result.getResponse().getContentAsString());
+            scrolled.addAll(this.ctu.getDiscountsFromJson(slice.getJSONArray("items").toString()));
+            cursor = slice.isNull("nextCursor") ? null : slice.getString("nextCursor");
+        } while (!Objects.isNull(cursor));
+
+        // then
+        assertEquals(discounts.size(), scrolled.size());
+        assertEquals(discounts.size(), scrolled.stream().map(DiscountEntity::getId).distinct().count());
+        for (int i = 1; i < scrolled.size(); i++) {
+            assertTrue(scrolled.get(i - 1).getDateBegin().compareTo(scrolled.get(i).getDateBegin()) >= 0);
+        }
+    }
+
+    @Test
+    void whenScrollDiscountsFailWrongCursor() {
+        // given
+        final String cursor = "not-a-cursor";
+
+        // when
+        final NestedServletException nestedServletException = assertThrows(NestedServletException.class,
+                () -> this.mockMvc.perform(get("/discounts/scroll").param("cursor", cursor).with(csrf())));
+
+        // then
+        assertEquals("Cursor " + cursor + " is not valid", nestedServletException.getCause().getMessage());
+    }
+
+    @Test
+    void whenGetDiscountsFailUnsupportedSort() {
+        // given
+        final String sort = "description";
+
+        // when
+        final NestedServletException nestedServletException = assertThrows(NestedServletException.class,
+                () -> this.mockMvc.perform(get("/discounts").param("sort", sort).with(csrf())));
+
+        // then
+        assertEquals("Discounts can not be sorted by " + sort, nestedServletException.getCause().getMessage());
+    }
+
+    /**
+     * Discounts with their companies, locations and categories and the count of the page,
+     * whatever the number of discounts in the page
+     */
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "/discounts?size=10",
+            "/discounts/find-by-city?city=someCity&size=10",
+            "/discounts/find-by-category?category=Category1&size=10",
+            "/discounts/find-by-type?type=Type&size=10",
+            "/discounts/find-by-size?sizeDiscount=50&size=10",
+            "/discounts/scroll?size=10",
+            "/discounts/find-similar?category=Category1&sizeDiscount=50&limit=10"
+    })
+    void whenListDiscountsStatementCountIsConstant(final String url) throws Exception {
+        // given
+        this.discountRepository.saveAll(this.ctu.getDiscountList());
+
+        // when
+        final long statements = this.ctu.getStatementCount(() -> this.mockMvc.perform(get(url).with(csrf()))
+                .andExpect(result -> assertEquals(200, result.getResponse().getStatus())));
+
+        // then
+        assertTrue(statements <= 4, url + " prepared " + statements + " statements");
+    }
+
     @ParameterizedTest
     @CsvSource({
             "Category1, 10",
@@ -461,6 +744,52 @@ public class DiscountControllerTest {
                         && (size >= discount.getSizeMin() && size <= discount.getSizeMax())));
     }
 
+    @Test
+    void whenFindSimilarThenLimitedBestFirst() throws Exception {
+        // given
+        final CategoryEntity category = this.ctu.getCategory(1);
+        final CategoryEntity otherCategory = this.ctu.getCategory(2);
+        final List<DiscountEntity> discounts = this.ctu.getDiscountList();
+        discounts.forEach(discount -> {
+            discount.setSizeMin(10);
+            discount.setSizeMax(30);
+            discount.setCategories(Set.of(category, otherCategory));
+        });
+        discounts.get(0).setCategories(Set.of(category));
+        final DiscountEntity best = this.discountRepository.saveAll(discounts).get(0);
+        final MvcResult result;
+
+        //when
+        result = this.mockMvc.perform(MockMvcRequestBuilders
+                        .get("/discounts/find-similar")
+                        .param("category", category.getTitle())
+                        .param("sizeDiscount", "20")
+                        .param("limit", "2")
+                        .with(csrf()))
+                .andDo(print())
+                .andReturn();
+
+        // then
+        assertEquals(200, result.getResponse().getStatus());
+        final List<DiscountEntity> foundDiscounts = this.ctu.getDiscountsFromJson(result.getResponse().getContentAsString());
+        assertEquals(2, foundDiscounts.size());
+        assertEquals(best.getId(), foundDiscounts.get(0).getId());
+    }
+
+    @Test
+    void whenFindSimilarFailWrongLimit() {
+        // when
+        final NestedServletException nestedServletException = assertThrows(NestedServletException.class,
+                () -> this.mockMvc.perform(get("/discounts/find-similar")
+                        .param("category", "Category1")
+                        .param("sizeDiscount", "20")
+                        .param("limit", "0")
+                        .with(csrf())));
+
+        // then
+        assertEquals("Limit must be between 1 and 100", nestedServletException.getCause().getMessage());
+    }
+
     @ParameterizedTest
     @ValueSource(strings = {"", " ", "    "})
     public void whenAddDiscountWrongObligatoryFields(final String description) {
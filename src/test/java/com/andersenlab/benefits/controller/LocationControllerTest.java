@@ -368,6 +368,30 @@ public class LocationControllerTest {
                 .andExpect(jsonPath("$", notNullValue()));
     }
 
+    @Test
+    public void whenGetLocationByCityMaskIgnoringCase() throws Exception {
+        // given
+        final MvcResult result;
+
+        // when
+        result = this.mockMvc.perform(MockMvcRequestBuilders
+                        .get("/locations/find-by-city")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .param("country", "Country3")
+                        .param("cityMask", "cITY")
+                        .with(csrf()))
+                .andDo(print())
+                .andReturn();
+
+        // then
+        final RestResponsePage<LocationEntity> pageResult = this.objectMapper.readValue(result.getResponse().getContentAsString(),
+                new TypeReference<>() {
+                });
+        assertEquals(200, result.getResponse().getStatus());
+        assertEquals(1, pageResult.getContent().size());
+        assertEquals("City3", pageResult.getContent().get(0).getCity());
+    }
+
     @ParameterizedTest
     @ValueSource(strings = {"", " ", "    "})
     public void whenAddLocationWrongObligatoryFields(final String city) {
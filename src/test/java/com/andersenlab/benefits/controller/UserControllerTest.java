@@ -111,6 +111,19 @@ public class UserControllerTest {
         assertEquals(foundUsers, pageResult);
     }
 
+    @Test
+    public void whenGetUsersStatementCountIsConstant() throws Exception {
+        // given
+        this.userRepository.saveAll(this.ctu.getUserList());
+
+        // when
+        final long statements = this.ctu.getStatementCount(() -> this.mockMvc.perform(get("/users?size=10").with(csrf()))
+                .andExpect(result -> assertEquals(200, result.getResponse().getStatus())));
+
+        // then
+        assertTrue(statements <= 2, "/users prepared " + statements + " statements");
+    }
+
     @Test
     public void whenGetUserByIdAndIdExists() throws Exception {
         // given
@@ -0,0 +1,86 @@
+package com.andersenlab.benefits.service;
+
+import com.andersenlab.benefits.config.CacheConfig;
+import com.andersenlab.benefits.domain.CacheStatistics;
+import com.andersenlab.benefits.domain.CategoryEntity;
+import com.andersenlab.benefits.repository.CategoryRepository;
+import com.andersenlab.benefits.service.impl.CacheServiceImpl;
+import com.andersenlab.benefits.service.impl.CategoryServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(classes = {CacheConfig.class, CategoryServiceImpl.class, CacheServiceImpl.class})
+class CacheServiceTest {
+    private final CategoryService categoryService;
+    private final CacheService cacheService;
+
+    @MockBean
+    private final CategoryRepository categoryRepository;
+    @MockBean
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    public CacheServiceTest(final CategoryService categoryService,
+                            final CacheService cacheService,
+                            final CategoryRepository categoryRepository) {
+        this.categoryService = categoryService;
+        this.cacheService = cacheService;
+        this.categoryRepository = categoryRepository;
+    }
+
+    @Test
+    public void whenFindByIdTwiceThenReadOnceUntilDeleted() {
+        // given
+        final CategoryEntity category = new CategoryEntity(1L, "Категория 1");
+        when(this.categoryRepository.findById(1L)).thenReturn(Optional.of(category));
+        when(this.categoryRepository.findWithAssociatedDiscounts(1L)).thenReturn(Optional.empty());
+
+        // when
+        this.categoryService.findById(1L);
+        final CategoryEntity cached = this.categoryService.findById(1L);
+        this.categoryService.delete(1L);
+        this.categoryService.findById(1L);
+
+        // then
+        assertEquals(category, cached);
+        // the second lookup is cached, the delete reads the category and evicts it
+        verify(this.categoryRepository, times(3)).findById(1L);
+        final CacheStatistics statistics = this.cacheService.getStatistics().stream()
+                .filter(cache -> cache.name().equals(CacheConfig.CATEGORIES))
+                .findFirst().orElseThrow();
+        assertEquals(1, statistics.hits());
+        assertEquals(2, statistics.misses());
+    }
+
+    @Test
+    @DirtiesContext
+    public void whenFoundCategoryChangedThenCachedOneKept() {
+        // given
+        when(this.categoryRepository.findById(2L)).thenReturn(Optional.of(new CategoryEntity(2L, "Категория 2")));
+
+        // when
+        final CategoryEntity found = this.categoryService.findById(2L);
+        found.setTitle("Изменена");
+        final CategoryEntity cached = this.categoryService.findById(2L);
+
+        // then
+        assertNotSame(found, cached);
+        assertEquals("Категория 2", cached.getTitle());
+        verify(this.categoryRepository, times(1)).findById(2L);
+    }
+}
@@ -73,7 +73,11 @@ public class CategoryServiceTest {
         final CategoryEntity categoryEntity = new CategoryEntity("Категория 100");
 
         // when
-        when(this.categoryRepository.save(any(CategoryEntity.class))).thenReturn(categoryEntity);
+        when(this.categoryRepository.save(any(CategoryEntity.class))).thenAnswer(invocation -> {
+            final CategoryEntity saved = invocation.getArgument(0);
+            saved.setId(100L);
+            return saved;
+        });
         final CategoryEntity savedCategory = this.categoryService.save(categoryEntity);
 
         // then
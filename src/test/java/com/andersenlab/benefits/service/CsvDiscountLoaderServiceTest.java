@@ -1,5 +1,6 @@
 package com.andersenlab.benefits.service;
 
+import com.andersenlab.benefits.config.ImportExecutorConfig;
 import com.andersenlab.benefits.domain.*;
 import com.andersenlab.benefits.repository.*;
 import com.andersenlab.benefits.service.impl.CsvDiscountLoaderServiceImpl;
@@ -9,20 +10,38 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
 import static com.andersenlab.benefits.service.ServiceTestUtils.*;
 
 @ExtendWith(SpringExtension.class)
-@SpringBootTest(properties = "spring.main.lazy-initialization=true",
-        classes = {CsvDiscountLoaderService.class, CsvDiscountLoaderServiceImpl.class})
+@SpringBootTest(properties = {"spring.main.lazy-initialization=true", "benefits.import.chunk-size=3"},
+        classes = {CsvDiscountLoaderService.class, CsvDiscountLoaderServiceImpl.class, ImportExecutorConfig.class})
+@RecordApplicationEvents
 public class CsvDiscountLoaderServiceTest {
 
     private final List<CompanyEntity> companies = new ArrayList<>();
@@ -31,6 +50,9 @@ public class CsvDiscountLoaderServiceTest {
     private final List<DiscountEntity> discounts = new ArrayList<>();
     private final CsvDiscountLoaderServiceImpl csvDiscountLoaderService;
 
+    @Autowired
+    private ApplicationEvents applicationEvents;
+
     @MockBean
     private final DiscountRepository discountRepository;
     @MockBean
@@ -39,18 +61,34 @@ public class CsvDiscountLoaderServiceTest {
     private final CategoryRepository categoryRepository;
     @MockBean
     private final LocationRepository locationRepository;
+    @MockBean
+    private final DiscountImportRepository discountImportRepository;
+    @MockBean
+    private final DiscountStagingRepository discountStagingRepository;
+    @MockBean
+    private final DiscountImportLedgerRepository discountImportLedgerRepository;
+    @MockBean
+    private final TransactionTemplate transactionTemplate;
 
     @Autowired
     public CsvDiscountLoaderServiceTest(final CsvDiscountLoaderServiceImpl csvDiscountLoaderService,
                                         final DiscountRepository discountRepository,
                                         final CompanyRepository companyRepository,
                                         final CategoryRepository categoryRepository,
-                                        final LocationRepository locationRepository) {
+                                        final LocationRepository locationRepository,
+                                        final DiscountImportRepository discountImportRepository,
+                                        final DiscountStagingRepository discountStagingRepository,
+                                        final DiscountImportLedgerRepository discountImportLedgerRepository,
+                                        final TransactionTemplate transactionTemplate) {
         this.csvDiscountLoaderService = csvDiscountLoaderService;
         this.discountRepository = discountRepository;
         this.companyRepository = companyRepository;
         this.categoryRepository = categoryRepository;
         this.locationRepository = locationRepository;
+        this.discountImportRepository = discountImportRepository;
+        this.discountStagingRepository = discountStagingRepository;
+        this.discountImportLedgerRepository = discountImportLedgerRepository;
+        this.transactionTemplate = transactionTemplate;
     }
 
     @BeforeEach
@@ -92,6 +130,27 @@ public class CsvDiscountLoaderServiceTest {
             return result;
         });
         when(this.discountRepository.findAll()).thenReturn(this.discounts);
+        when(this.companyRepository.findAll()).thenReturn(this.companies);
+
+        when(this.discountImportRepository.findContentHashes(any())).thenAnswer(invocation -> {
+            final Collection<String> hashes = invocation.getArgument(0);
+            this.discounts.forEach(DiscountEntity::updateContentHash);
+            return this.discounts.stream()
+                    .map(DiscountEntity::getContentHash)
+                    .filter(hashes::contains)
+                    .collect(Collectors.toSet());
+        });
+        when(this.discountImportRepository.saveDiscounts(anyList())).thenAnswer(invocation -> {
+            final List<DiscountEntity> items = invocation.getArgument(0);
+            items.forEach(item -> {
+                item.setCompany(saveItem(this.companies, item.getCompany(), ServiceTestUtils::isCompaniesEquals));
+                saveItem(this.discounts, item, ServiceTestUtils::isDiscountsEquals);
+            });
+            return new ArrayList<DataAccessException>(Collections.nCopies(items.size(), null));
+        });
+
+        when(this.transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
     }
 
     private void saveDiscountsParameters(final Collection<DiscountEntity> discountList) {
@@ -115,6 +174,28 @@ public class CsvDiscountLoaderServiceTest {
         result.forEach(item -> assertTrue(item.endsWith(": OK")));
     }
 
+    @Test
+    public void whenLoadCsvThenChangesPublishedByChunk() {
+        // given
+        final List<DiscountEntity> discountList = getDiscountList();
+        saveDiscountsParameters(discountList);
+        final MultipartFile csvData = newMockMultipartFile(discountList);
+
+        // when
+        this.csvDiscountLoaderService.loadDiscountsFromCsv(csvData, ";");
+
+        // then
+        final int chunks = (discountList.size() + 2) / 3;
+        verify(this.transactionTemplate, times(chunks)).execute(any());
+        final List<EntityChangedEvent> events = this.applicationEvents.stream(EntityChangedEvent.class).toList();
+        assertEquals(chunks, events.size());
+        assertTrue(events.stream().noneMatch(EntityChangedEvent::isAll));
+        assertEquals(this.discounts.stream().map(DiscountEntity::getId).collect(Collectors.toSet()),
+                events.stream().flatMap(event -> event.ids().stream()).collect(Collectors.toSet()));
+        assertEquals(chunks, this.applicationEvents.stream(DiscountsChangedEvent.class)
+                .filter(event -> !event.isAll()).count());
+    }
+
     @Test
     public void whenLoadCsvDiscountExists() {
         // given
@@ -152,6 +233,89 @@ public class CsvDiscountLoaderServiceTest {
             assertTrue(isDiscountsEquals(this.discounts.get(i), discountsAfterUpload.get(i)));
     }
 
+    @Test
+    public void whenLoadCsvRowFailsOnSave() {
+        // given
+        final List<DiscountEntity> discountList = getDiscountList();
+        saveDiscountsParameters(discountList);
+        final MockMultipartFile csvData = newMockMultipartFile(discountList);
+        final String failedType = discountList.get(1).getType();
+        when(this.discountImportRepository.saveDiscounts(anyList())).thenAnswer(invocation -> {
+            final List<DiscountEntity> items = invocation.getArgument(0);
+            final List<DataAccessException> errors = new ArrayList<>();
+            items.forEach(item -> errors.add(Objects.equals(item.getType(), failedType)
+                    ? new DataIntegrityViolationException("Row was rolled back") : null));
+            return errors;
+        });
+
+        // when
+        final List<String> result = this.csvDiscountLoaderService.loadDiscountsFromCsv(csvData, ";");
+
+        // then
+        assertEquals(discountList.size(), result.size());
+        assertEquals(discountList.get(1).getId() + ": Row was rolled back", result.get(1));
+        for (int i = 0; i < result.size(); i++)
+            assertTrue(i == 1 || result.get(i).endsWith(": OK"));
+    }
+
+    @Test
+    public void whenLoadCsvCompanyCreatedByParallelImport() {
+        // given
+        final List<DiscountEntity> discountList = getDiscountList();
+        saveDiscountsParameters(discountList);
+        final MockMultipartFile csvData = newMockMultipartFile(discountList);
+        final String title = discountList.get(0).getCompany().getTitle();
+        final Map<String, Long> savedCompanyIds = new HashMap<>();
+        when(this.discountImportRepository.findCompanyIds(any())).thenReturn(Map.of(title, 100L));
+        when(this.discountImportRepository.saveDiscounts(anyList())).thenAnswer(invocation -> {
+            final List<DiscountEntity> items = invocation.getArgument(0);
+            items.forEach(item -> savedCompanyIds.put(item.getCompany().getTitle(), item.getCompany().getId()));
+            return new ArrayList<DataAccessException>(Collections.nCopies(items.size(), null));
+        });
+
+        // when
+        final List<String> result = this.csvDiscountLoaderService.loadDiscountsFromCsv(csvData, ";");
+
+        // then
+        result.forEach(item -> assertTrue(item.endsWith(": OK")));
+        assertEquals(100L, savedCompanyIds.get(title));
+        verify(this.discountImportRepository, atLeastOnce()).findCompanyIds(argThat(titles -> titles.contains(title)));
+    }
+
+    @Test
+    public void whenLoadCsvIncremental() throws Exception {
+        // given
+        final List<DiscountEntity> discountList = getDiscountList();
+        saveDiscountsParameters(discountList);
+        final byte[] contents = newMockMultipartFile(discountList).getBytes();
+        discountList.get(0).setDescription("Changed description");
+        final byte[] changedContents = newMockMultipartFile(discountList).getBytes();
+        final Map<String, DiscountImportLedgerRepository.Entry> ledger = new HashMap<>();
+        when(this.discountImportLedgerRepository.findBySource("partner")).thenAnswer(invocation -> new HashMap<>(ledger));
+        doAnswer(invocation -> {
+            ledger.putAll(invocation.getArgument(2));
+            return null;
+        }).when(this.discountImportLedgerRepository).save(eq("partner"), any(), anyMap());
+
+        // when
+        final List<String> first = loadIncremental(contents);
+        final List<String> second = loadIncremental(contents);
+        final List<String> third = loadIncremental(changedContents);
+
+        // then
+        assertEquals(discountList.size(), ledger.size());
+        first.forEach(item -> assertTrue(item.endsWith(": OK")));
+        second.forEach(item -> assertTrue(item.endsWith(": SKIP unchanged")));
+        assertEquals(discountList.get(0).getId() + ": UPDATED", third.get(0));
+        third.subList(1, third.size()).forEach(item -> assertTrue(item.endsWith(": SKIP unchanged")));
+    }
+
+    private List<String> loadIncremental(final byte[] contents) {
+        final ImportJob job = new ImportJob("discounts.csv", ImportJob.Mode.BATCH, "partner", false, null);
+        this.csvDiscountLoaderService.loadDiscountsFromCsv(new ByteArrayInputStream(contents), ";", job);
+        return job.getReport();
+    }
+
     @Test
     public void whenLoadCsvFailLocationNotFound() {
         // given
@@ -180,4 +344,155 @@ public class CsvDiscountLoaderServiceTest {
         // then
         assertEquals(result.get(0), "1: Number of delimited fields does not match header");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void whenLoadCsvColumnsInAnyOrder() throws Exception {
+        // given
+        final List<DiscountEntity> discountList = getDiscountList();
+        saveDiscountsParameters(discountList);
+        final String contents = new String(newMockMultipartFile(discountList).getBytes(), StandardCharsets.UTF_8);
+        final String reversed = Arrays.stream(contents.split("\n")).map(line -> {
+            final List<String> fields = Arrays.asList(line.split(";"));
+            Collections.reverse(fields);
+            return String.join(";", fields);
+        }).collect(Collectors.joining("\n"));
+        final MockMultipartFile csvData = new MockMultipartFile("file", "discounts.csv",
+                "multipart/form-data", reversed.getBytes(StandardCharsets.UTF_8));
+
+        // when
+        final List<String> result = this.csvDiscountLoaderService.loadDiscountsFromCsv(csvData, ";");
+
+        // then
+        assertEquals(discountList.size(), result.size());
+        result.forEach(item -> assertTrue(item.endsWith(": OK")));
+    }
+
+    @Test
+    public void whenLoadCsvQuotedFields() throws Exception {
+        // given
+        final List<DiscountEntity> discountList = getDiscountList().subList(0, 1);
+        saveDiscountsParameters(discountList);
+        discountList.get(0).setDescription("description");
+        final String contents = new String(newMockMultipartFile(discountList).getBytes(), StandardCharsets.UTF_8)
+                .replace(";description;", ";\"Sale; 10% \"\"off\"\"\r\nfor all\";");
+        final MockMultipartFile csvData = new MockMultipartFile("file", "discounts.csv",
+                "multipart/form-data", contents.getBytes(StandardCharsets.UTF_8));
+
+        // when
+        final List<String> result = this.csvDiscountLoaderService.loadDiscountsFromCsv(csvData, ";");
+
+        // then
+        assertEquals(List.of(discountList.get(0).getId() + ": OK"), result);
+        assertEquals("Sale; 10% \"off\"\r\nfor all", this.discounts.get(0).getDescription());
+    }
+
+    @Test
+    public void whenLoadCsvGzipInWindows1251() throws Exception {
+        // given
+        final List<DiscountEntity> discountList = getDiscountList().subList(0, 1);
+        saveDiscountsParameters(discountList);
+        discountList.get(0).setDescription("Скидка на всё");
+        final String contents = new String(newMockMultipartFile(discountList).getBytes(), StandardCharsets.UTF_8);
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (OutputStream output = new GZIPOutputStream(compressed)) {
+            output.write(contents.getBytes("windows-1251"));
+        }
+        final MockMultipartFile csvData = new MockMultipartFile("file", "discounts.csv.gz",
+                "multipart/form-data", compressed.toByteArray());
+
+        // when
+        final List<String> result = this.csvDiscountLoaderService.loadDiscountsFromCsv(csvData, ";", null);
+
+        // then
+        assertEquals(List.of(discountList.get(0).getId() + ": OK"), result);
+        assertEquals("Скидка на всё", this.discounts.get(0).getDescription());
+    }
+
+    @Test
+    public void whenLoadCsvZip() throws Exception {
+        // given
+        final List<DiscountEntity> discountList = getDiscountList();
+        saveDiscountsParameters(discountList);
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (ZipOutputStream output = new ZipOutputStream(compressed)) {
+            output.putNextEntry(new ZipEntry("readme.txt"));
+            output.write("Discounts of partner".getBytes(StandardCharsets.UTF_8));
+            output.putNextEntry(new ZipEntry("discounts.csv"));
+            output.write(newMockMultipartFile(discountList).getBytes());
+        }
+        final MockMultipartFile csvData = new MockMultipartFile("file", "discounts.zip",
+                "multipart/form-data", compressed.toByteArray());
+
+        // when
+        final List<String> result = this.csvDiscountLoaderService.loadDiscountsFromCsv(csvData, ";", "UTF-8");
+
+        // then
+        assertEquals(discountList.size(), result.size());
+        result.forEach(item -> assertTrue(item.endsWith(": OK")));
+    }
+
+    @Test
+    public void whenLoadXlsx() throws Exception {
+        // given
+        final List<DiscountEntity> discountList = getDiscountList();
+        saveDiscountsParameters(discountList);
+        final String contents = new String(newMockMultipartFile(discountList).getBytes(), StandardCharsets.UTF_8);
+        final Path file = Files.createTempFile("discounts", ".xlsx");
+        final ImportJob job = new ImportJob("discounts.xlsx");
+
+        // when
+        try {
+            writeWorkbook(file, contents);
+            this.csvDiscountLoaderService.loadDiscountsFromXlsx(file, job);
+        } finally {
+            Files.delete(file);
+        }
+
+        // then
+        assertEquals(ImportJob.Status.DONE, job.getStatus());
+        assertEquals(discountList.size(), job.getReport().size());
+        job.getReport().forEach(item -> assertTrue(item.endsWith(": OK")));
+    }
+
+    /**
+     * Writes rows of CSV contents to the sheet of minimal workbook, all cells are inline strings
+     */
+    private void writeWorkbook(final Path file, final String contents) throws Exception {
+        final StringBuilder sheet = new StringBuilder("<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\"><sheetData>");
+        for (final String line : contents.split("\n")) {
+            sheet.append("<row>");
+            for (final String field : line.split(";")) {
+                sheet.append("<c t=\"inlineStr\"><is><t>").append(field).append("</t></is></c>");
+            }
+            sheet.append("</row>");
+        }
+        sheet.append("</sheetData></worksheet>");
+        try (ZipOutputStream output = new ZipOutputStream(Files.newOutputStream(file))) {
+            output.putNextEntry(new ZipEntry("xl/workbook.xml"));
+            output.write(("<workbook xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\" "
+                    + "xmlns:r=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships\">"
+                    + "<sheets><sheet name=\"Discounts\" sheetId=\"1\" r:id=\"rId1\"/></sheets></workbook>")
+                    .getBytes(StandardCharsets.UTF_8));
+            output.putNextEntry(new ZipEntry("xl/_rels/workbook.xml.rels"));
+            output.write(("<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">"
+                    + "<Relationship Id=\"rId1\" Target=\"worksheets/sheet1.xml\"/></Relationships>")
+                    .getBytes(StandardCharsets.UTF_8));
+            output.putNextEntry(new ZipEntry("xl/worksheets/sheet1.xml"));
+            output.write(sheet.toString().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void whenLoadCsvFailHeaderColumnMissing() {
+        // given
+        final MockMultipartFile csvData = new MockMultipartFile("file", "discounts.csv",
+                "multipart/form-data", "number;company_title\n1;title".getBytes(StandardCharsets.UTF_8));
+
+        // when
+        final Throwable thrown = assertThrows(IllegalStateException.class, () ->
+                this.csvDiscountLoaderService.loadDiscountsFromCsv(csvData, ";"));
+
+        // then
+        assertEquals("Headers titles not suitable, column type is missing", thrown.getMessage());
+    }
+}
@@ -0,0 +1,112 @@
+package com.andersenlab.benefits.service;
+
+import com.andersenlab.benefits.domain.ImportJob;
+import com.andersenlab.benefits.service.impl.CsvDropDirectoryWatcher;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(classes = CsvDropDirectoryWatcher.class)
+public class CsvDropDirectoryWatcherTest {
+    private static final Path DIRECTORY = createDirectory();
+
+    @MockBean
+    private final CsvDiscountLoaderService csvDiscountLoaderService;
+
+    @Autowired
+    public CsvDropDirectoryWatcherTest(final CsvDiscountLoaderService csvDiscountLoaderService) {
+        this.csvDiscountLoaderService = csvDiscountLoaderService;
+    }
+
+    @DynamicPropertySource
+    static void properties(final DynamicPropertyRegistry registry) {
+        registry.add("benefits.import.drop-directory.path", DIRECTORY::toString);
+    }
+
+    @Test
+    public void whenFileDroppedThenImported() throws Exception {
+        // given
+        doAnswer(invocation -> {
+            final InputStream input = invocation.getArgument(0);
+            final ImportJob job = invocation.getArgument(2);
+            job.start();
+            job.addRows(List.of(new String(input.readAllBytes(), StandardCharsets.UTF_8).trim() + ": OK"));
+            job.finish();
+            return null;
+        }).when(this.csvDiscountLoaderService).loadDiscountsFromCsv(any(InputStream.class), eq(";"), any(ImportJob.class));
+
+        // when
+        drop("discounts.csv", "1");
+
+        // then
+        final Path report = waitFor(DIRECTORY.resolve("processed").resolve("discounts.csv"), "discounts.csv.report.csv");
+        assertEquals("number;result\n1;OK\n", Files.readString(report));
+        assertFalse(Files.exists(DIRECTORY.resolve("discounts.csv")));
+    }
+
+    @Test
+    public void whenFileFailsThenMovedToFailed() throws Exception {
+        // given
+        doAnswer(invocation -> {
+            final ImportJob job = invocation.getArgument(2);
+            job.start();
+            job.fail("Headers titles not suitable, column type is missing");
+            throw new IllegalStateException(job.getMessage());
+        }).when(this.csvDiscountLoaderService).loadDiscountsFromCsv(any(InputStream.class), eq(";"), any(ImportJob.class));
+
+        // when
+        drop("broken.csv", "number");
+
+        // then
+        final Path report = waitFor(DIRECTORY.resolve("failed").resolve("broken.csv"), "broken.csv.report.csv");
+        assertEquals("number;result\n;Headers titles not suitable, column type is missing\n", Files.readString(report));
+        assertFalse(Files.exists(DIRECTORY.resolve("broken.csv")));
+    }
+
+    /**
+     * Writes the file under a temporary name and renames it, as the directory expects
+     */
+    private void drop(final String fileName, final String contents) throws IOException {
+        final Path temporary = Files.writeString(DIRECTORY.resolve(fileName + ".part"), contents);
+        Files.move(temporary, DIRECTORY.resolve(fileName));
+    }
+
+    private Path waitFor(final Path movedFile, final String reportName) throws InterruptedException {
+        final Path report = movedFile.resolveSibling(reportName);
+        for (int attempt = 0; attempt < 300 && !Files.exists(movedFile); attempt++) {
+            Thread.sleep(100);
+        }
+        assertTrue(Files.exists(movedFile));
+        assertTrue(Files.exists(report));
+        return report;
+    }
+
+    private static Path createDirectory() {
+        try {
+            return Files.createTempDirectory("benefits-drop-directory");
+        } catch (final IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
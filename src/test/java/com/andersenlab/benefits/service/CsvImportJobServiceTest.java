@@ -0,0 +1,58 @@
+package com.andersenlab.benefits.service;
+
+import com.andersenlab.benefits.domain.ImportJob;
+import com.andersenlab.benefits.service.impl.CsvImportJobServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(properties = "benefits.import.jobs-history-size=1", classes = CsvImportJobServiceImpl.class)
+class CsvImportJobServiceTest {
+    private final CsvImportJobService csvImportJobService;
+
+    @MockBean
+    private CsvDiscountLoaderService csvDiscountLoaderService;
+    // jobs are submitted and are not run
+    @MockBean(name = "importExecutor")
+    private TaskExecutor importExecutor;
+
+    @Autowired
+    public CsvImportJobServiceTest(final CsvImportJobService csvImportJobService) {
+        this.csvImportJobService = csvImportJobService;
+    }
+
+    @Test
+    public void whenHistoryIsFullThenOnlyFinishedJobsDropped() {
+        // given
+        final ImportJob running = submit();
+        running.start();
+        final ImportJob finished = submit();
+        finished.start();
+        finished.finish();
+
+        // when
+        final ImportJob last = submit();
+
+        // then
+        assertEquals(running, this.csvImportJobService.findById(running.getId()));
+        assertEquals(last, this.csvImportJobService.findById(last.getId()));
+        assertThrows(IllegalStateException.class, () -> this.csvImportJobService.findById(finished.getId()));
+    }
+
+    private ImportJob submit() {
+        final MockMultipartFile file = new MockMultipartFile("file", "discounts.csv", "text/csv",
+                "type;description".getBytes(StandardCharsets.UTF_8));
+        return this.csvImportJobService.submit(file, ";", ImportJob.Mode.BATCH, null, false, null);
+    }
+}
@@ -0,0 +1,65 @@
+package com.andersenlab.benefits.service;
+
+import com.andersenlab.benefits.service.impl.CsvTokenizer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of tokenizing 1 MB of CSV import file, compared with splitting lines by regex as done before.
+ * Is not run by tests, start {@link #main(String[])} from the test classpath.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CsvTokenizerBenchmark {
+    private static final int SIZE = 1024 * 1024;
+
+    @Param({"false", "true"})
+    private boolean quoted;
+
+    private String contents;
+
+    @Setup
+    public void setUp() {
+        final StringBuilder builder = new StringBuilder(SIZE + 1024);
+        for (int i = 1; builder.length() < SIZE; i++) {
+            final String description = this.quoted ? "\"Description; of \"\"discount\"\" " + i + "\"" : "Description of discount " + i;
+            builder.append(i).append(";Company").append(i % 100).append(";Type;Category1|Category2;Image")
+                    .append(";Company description;Address;+375 29 111 11 11;https://company.by;5;15;DISCOUNT;")
+                    .append(description).append(";Condition;01.01.2022;31.12.2022;Минск|Брест\r\n");
+        }
+        this.contents = builder.toString();
+    }
+
+    @Benchmark
+    public void tokenize(final Blackhole blackhole) throws IOException {
+        final CsvTokenizer tokenizer = new CsvTokenizer(new StringReader(this.contents), ';');
+        final List<String> fields = new ArrayList<>(17);
+        while (tokenizer.next(fields)) {
+            blackhole.consume(fields.toArray(new String[0]));
+        }
+    }
+
+    @Benchmark
+    public void splitByRegex(final Blackhole blackhole) {
+        for (final String line : this.contents.split("\r\n")) {
+            blackhole.consume(line.split("\\;"));
+        }
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(CsvTokenizerBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,184 @@
+package com.andersenlab.benefits.service;
+
+import com.andersenlab.benefits.domain.DiscountEntity;
+import com.andersenlab.benefits.domain.DiscountFilter;
+import com.andersenlab.benefits.domain.DiscountsChangedEvent;
+import com.andersenlab.benefits.repository.DiscountRepository;
+import com.andersenlab.benefits.service.impl.DiscountCatalog;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static com.andersenlab.benefits.service.ServiceTestUtils.getCategory;
+import static com.andersenlab.benefits.service.ServiceTestUtils.getDiscount;
+import static com.andersenlab.benefits.service.ServiceTestUtils.getDiscountList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(properties = "benefits.catalog.in-memory=true", classes = DiscountCatalog.class)
+class DiscountCatalogTest {
+    private final DiscountCatalog discountCatalog;
+    private final List<DiscountEntity> discounts = getDiscountList();
+    private final LocalDate today = LocalDate.now();
+
+    @MockBean
+    private final DiscountRepository discountRepository;
+
+    @Autowired
+    public DiscountCatalogTest(final DiscountCatalog discountCatalog, final DiscountRepository discountRepository) {
+        this.discountCatalog = discountCatalog;
+        this.discountRepository = discountRepository;
+    }
+
+    @BeforeEach
+    public void loadCatalog() {
+        this.discounts.forEach(this::setActiveToday);
+        when(this.discountRepository.findAll(any(Specification.class))).thenReturn(this.discounts);
+        this.discountCatalog.load();
+    }
+
+    @Test
+    public void whenFindByCategoryAndCitySortedBySize() {
+        // given
+        final DiscountFilter filter = new DiscountFilter("Category1", "ITY1", null, null, this.today);
+        final List<DiscountEntity> expected = this.discounts.stream()
+                .filter(discount -> discount.getCategories().stream().anyMatch(category -> category.getTitle().equals("Category1")))
+                .filter(discount -> discount.getArea().stream().anyMatch(location -> location.getCity().contains("City1")))
+                .sorted(Comparator.comparing(DiscountEntity::getSizeMax).thenComparing(DiscountEntity::getId).reversed())
+                .toList();
+
+        // when
+        final Optional<Page<DiscountEntity>> page = this.discountCatalog.find(filter,
+                PageRequest.of(0, 3, Sort.by(Sort.Direction.DESC, "sizeMax", "id")));
+
+        // then
+        assertTrue(page.isPresent());
+        assertEquals(expected.size(), page.get().getTotalElements());
+        assertEquals(expected.subList(0, Math.min(3, expected.size())), page.get().getContent());
+    }
+
+    @Test
+    public void whenFindBySizeAndActiveDate() {
+        // given
+        final int size = this.discounts.get(0).getSizeMin();
+        final DiscountFilter inTerm = new DiscountFilter(null, null, null, size, this.today.plusDays(5));
+        final DiscountFilter afterTerm = new DiscountFilter(null, null, null, size, this.today.plusDays(11));
+        final long expected = this.discounts.stream()
+                .filter(discount -> discount.getSizeMin() <= size && size <= discount.getSizeMax())
+                .count();
+
+        // when
+        final Page<DiscountEntity> found = this.discountCatalog.find(inTerm,
+                PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "dateBegin", "id"))).orElseThrow();
+        final Page<DiscountEntity> expired = this.discountCatalog.find(afterTerm,
+                PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "dateBegin", "id"))).orElseThrow();
+
+        // then
+        assertEquals(expected, found.getTotalElements());
+        assertTrue(found.getContent().contains(this.discounts.get(0)));
+        assertEquals(0, expired.getTotalElements());
+    }
+
+    @Test
+    public void whenDiscountChangedThenNewSnapshotPublished() {
+        // given
+        final DiscountEntity changed = getDiscount(this.discounts.get(0).getId());
+        changed.setType("Changed");
+        changed.setSizeMin(100);
+        changed.setSizeMax(100);
+        setActiveToday(changed);
+        final List<Long> ids = List.of(changed.getId(), this.discounts.get(1).getId());
+        when(this.discountRepository.findAllById(ids)).thenReturn(List.of(changed));
+
+        // when
+        this.discountCatalog.onDiscountsChanged(new DiscountsChangedEvent(ids));
+        final Page<DiscountEntity> all = this.discountCatalog.find(new DiscountFilter(null, null, null, null, this.today),
+                PageRequest.of(0, 20, Sort.by(Sort.Direction.DESC, "sizeMax", "id"))).orElseThrow();
+
+        // then
+        assertEquals(this.discounts.size() - 1, all.getTotalElements());
+        assertEquals("Changed", all.getContent().get(0).getType());
+        assertFalse(all.getContent().contains(this.discounts.get(1)));
+        final List<DiscountEntity> expected = all.getContent().stream()
+                .sorted(Comparator.comparing(DiscountEntity::getSizeMax).thenComparing(DiscountEntity::getId).reversed())
+                .toList();
+        assertEquals(expected, all.getContent());
+    }
+
+    @Test
+    public void whenDiscountFinishedBeforeTodayThenNotHeld() {
+        // given
+        final DiscountEntity finished = getDiscount(this.discounts.get(0).getId());
+        setActiveToday(finished);
+        finished.setDateFinish(java.sql.Date.valueOf(this.today.minusDays(1)));
+        when(this.discountRepository.findAllById(List.of(finished.getId()))).thenReturn(List.of(finished));
+
+        // when
+        this.discountCatalog.onDiscountsChanged(new DiscountsChangedEvent(List.of(finished.getId())));
+        final Page<DiscountEntity> active = this.discountCatalog.find(new DiscountFilter(null, null, null, null, this.today),
+                PageRequest.of(0, 20, Sort.by(Sort.Direction.DESC, "dateBegin", "id"))).orElseThrow();
+        final Optional<Page<DiscountEntity>> past = this.discountCatalog.find(new DiscountFilter(null, null, null, null, this.today.minusDays(1)),
+                PageRequest.of(0, 20, Sort.by(Sort.Direction.DESC, "dateBegin", "id")));
+        final Optional<Page<DiscountEntity>> anyDate = this.discountCatalog.find(new DiscountFilter(null, null, null, null, null),
+                PageRequest.of(0, 20, Sort.by(Sort.Direction.DESC, "dateBegin", "id")));
+
+        // then
+        assertEquals(this.discounts.size() - 1, active.getTotalElements());
+        assertFalse(active.getContent().stream().anyMatch(discount -> discount.getId().equals(finished.getId())));
+        assertTrue(past.isEmpty());
+        assertTrue(anyDate.isEmpty());
+    }
+
+    @Test
+    public void whenFindSimilarThenBestFirstWithinLimit() {
+        // given
+        this.discounts.forEach(discount -> {
+            discount.setSizeMin(10);
+            discount.setSizeMax(30);
+            discount.setCategories(Set.of(getCategory(1), getCategory(2)));
+        });
+        final DiscountEntity best = this.discounts.get(3);
+        best.setCategories(Set.of(getCategory(1)));
+        this.discountCatalog.load();
+
+        // when
+        final List<DiscountEntity> similar = this.discountCatalog.findSimilar(
+                new DiscountFilter("Category1", null, null, 20, this.today), 2).orElseThrow();
+
+        // then
+        assertEquals(List.of(best, this.discounts.get(0)), similar);
+    }
+
+    @Test
+    public void whenFindByTypeThenNotAnswered() {
+        // when
+        final Optional<Page<DiscountEntity>> page = this.discountCatalog.find(new DiscountFilter(null, null, "Type1", null, this.today),
+                PageRequest.of(0, 3, Sort.by(Sort.Direction.DESC, "dateBegin", "id")));
+
+        // then
+        assertTrue(page.isEmpty());
+    }
+
+    private void setActiveToday(final DiscountEntity discount) {
+        discount.setDateBegin(java.sql.Date.valueOf(this.today.minusDays(10)));
+        discount.setDateFinish(java.sql.Date.valueOf(this.today.plusDays(10)));
+    }
+}
@@ -0,0 +1,67 @@
+package com.andersenlab.benefits.service;
+
+import com.andersenlab.benefits.domain.DiscountsChangedEvent;
+import com.andersenlab.benefits.domain.EntityChangedEvent;
+import com.andersenlab.benefits.repository.DiscountRepository;
+import com.andersenlab.benefits.service.impl.DiscountExpirySweeper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(properties = "benefits.discounts.expiry-sweep.batch-size=10", classes = DiscountExpirySweeper.class)
+@RecordApplicationEvents
+class DiscountExpirySweeperTest {
+    private final DiscountExpirySweeper discountExpirySweeper;
+
+    @Autowired
+    private ApplicationEvents applicationEvents;
+
+    @MockBean
+    private final DiscountRepository discountRepository;
+
+    @Autowired
+    public DiscountExpirySweeperTest(final DiscountExpirySweeper discountExpirySweeper, final DiscountRepository discountRepository) {
+        this.discountExpirySweeper = discountExpirySweeper;
+        this.discountRepository = discountRepository;
+    }
+
+    @Test
+    public void whenSweepThenBatchesUntilLastPartial() {
+        // given
+        when(this.discountRepository.expireFinished(10)).thenReturn(10, 10, 3);
+
+        // when
+        final int expired = this.discountExpirySweeper.sweep();
+
+        // then
+        assertEquals(23, expired);
+        verify(this.discountRepository, times(3)).expireFinished(10);
+        assertEquals(3, this.applicationEvents.stream(DiscountsChangedEvent.class).filter(DiscountsChangedEvent::isAll).count());
+        assertEquals(3, this.applicationEvents.stream(EntityChangedEvent.class).filter(EntityChangedEvent::isAll).count());
+    }
+
+    @Test
+    public void whenNothingExpiredThenCachesKept() {
+        // given
+        when(this.discountRepository.expireFinished(10)).thenReturn(0);
+
+        // when
+        final int expired = this.discountExpirySweeper.sweep();
+
+        // then
+        assertEquals(0, expired);
+        assertEquals(0, this.applicationEvents.stream(DiscountsChangedEvent.class).count());
+        assertEquals(0, this.applicationEvents.stream(EntityChangedEvent.class).count());
+    }
+}
@@ -0,0 +1,92 @@
+package com.andersenlab.benefits.service;
+
+import com.andersenlab.benefits.config.CacheConfig;
+import com.andersenlab.benefits.domain.DiscountEntity;
+import com.andersenlab.benefits.domain.DiscountFilter;
+import com.andersenlab.benefits.domain.DiscountsChangedEvent;
+import com.andersenlab.benefits.repository.DiscountRepository;
+import com.andersenlab.benefits.service.impl.CatalogVersions;
+import com.andersenlab.benefits.service.impl.DiscountPageCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.List;
+
+import static com.andersenlab.benefits.service.ServiceTestUtils.getDiscountList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(classes = {CacheConfig.class, CatalogVersions.class, DiscountPageCache.class})
+class DiscountPageCacheTest {
+    private final DiscountPageCache discountPageCache;
+    private final CatalogVersions catalogVersions;
+    private final List<DiscountEntity> discounts = getDiscountList().subList(0, 3);
+    private final Pageable pageable = PageRequest.of(0, 3, Sort.by(Sort.Direction.DESC, "dateBegin", "id"));
+
+    @MockBean
+    private final DiscountRepository discountRepository;
+
+    @Autowired
+    public DiscountPageCacheTest(final DiscountPageCache discountPageCache,
+                                 final CatalogVersions catalogVersions,
+                                 final DiscountRepository discountRepository) {
+        this.discountPageCache = discountPageCache;
+        this.catalogVersions = catalogVersions;
+        this.discountRepository = discountRepository;
+    }
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void mockRepository() {
+        reset(this.discountRepository);
+        // pages cached by previous tests are outdated
+        this.catalogVersions.onDiscountsChanged(DiscountsChangedEvent.all());
+        when(this.discountRepository.findAll(any(Specification.class), any(Pageable.class)))
+                .thenReturn(new PageImpl<>(this.discounts, this.pageable, 10));
+        when(this.discountRepository.findAllInOrder(anyList())).thenReturn(this.discounts);
+    }
+
+    @Test
+    public void whenSameNormalizedPageRequestedThenServedByIds() {
+        // when
+        this.discountPageCache.find(new DiscountFilter(null, "Минск", null, null, null), this.pageable);
+        final Page<DiscountEntity> cached = this.discountPageCache.find(new DiscountFilter(null, "МИНСК", null, null, null), this.pageable);
+
+        // then
+        verify(this.discountRepository, times(1)).findAll(any(Specification.class), any(Pageable.class));
+        verify(this.discountRepository).findAllInOrder(this.discounts.stream().map(DiscountEntity::getId).toList());
+        assertEquals(this.discounts, cached.getContent());
+        assertEquals(10, cached.getTotalElements());
+    }
+
+    @Test
+    public void whenDiscountsChangedThenPageReadAgain() {
+        // given
+        final DiscountFilter filter = new DiscountFilter("Еда", null, null, null, null);
+        this.discountPageCache.find(filter, this.pageable);
+
+        // when
+        this.catalogVersions.onDiscountsChanged(new DiscountsChangedEvent(List.of(this.discounts.get(0).getId())));
+        this.discountPageCache.find(filter, this.pageable);
+
+        // then
+        verify(this.discountRepository, times(2)).findAll(any(Specification.class), any(Pageable.class));
+    }
+}
@@ -1,22 +1,30 @@
 package com.andersenlab.benefits.service;
 
+import com.andersenlab.benefits.domain.DiscountCursor;
 import com.andersenlab.benefits.domain.DiscountEntity;
+import com.andersenlab.benefits.domain.DiscountFacets;
+import com.andersenlab.benefits.domain.DiscountFilter;
+import com.andersenlab.benefits.domain.DiscountSlice;
 import com.andersenlab.benefits.domain.DiscountType;
 
+import com.andersenlab.benefits.repository.DiscountFacetRepository;
 import com.andersenlab.benefits.repository.DiscountRepository;
 import com.andersenlab.benefits.repository.DiscountSpec;
+import com.andersenlab.benefits.service.impl.DiscountPageCache;
 import com.andersenlab.benefits.service.impl.DiscountServiceImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
@@ -26,11 +34,15 @@ import org.springframework.web.util.NestedServletException;
 import java.lang.reflect.Field;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static com.andersenlab.benefits.repository.DiscountSpec.getLastAdded;
 import static com.andersenlab.benefits.service.ServiceTestUtils.*;
@@ -46,20 +58,26 @@ class DiscountServiceTest {
     @MockBean
     private final DiscountRepository discountRepository;
     @MockBean
+    private final DiscountFacetRepository discountFacetRepository;
+    @MockBean
     private final CompanyService companyService;
     @MockBean
     private final LocationService locationService;
     @MockBean
     private final CategoryService categoryService;
+    @MockBean
+    private DiscountPageCache discountPageCache;
 
     @Autowired
     public DiscountServiceTest(final DiscountServiceImpl discountService,
                                final DiscountRepository discountRepository,
+                               final DiscountFacetRepository discountFacetRepository,
                                final CompanyService companyService,
                                final LocationService locationService,
                                final CategoryService categoryService) {
         this.discountService = discountService;
         this.discountRepository = discountRepository;
+        this.discountFacetRepository = discountFacetRepository;
         this.companyService = companyService;
         this.locationService = locationService;
         this.categoryService = categoryService;
@@ -80,6 +98,11 @@ class DiscountServiceTest {
         when(this.discountRepository.findById(anyLong())).thenAnswer(invocation ->
                 this.discounts.stream().filter(discount ->
                         Objects.equals(discount.getId(), invocation.getArgument(0))).findFirst());
+        when(this.discountRepository.findByContentHash(any())).thenAnswer(invocation -> {
+            this.discounts.forEach(DiscountEntity::updateContentHash);
+            return this.discounts.stream().filter(discount ->
+                    Objects.equals(discount.getContentHash(), invocation.getArgument(0))).findFirst();
+        });
         doAnswer(invocation -> this.discounts.remove((DiscountEntity) invocation.getArgument(0)))
                 .when(this.discountRepository).delete(any(DiscountEntity.class));
         when(this.discountRepository.findAll(any(Specification.class))).thenAnswer(invocation -> {
@@ -156,6 +179,42 @@ class DiscountServiceTest {
         verify(this.discountRepository, times(1)).save(newDiscount);
     }
 
+    @Test
+    public void whenCreateDiscountDuplicated() {
+        // given
+        final List<DiscountEntity> discountList = this.discountRepository.saveAll(getDiscountList());
+        final DiscountEntity duplicate = new DiscountEntity();
+        BeanUtils.copyProperties(discountList.get(getRndEntityPos()), duplicate, "id");
+
+        // when
+        final Throwable thrown = assertThrows(IllegalStateException.class, () ->
+                this.discountService.save(duplicate));
+
+        // then
+        assertTrue(thrown.getMessage().contains("already exist"));
+        verify(this.discountRepository, never()).save(duplicate);
+    }
+
+    @Test
+    public void whenNullSizeInOtherPositionThenNotDuplicated() {
+        // given
+        final DiscountEntity existing = this.discountRepository.save(getDiscount(1L));
+        existing.setSizeMin(null);
+        existing.setSizeMax(10);
+        final DiscountEntity other = new DiscountEntity();
+        BeanUtils.copyProperties(existing, other, "id");
+        other.setSizeMin(10);
+        other.setSizeMax(null);
+
+        // when
+        existing.updateContentHash();
+        other.updateContentHash();
+
+        // then
+        assertNotEquals(existing.getContentHash(), other.getContentHash());
+        assertTrue(this.discountRepository.findByContentHash(other.getContentHash()).isEmpty());
+    }
+
     @Test
     public void whenUpdateDiscountSuccess() {
         // given
@@ -220,6 +279,92 @@ class DiscountServiceTest {
         verify(this.discountRepository, times(1)).findAll(spec,PageRequest.of(0, 10));
     }
 
+    @Test
+    public void whenSearchByWords() {
+        // given
+        final Page<DiscountEntity> pageOfDiscounts = new PageImpl<>(this.discountRepository.saveAll(getDiscountList()));
+        when(this.discountRepository.findBySearch("Кофе & latte:*", PageRequest.of(0, 10))).thenReturn(pageOfDiscounts);
+
+        // when
+        final Page<DiscountEntity> foundDiscounts = this.discountService.search(" Кофе,  latte ", null, PageRequest.of(0, 10));
+
+        // then
+        assertEquals(pageOfDiscounts, foundDiscounts);
+        verify(this.discountRepository, times(1)).findBySearch("Кофе & latte:*", PageRequest.of(0, 10));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", " ", "&|!:*"})
+    public void whenSearchWithoutWords(final String search) {
+        // when
+        final IllegalStateException exception = assertThrows(IllegalStateException.class, () ->
+                this.discountService.search(search, null, PageRequest.of(0, 10)));
+
+        // then
+        assertEquals("Search must contain a word", exception.getMessage());
+    }
+
+    @Test
+    public void whenGetFacetsReturnsPageWithCounts() {
+        // given
+        final List<DiscountEntity> discountList = this.discountRepository.saveAll(getDiscountList());
+        final DiscountFilter filter = new DiscountFilter("Еда", null, null, null, null);
+        final List<Long> pageIds = discountList.subList(0, 2).stream().map(DiscountEntity::getId).toList();
+        when(this.discountFacetRepository.count(filter, 0L, 2)).thenReturn(new DiscountFacetRepository.Counts(discountList.size(),
+                Map.of("Еда", (long) discountList.size()), Map.of(), Map.of("10-19", (long) discountList.size()), pageIds));
+        when(this.discountRepository.findAllInOrder(pageIds)).thenReturn(discountList.subList(0, 2));
+
+        // when
+        final DiscountFacets facets = this.discountService.getFacets(filter, PageRequest.of(0, 2));
+
+        // then
+        assertEquals(discountList.subList(0, 2), facets.items());
+        assertEquals(discountList.size(), facets.total());
+        assertEquals(Map.of("Еда", (long) discountList.size()), facets.categories());
+    }
+
+    @Test
+    public void whenGetFacetsAfterLastPageThenItemsNotQueried() {
+        // given
+        final DiscountFilter filter = new DiscountFilter(null, null, null, null, null);
+        when(this.discountFacetRepository.count(filter, 3L, 3)).thenReturn(new DiscountFacetRepository.Counts(3, Map.of(), Map.of(), Map.of(), List.of()));
+
+        // when
+        final DiscountFacets facets = this.discountService.getFacets(filter, PageRequest.of(1, 3));
+
+        // then
+        assertTrue(facets.items().isEmpty());
+        assertEquals(3, facets.total());
+        verify(this.discountRepository, never()).findAllInOrder(anyList());
+    }
+
+    @Test
+    public void whenFindByCursorHasNextPart() {
+        // given
+        final List<DiscountEntity> discountList = this.discountRepository.saveAll(getDiscountList());
+        when(this.discountRepository.findAll(any(Specification.class), any(Sort.class), anyInt())).thenAnswer(invocation ->
+                discountList.subList(0, Math.min(discountList.size(), invocation.<Integer>getArgument(2))));
+
+        // when
+        final DiscountSlice slice = this.discountService.getDiscountsByCursor(null, null, Sort.Direction.DESC, 2);
+
+        // then
+        assertEquals(discountList.subList(0, 2), slice.items());
+        assertEquals(DiscountCursor.after(discountList.get(1), Sort.Direction.DESC), DiscountCursor.decode(slice.nextCursor()));
+        verify(this.discountRepository, times(1)).findAll(any(Specification.class), any(Sort.class), eq(3));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 101})
+    public void whenFindByCursorWrongSize(final int size) {
+        // when
+        final IllegalStateException exception = assertThrows(IllegalStateException.class, () ->
+                this.discountService.getDiscountsByCursor(null, null, Sort.Direction.DESC, size));
+
+        // then
+        assertEquals("Size must be between 1 and 100", exception.getMessage());
+    }
+
     @ParameterizedTest
     @ValueSource(strings = {"-1", "101", "250"})
     public void whenAddDiscountWrongSizeValue(final Integer size) {
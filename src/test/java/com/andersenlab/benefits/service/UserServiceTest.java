@@ -32,6 +32,10 @@ public class UserServiceTest {
     private final RoleRepository roleRepository;
     @MockBean
     private final LocationRepository locationRepository;
+    @MockBean
+    private RoleService roleService;
+    @MockBean
+    private LocationService locationService;
 
     @Autowired
     public UserServiceTest(final UserServiceImpl userService,